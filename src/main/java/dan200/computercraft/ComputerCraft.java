@@ -74,6 +74,10 @@ public final class ComputerCraft implements ModInitializer {
     public static int computerSpaceLimit = 1000 * 1000;
     public static int floppySpaceLimit = 125 * 1000;
     public static int maximumFilesOpen = 128;
+    public static boolean packedFileSystems = false;
+    public static boolean deduplicateFiles = false;
+    public static int fileWriteBuffer = 8192;
+    public static long fileFlushInterval = 1000;
     public static boolean disable_lua51_features = false;
     public static String default_computer_settings = "";
     public static boolean debug_enable = true;
@@ -81,6 +85,7 @@ public final class ComputerCraft implements ModInitializer {
     public static int computer_threads = 1;
     public static long maxMainGlobalTime = TimeUnit.MILLISECONDS.toNanos(10);
     public static long maxMainComputerTime = TimeUnit.MILLISECONDS.toNanos(5);
+    public static boolean asyncFileOperations = false;
     public static boolean http_enable = true;
     public static boolean http_websocket_enable = true;
     public static int httpTimeout = 30000;
@@ -89,6 +94,12 @@ public final class ComputerCraft implements ModInitializer {
     public static long httpMaxUpload = 4 * 1024 * 1024;
     public static int httpMaxWebsockets = 4;
     public static int httpMaxWebsocketMessage = Websocket.MAX_MESSAGE_SIZE;
+    public static int httpMaxConnectionsPerHost = 8;
+    public static int httpConnectionIdleTimeout = 15000;
+    public static int httpDnsCacheTtl = 30000;
+    public static long httpResponseCacheSize = 0;
+    public static double httpRequestRate = 0;
+    public static long httpBandwidth = 0;
     public static boolean enableCommandBlock = false;
     public static int modem_range = 64;
     public static int modem_highAltitudeRange = 384;
@@ -100,6 +111,7 @@ public final class ComputerCraft implements ModInitializer {
     public static int advancedTurtleFuelLimit = 100000;
     public static boolean turtlesObeyBlockProtection = true;
     public static boolean turtlesCanPush = true;
+    public static int turtleMaxScanRadius = 2;
     public static EnumSet<TurtleAction> turtleDisabledActions = EnumSet.noneOf(TurtleAction.class);
     public static int monitorWidth = 8;
     public static int monitorHeight = 6;
@@ -26,7 +26,9 @@ import dan200.computercraft.api.pocket.IPocketUpgrade;
 import dan200.computercraft.api.redstone.IBundledRedstoneProvider;
 import dan200.computercraft.api.turtle.ITurtleUpgrade;
 import dan200.computercraft.core.apis.ApiFactories;
+import dan200.computercraft.core.filesystem.ContentStore;
 import dan200.computercraft.core.filesystem.FileMount;
+import dan200.computercraft.core.filesystem.ImageMount;
 import dan200.computercraft.core.filesystem.ResourceMount;
 import dan200.computercraft.mixin.MinecraftServerAccess;
 import dan200.computercraft.shared.BundledRedstone;
@@ -96,10 +98,36 @@ public final class ComputerCraftAPIImpl implements IComputerCraftAPI {
     @Override
     public IWritableMount createSaveDirMount(@Nonnull World world, @Nonnull String subPath, long capacity) {
         try {
-            return new FileMount(new File(IDAssigner.getDir(), subPath), capacity);
+            File directory = new File(IDAssigner.getDir(), subPath);
+            File image = new File(directory.getParentFile(), directory.getName() + ".img");
+            if (ComputerCraft.packedFileSystems) {
+                if (!image.exists() && directory.isDirectory()) {
+                    ImageMount.pack(directory, image);
+                }
+                return ImageMount.open(image, capacity);
+            } else {
+                if (!directory.exists() && image.isFile()) {
+                    ImageMount.unpack(image, directory);
+                }
+                return new FileMount(directory, capacity, getContentStore());
+            }
         } catch (Exception e) {
+            ComputerCraft.log.error("Cannot create mount for {}", subPath, e);
+            return null;
+        }
+    }
+
+    /**
+     * Get the store which computers' files are deduplicated against.
+     *
+     * @return The content store, or {@code null} if deduplication is disabled or not supported.
+     */
+    @Nullable
+    public static ContentStore getContentStore() {
+        if (!ComputerCraft.deduplicateFiles || ComputerCraft.packedFileSystems || !ContentStore.isSupported()) {
             return null;
         }
+        return new ContentStore(new File(IDAssigner.getDir(), "objects"));
     }
 
     @Override
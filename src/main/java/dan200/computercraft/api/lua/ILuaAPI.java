@@ -40,6 +40,18 @@ public interface ILuaAPI {
     default void update() {
     }
 
+    /**
+     * Whether calling {@link #update()} now would do nothing. A computer whose APIs are all idle, and which is otherwise waiting for an event, may
+     * stop being ticked until something wakes it, so {@link #update()} will not be called in the meantime.
+     *
+     * This should only return {@code true} if this API does not need to be updated until the computer receives another event.
+     *
+     * @return If this API may skip its updates. This is {@code false} by default, so APIs are updated every tick unless they opt out.
+     */
+    default boolean isIdle() {
+        return false;
+    }
+
     /**
      * Called when the computer is turned off or unloaded.
      *
@@ -6,6 +6,8 @@
 
 package dan200.computercraft.api.turtle;
 
+import java.util.List;
+
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
@@ -207,6 +209,25 @@ public interface ITurtleAccess {
     @Nonnull
     MethodResult executeCommand(@Nonnull ITurtleCommand command);
 
+    /**
+     * Adds a sequence of commands to the turtle's command queue, to be run one after another. Each command behaves as if it had been passed to
+     * {@link #executeCommand(ITurtleCommand)}, but a single "turtle_response" event is issued once the whole sequence has completed.
+     *
+     * The response contains whether every command succeeded, followed by a list with the results of each command which was run (as would be returned
+     * by {@link #executeCommand(ITurtleCommand)}).
+     *
+     * @param commands          The commands to run, in order.
+     * @param continueOnFailure Whether to keep running commands after one has failed. Otherwise, the sequence stops at the first failure.
+     * @return The aggregated results of the commands.
+     * @throws UnsupportedOperationException When attempting to execute a command on the client side, or if this turtle does not support running
+     *                                       commands in sequence.
+     * @see #executeCommand(ITurtleCommand)
+     */
+    @Nonnull
+    default MethodResult executeCommands(@Nonnull List<ITurtleCommand> commands, boolean continueOnFailure) {
+        throw new UnsupportedOperationException("Cannot execute a sequence of commands on this turtle");
+    }
+
     /**
      * Start playing a specific animation. This will prevent other turtle commands from executing until it is finished.
      *
@@ -30,4 +30,16 @@ public interface ITurtleCommand {
      */
     @Nonnull
     TurtleCommandResult execute(@Nonnull ITurtleAccess turtle);
+
+    /**
+     * Whether this command only inspects the world and the turtle, without changing either or playing an animation.
+     *
+     * Read-only commands may run while the turtle is animating, and several of them may run in the same tick, so
+     * programs which check their surroundings before every move are not slowed down by a tick per check.
+     *
+     * @return If this command is read-only.
+     */
+    default boolean isReadOnly() {
+        return false;
+    }
 }
@@ -8,27 +8,30 @@ package dan200.computercraft.core.apis;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileTime;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.OptionalLong;
-import java.util.function.Function;
 
 
 import dan200.computercraft.api.lua.IArguments;
 import dan200.computercraft.api.lua.ILuaAPI;
 import dan200.computercraft.api.lua.LuaException;
 import dan200.computercraft.api.lua.LuaFunction;
+import dan200.computercraft.api.lua.MethodResult;
 import dan200.computercraft.core.apis.handles.BinaryReadableHandle;
 import dan200.computercraft.core.apis.handles.BinaryWritableHandle;
+import dan200.computercraft.core.apis.handles.BufferedReadableChannel;
+import dan200.computercraft.core.apis.handles.BufferedWritableChannel;
 import dan200.computercraft.core.apis.handles.EncodedReadableHandle;
 import dan200.computercraft.core.apis.handles.EncodedWritableHandle;
+import dan200.computercraft.core.apis.handles.HandleGeneric;
 import dan200.computercraft.core.filesystem.FileSystem;
 import dan200.computercraft.core.filesystem.FileSystemException;
 import dan200.computercraft.core.filesystem.FileSystemWrapper;
+import dan200.computercraft.core.filesystem.WriteListener;
 import dan200.computercraft.core.tracking.TrackingField;
 
 /**
@@ -39,9 +42,27 @@ import dan200.computercraft.core.tracking.TrackingField;
 public class FSAPI implements ILuaAPI {
     private final IAPIEnvironment environment;
     private FileSystem fileSystem = null;
+    private FileTaskExecutor.Runner runner = FileTaskExecutor.Runner.BLOCKING;
+    private final WriteListener writeListener;
 
     public FSAPI(IAPIEnvironment env) {
         this.environment = env;
+        this.writeListener = new WriteListener() {
+            @Override
+            public void written(long bytes) {
+                env.addTrackingChange(TrackingField.FS_BYTES_WRITTEN, bytes);
+            }
+
+            @Override
+            public void syscall() {
+                env.addTrackingChange(TrackingField.FS_WRITE_CALLS);
+            }
+
+            @Override
+            public void flushed() {
+                env.addTrackingChange(TrackingField.FS_FLUSHES);
+            }
+        };
     }
 
     @Override
@@ -49,14 +70,21 @@ public class FSAPI implements ILuaAPI {
         return new String[] {"fs"};
     }
 
+    @Override
+    public boolean isIdle() {
+        return true;
+    }
+
     @Override
     public void startup() {
         this.fileSystem = this.environment.getFileSystem();
+        this.runner = FileTaskExecutor.runner(this.environment, this.fileSystem);
     }
 
     @Override
     public void shutdown() {
         this.fileSystem = null;
+        this.runner = FileTaskExecutor.Runner.BLOCKING;
     }
 
     /**
@@ -209,13 +237,13 @@ public class FSAPI implements ILuaAPI {
      * @throws LuaException If the file or directory couldn't be moved.
      */
     @LuaFunction
-    public final void move(String path, String dest) throws LuaException {
-        try {
-            this.environment.addTrackingChange(TrackingField.FS_OPS);
-            this.fileSystem.move(path, dest);
-        } catch (FileSystemException e) {
-            throw new LuaException(e.getMessage());
-        }
+    public final MethodResult move(String path, String dest) throws LuaException {
+        this.environment.addTrackingChange(TrackingField.FS_OPS);
+        FileSystem fileSystem = this.fileSystem;
+        return this.run(() -> {
+            fileSystem.move(path, dest);
+            return null;
+        });
     }
 
     /**
@@ -228,13 +256,13 @@ public class FSAPI implements ILuaAPI {
      * @throws LuaException If the file or directory couldn't be copied.
      */
     @LuaFunction
-    public final void copy(String path, String dest) throws LuaException {
-        try {
-            this.environment.addTrackingChange(TrackingField.FS_OPS);
-            this.fileSystem.copy(path, dest);
-        } catch (FileSystemException e) {
-            throw new LuaException(e.getMessage());
-        }
+    public final MethodResult copy(String path, String dest) throws LuaException {
+        this.environment.addTrackingChange(TrackingField.FS_OPS);
+        FileSystem fileSystem = this.fileSystem;
+        return this.run(() -> {
+            fileSystem.copy(path, dest);
+            return null;
+        });
     }
 
     /**
@@ -246,13 +274,13 @@ public class FSAPI implements ILuaAPI {
      * @throws LuaException If the file or directory couldn't be deleted.
      */
     @LuaFunction
-    public final void delete(String path) throws LuaException {
-        try {
-            this.environment.addTrackingChange(TrackingField.FS_OPS);
-            this.fileSystem.delete(path);
-        } catch (FileSystemException e) {
-            throw new LuaException(e.getMessage());
-        }
+    public final MethodResult delete(String path) throws LuaException {
+        this.environment.addTrackingChange(TrackingField.FS_OPS);
+        FileSystem fileSystem = this.fileSystem;
+        return this.run(() -> {
+            fileSystem.delete(path);
+            return null;
+        });
     }
 
     // FIXME: Add individual handle type documentation
@@ -279,32 +307,32 @@ public class FSAPI implements ILuaAPI {
             case "r": {
                 // Open the file for reading, then create a wrapper around the reader
                 FileSystemWrapper<BufferedReader> reader = this.fileSystem.openForRead(path, EncodedReadableHandle::openUtf8);
-                return new Object[] {new EncodedReadableHandle(reader.get(), reader)};
+                return new Object[] {this.handle(new EncodedReadableHandle(reader.get(), reader))};
             }
             case "w": {
                 // Open the file for writing, then create a wrapper around the writer
-                FileSystemWrapper<BufferedWriter> writer = this.fileSystem.openForWrite(path, false, EncodedWritableHandle::openUtf8);
-                return new Object[] {new EncodedWritableHandle(writer.get(), writer)};
+                FileSystemWrapper<BufferedWriter> writer = this.fileSystem.openForWrite(path, false, channel -> EncodedWritableHandle.openUtf8(this.track(channel)));
+                return new Object[] {this.handle(new EncodedWritableHandle(writer.get(), writer))};
             }
             case "a": {
                 // Open the file for appending, then create a wrapper around the writer
-                FileSystemWrapper<BufferedWriter> writer = this.fileSystem.openForWrite(path, true, EncodedWritableHandle::openUtf8);
-                return new Object[] {new EncodedWritableHandle(writer.get(), writer)};
+                FileSystemWrapper<BufferedWriter> writer = this.fileSystem.openForWrite(path, true, channel -> EncodedWritableHandle.openUtf8(this.track(channel)));
+                return new Object[] {this.handle(new EncodedWritableHandle(writer.get(), writer))};
             }
             case "rb": {
                 // Open the file for binary reading, then create a wrapper around the reader
-                FileSystemWrapper<ReadableByteChannel> reader = this.fileSystem.openForRead(path, Function.identity());
-                return new Object[] {BinaryReadableHandle.of(reader.get(), reader)};
+                FileSystemWrapper<BufferedReadableChannel> reader = this.fileSystem.openForRead(path, BufferedReadableChannel::new);
+                return new Object[] {this.handle(BinaryReadableHandle.of(reader.get(), reader))};
             }
             case "wb": {
                 // Open the file for binary writing, then create a wrapper around the writer
-                FileSystemWrapper<WritableByteChannel> writer = this.fileSystem.openForWrite(path, false, Function.identity());
-                return new Object[] {BinaryWritableHandle.of(writer.get(), writer)};
+                FileSystemWrapper<BufferedWritableChannel> writer = this.fileSystem.openForWrite(path, false, channel -> new BufferedWritableChannel(this.track(channel)));
+                return new Object[] {this.handle(BinaryWritableHandle.of(writer.get(), writer))};
             }
             case "ab": {
                 // Open the file for binary appending, then create a wrapper around the reader
-                FileSystemWrapper<WritableByteChannel> writer = this.fileSystem.openForWrite(path, true, Function.identity());
-                return new Object[] {BinaryWritableHandle.of(writer.get(), writer)};
+                FileSystemWrapper<BufferedWritableChannel> writer = this.fileSystem.openForWrite(path, true, channel -> new BufferedWritableChannel(this.track(channel)));
+                return new Object[] {this.handle(BinaryWritableHandle.of(writer.get(), writer))};
             }
             default:
                 throw new LuaException("Unsupported mode");
@@ -361,15 +389,13 @@ public class FSAPI implements ILuaAPI {
      * @param path The wildcard-qualified path to search for.
      * @return A list of paths that match the search string.
      * @throws LuaException If the path doesn't exist.
+     * @cc.treturn { string... } A list of paths that match the search string.
      */
     @LuaFunction
-    public final String[] find(String path) throws LuaException {
-        try {
-            this.environment.addTrackingChange(TrackingField.FS_OPS);
-            return this.fileSystem.find(path);
-        } catch (FileSystemException e) {
-            throw new LuaException(e.getMessage());
-        }
+    public final MethodResult find(String path) throws LuaException {
+        this.environment.addTrackingChange(TrackingField.FS_OPS);
+        FileSystem fileSystem = this.fileSystem;
+        return this.run(() -> fileSystem.find(path));
     }
 
     /**
@@ -426,6 +452,31 @@ public class FSAPI implements ILuaAPI {
         }
     }
 
+    private WritableByteChannel track(WritableByteChannel channel) {
+        if (channel instanceof WriteListener.Target) {
+            ((WriteListener.Target) channel).setWriteListener(this.writeListener);
+        }
+        return channel;
+    }
+
+    private HandleGeneric handle(HandleGeneric handle) {
+        handle.setRunner(this.runner);
+        return handle;
+    }
+
+    /**
+     * Run an operation which may need to visit many files. If enabled, this is run on a separate thread, and the
+     * computer yields until it has finished.
+     *
+     * @param task The operation to run.
+     * @return The operation's result.
+     * @throws LuaException If the operation failed.
+     * @see FileTaskExecutor
+     */
+    private MethodResult run(FileTaskExecutor.Task task) throws LuaException {
+        return this.runner.run(task);
+    }
+
     private static long getFileTime(FileTime time) {
         return time == null ? 0 : time.toMillis();
     }
@@ -0,0 +1,162 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+
+package dan200.computercraft.core.apis;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import dan200.computercraft.ComputerCraft;
+import dan200.computercraft.api.lua.LuaException;
+import dan200.computercraft.api.lua.MethodResult;
+import dan200.computercraft.core.asm.TaskCallback;
+import dan200.computercraft.core.computer.MainThread;
+import dan200.computercraft.core.filesystem.FileSystem;
+import dan200.computercraft.core.filesystem.FileSystemException;
+import dan200.computercraft.core.tracking.TrackingField;
+import dan200.computercraft.shared.util.ThreadUtils;
+
+/**
+ * Runs slow file system operations away from the computer threads.
+ *
+ * There are only a handful of computer threads, so a large {@code fs.copy} or {@code fs.delete} would otherwise stall
+ * every other computer waiting to run. Instead, the operation is run here and the calling computer yields until it
+ * receives a {@code task_complete} event, in the same way as a main thread task. Large reads and writes through file
+ * handles are run here too (see {@link dan200.computercraft.core.apis.handles.HandleGeneric}).
+ *
+ * Operations belong to the computer's current {@link FileSystem}. If the computer is shut down or rebooted, queued
+ * operations are skipped and the results of running ones are dropped, so they never reach the next session.
+ *
+ * @see ComputerCraft#asyncFileOperations
+ */
+public final class FileTaskExecutor {
+    private static final int THREADS = 2;
+
+    /**
+     * The maximum number of operations waiting to run. Once this is reached, operations are run on the computer thread
+     * instead, so a single computer cannot queue up an unbounded amount of work.
+     */
+    private static final int QUEUE_SIZE = 256;
+
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(THREADS,
+                                                                              THREADS,
+                                                                              60,
+                                                                              TimeUnit.SECONDS,
+                                                                              new ArrayBlockingQueue<>(QUEUE_SIZE),
+                                                                              ThreadUtils.factory("FileSystem"));
+
+    static {
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    private FileTaskExecutor() {
+    }
+
+    /**
+     * Get a runner for operations on a computer's file system.
+     *
+     * @param environment The computer running these operations.
+     * @param fileSystem The computer's current file system.
+     * @return A runner which runs operations in the background when {@link ComputerCraft#asyncFileOperations} is
+     *     enabled, and on the current thread otherwise.
+     */
+    @Nonnull
+    public static Runner runner(IAPIEnvironment environment, FileSystem fileSystem) {
+        return task -> {
+            if (ComputerCraft.asyncFileOperations) {
+                long id = MainThread.getUniqueTaskID();
+                if (submit(environment, fileSystem, id, task)) {
+                    environment.addTrackingChange(TrackingField.FS_ASYNC_OPS);
+                    return TaskCallback.await(id);
+                }
+            }
+
+            long start = System.nanoTime();
+            try {
+                return MethodResult.of(task.run());
+            } catch (FileSystemException | IOException e) {
+                throw new LuaException(e.getMessage());
+            } finally {
+                environment.addTrackingChange(TrackingField.FS_BLOCKING_TIME, System.nanoTime() - start);
+            }
+        };
+    }
+
+    /**
+     * Run a file system operation in the background, queuing a {@code task_complete} event once it has finished.
+     *
+     * @param environment The computer to notify.
+     * @param fileSystem The file system this operation belongs to.
+     * @param id The ID of this task, as given by {@link MainThread#getUniqueTaskID()}.
+     * @param task The operation to run.
+     * @return Whether the task was queued. If not, the caller should run it itself.
+     */
+    private static boolean submit(IAPIEnvironment environment, FileSystem fileSystem, long id, Task task) {
+        try {
+            EXECUTOR.execute(() -> {
+                // The computer has been shut down since this was queued, so there is no one to run it for.
+                if (!fileSystem.isOpen()) {
+                    return;
+                }
+
+                Object[] event;
+                try {
+                    Object result = task.run();
+                    event = result == null ? new Object[] {id, true} : new Object[] {id, true, result};
+                } catch (LuaException | FileSystemException | IOException e) {
+                    event = new Object[] {id, false, e.getMessage()};
+                } catch (RuntimeException e) {
+                    ComputerCraft.log.error("Error running file system task", e);
+                    event = new Object[] {id, false, "Java Exception Thrown: " + e};
+                }
+
+                // Likewise, don't leak the result into the next session if the computer was rebooted while running.
+                if (fileSystem.isOpen()) {
+                    environment.queueEvent("task_complete", event);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Runs file system operations, either on the current thread or in the background.
+     */
+    @FunctionalInterface
+    public interface Runner {
+        /**
+         * Runs operations on the current thread, for handles which do not belong to a computer's file system.
+         */
+        Runner BLOCKING = task -> {
+            try {
+                return MethodResult.of(task.run());
+            } catch (FileSystemException | IOException e) {
+                throw new LuaException(e.getMessage());
+            }
+        };
+
+        /**
+         * Run an operation.
+         *
+         * @param task The operation to run.
+         * @return The operation's result, or a result which yields until the operation has finished.
+         * @throws LuaException If the operation was run on this thread and failed.
+         */
+        MethodResult run(Task task) throws LuaException;
+    }
+
+    @FunctionalInterface
+    public interface Task {
+        Object run() throws LuaException, FileSystemException, IOException;
+    }
+}
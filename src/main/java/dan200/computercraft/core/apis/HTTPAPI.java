@@ -40,10 +40,12 @@ public class HTTPAPI implements ILuaAPI
     private final ResourceGroup<CheckUrl> checkUrls = new ResourceGroup<>();
     private final ResourceGroup<HttpRequest> requests = new ResourceQueue<>( () -> ComputerCraft.httpMaxRequests );
     private final ResourceGroup<Websocket> websockets = new ResourceGroup<>( () -> ComputerCraft.httpMaxWebsockets );
+    private final RateLimiter rateLimiter;
 
     public HTTPAPI( IAPIEnvironment environment )
     {
         apiEnvironment = environment;
+        rateLimiter = new RateLimiter( environment );
     }
 
     @Override
@@ -66,6 +68,7 @@ public class HTTPAPI implements ILuaAPI
         checkUrls.shutdown();
         requests.shutdown();
         websockets.shutdown();
+        rateLimiter.shutdown();
     }
 
     @Override
@@ -74,6 +77,20 @@ public class HTTPAPI implements ILuaAPI
         // It's rather ugly to run this here, but we need to clean up
         // resources as often as possible to reduce blocking.
         Resource.cleanup();
+
+        // Start any requests which were waiting for this computer's rate limit.
+        rateLimiter.update();
+
+        // Send any websocket messages queued during the last tick.
+        websockets.forEach( Websocket::flush );
+    }
+
+    @Override
+    public boolean isIdle()
+    {
+        // Websocket messages are only queued by the computer itself, and so are always flushed by the tick after it
+        // last ran.
+        return rateLimiter.isIdle();
     }
 
     @LuaFunction
@@ -124,10 +141,11 @@ public class HTTPAPI implements ILuaAPI
         try
         {
             URI uri = HttpRequest.checkUri( address );
-            HttpRequest request = new HttpRequest( requests, apiEnvironment, address, postString, headers, binary, redirect );
+            HttpRequest request = new HttpRequest( requests, apiEnvironment, rateLimiter, address, postString, headers, binary, redirect );
 
             // Make the request
-            request.queue( r -> r.request( uri, httpMethod ) );
+            long upload = HttpRequest.getHeaderSize( headers ) + request.body().capacity();
+            request.queue( r -> rateLimiter.submit( upload, () -> r.request( uri, httpMethod ) ) );
 
             return new Object[] { true };
         }
@@ -166,7 +184,7 @@ public class HTTPAPI implements ILuaAPI
         try
         {
             URI uri = Websocket.checkUri( address );
-            if( !new Websocket( websockets, apiEnvironment, uri, address, headers ).queue( Websocket::connect ) )
+            if( !new Websocket( websockets, apiEnvironment, rateLimiter, uri, address, headers ).queue( w -> rateLimiter.submit( 0, w::connect ) ) )
             {
                 throw new LuaException( "Too many websockets already open" );
             }
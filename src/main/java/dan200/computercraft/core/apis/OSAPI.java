@@ -27,6 +27,7 @@ import dan200.computercraft.api.lua.IArguments;
 import dan200.computercraft.api.lua.ILuaAPI;
 import dan200.computercraft.api.lua.LuaException;
 import dan200.computercraft.api.lua.LuaFunction;
+import dan200.computercraft.core.computer.MainThread;
 import dan200.computercraft.shared.util.StringUtil;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
@@ -40,7 +41,7 @@ public class OSAPI implements ILuaAPI {
     private final IAPIEnvironment apiEnvironment;
 
     private final Int2ObjectMap<Alarm> m_alarms = new Int2ObjectOpenHashMap<>();
-    private int m_clock;
+    private int m_clockStart;
     private double m_time;
     private int m_day;
 
@@ -61,7 +62,7 @@ public class OSAPI implements ILuaAPI {
                                          .getTimeOfDay();
         this.m_day = this.apiEnvironment.getComputerEnvironment()
                                         .getDay();
-        this.m_clock = 0;
+        this.m_clockStart = MainThread.currentTick();
 
         synchronized (this.m_alarms) {
             this.m_alarms.clear();
@@ -70,8 +71,6 @@ public class OSAPI implements ILuaAPI {
 
     @Override
     public void update() {
-        this.m_clock++;
-
         // Wait for all of our alarms
         synchronized (this.m_alarms) {
             double previousTime = this.m_time;
@@ -101,6 +100,14 @@ public class OSAPI implements ILuaAPI {
         }
     }
 
+    @Override
+    public boolean isIdle() {
+        // The clock is derived from the current tick, so we only need updating to fire alarms.
+        synchronized (this.m_alarms) {
+            return this.m_alarms.isEmpty();
+        }
+    }
+
     @Override
     public void shutdown() {
         synchronized (this.m_alarms) {
@@ -242,7 +249,7 @@ public class OSAPI implements ILuaAPI {
      */
     @LuaFunction
     public final double clock() {
-        return this.m_clock * 0.05;
+        return (MainThread.currentTick() - this.m_clockStart) * 0.05;
     }
 
     /**
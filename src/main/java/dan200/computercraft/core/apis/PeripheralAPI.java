@@ -105,6 +105,11 @@ public class PeripheralAPI implements ILuaAPI, IAPIEnvironment.IPeripheralChange
         return new String[] {"peripheral"};
     }
 
+    @Override
+    public boolean isIdle() {
+        return true;
+    }
+
     @Override
     public void startup() {
         synchronized (this.peripherals) {
@@ -62,6 +62,11 @@ public class RedstoneAPI implements ILuaAPI {
         };
     }
 
+    @Override
+    public boolean isIdle() {
+        return true;
+    }
+
     /**
      * Returns a table containing the six sides of the computer. Namely, "top", "bottom", "left", "right", "front" and "back".
      *
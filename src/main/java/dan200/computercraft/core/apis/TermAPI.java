@@ -35,6 +35,11 @@ public class TermAPI extends TermMethods implements ILuaAPI {
         return new String[] {"term"};
     }
 
+    @Override
+    public boolean isIdle() {
+        return true;
+    }
+
     /**
      * Get the default palette value for a colour.
      *
@@ -7,6 +7,7 @@ package dan200.computercraft.core.apis.handles;
 
 import dan200.computercraft.api.lua.LuaException;
 import dan200.computercraft.api.lua.LuaFunction;
+import dan200.computercraft.api.lua.MethodResult;
 import dan200.computercraft.core.filesystem.TrackingCloseable;
 
 import java.io.ByteArrayOutputStream;
@@ -63,9 +64,15 @@ public class BinaryReadableHandle extends HandleGeneric
      * @cc.treturn [3] string The bytes read as a string. This is returned when the {@code count} is given.
      */
     @LuaFunction
-    public final Object[] read( Optional<Integer> countArg ) throws LuaException
+    public final MethodResult read( Optional<Integer> countArg ) throws LuaException
     {
         checkOpen();
+        if( countArg.isPresent() && countArg.get() > LARGE_TRANSFER ) return runLarge( () -> first( doRead( countArg ) ) );
+        return MethodResult.of( doRead( countArg ) );
+    }
+
+    private Object[] doRead( Optional<Integer> countArg ) throws LuaException
+    {
         try
         {
             if( countArg.isPresent() )
@@ -88,6 +95,10 @@ public class BinaryReadableHandle extends HandleGeneric
                 }
                 else
                 {
+                    // Large reads from a file on disk can be mapped, and copied straight into one array.
+                    byte[] mapped = readMapped( count );
+                    if( mapped != null ) return new Object[] { mapped };
+
                     // Read the initial set of characters, failing if none are read.
                     ByteBuffer buffer = ByteBuffer.allocate( BUFFER_SIZE );
                     int read = reader.read( buffer );
@@ -147,11 +158,20 @@ public class BinaryReadableHandle extends HandleGeneric
      * @cc.treturn string|nil The remaining contents of the file, or {@code nil} if we are at the end.
      */
     @LuaFunction
-    public final Object[] readAll() throws LuaException
+    public final MethodResult readAll() throws LuaException
     {
         checkOpen();
+        if( remaining() > LARGE_TRANSFER ) return runLarge( () -> first( doReadAll() ) );
+        return MethodResult.of( doReadAll() );
+    }
+
+    private Object[] doReadAll()
+    {
         try
         {
+            byte[] mapped = readMapped( Long.MAX_VALUE );
+            if( mapped != null ) return new Object[] { mapped };
+
             int expected = 32;
             if( seekable != null ) expected = Math.max( expected, (int) (seekable.size() - seekable.position()) );
             ByteArrayOutputStream stream = new ByteArrayOutputStream( expected );
@@ -175,6 +195,24 @@ public class BinaryReadableHandle extends HandleGeneric
         }
     }
 
+    private long remaining()
+    {
+        if( seekable == null ) return 0;
+        try
+        {
+            return seekable.size() - seekable.position();
+        }
+        catch( IOException e )
+        {
+            return 0;
+        }
+    }
+
+    private byte[] readMapped( long count ) throws IOException
+    {
+        return reader instanceof BufferedReadableChannel ? ((BufferedReadableChannel) reader).readMapped( count ) : null;
+    }
+
     /**
      * Read a line from the file.
      *
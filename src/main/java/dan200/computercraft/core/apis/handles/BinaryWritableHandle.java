@@ -9,8 +9,10 @@ import dan200.computercraft.api.lua.IArguments;
 import dan200.computercraft.api.lua.LuaException;
 import dan200.computercraft.api.lua.LuaFunction;
 import dan200.computercraft.api.lua.LuaValues;
+import dan200.computercraft.api.lua.MethodResult;
 import dan200.computercraft.core.filesystem.TrackingCloseable;
 
+import java.io.Flushable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
@@ -57,29 +59,45 @@ public class BinaryWritableHandle extends HandleGeneric
      * @cc.tparam [2] string The string to write.
      */
     @LuaFunction
-    public final void write( IArguments arguments ) throws LuaException
+    public final MethodResult write( IArguments arguments ) throws LuaException
     {
         checkOpen();
-        try
+        Object arg = arguments.get( 0 );
+        if( arg instanceof Number )
         {
-            Object arg = arguments.get( 0 );
-            if( arg instanceof Number )
-            {
-                int number = ((Number) arg).intValue();
-                single.clear();
-                single.put( (byte) number );
-                single.flip();
+            int number = ((Number) arg).intValue();
+            single.clear();
+            single.put( (byte) number );
+            single.flip();
 
-                writer.write( single );
-            }
-            else if( arg instanceof String )
-            {
-                writer.write( arguments.getBytes( 0 ) );
-            }
-            else
+            writeBytes( single );
+            return MethodResult.of();
+        }
+        else if( arg instanceof String )
+        {
+            ByteBuffer bytes = arguments.getBytes( 0 );
+            if( bytes.remaining() > LARGE_TRANSFER )
             {
-                throw LuaValues.badArgumentOf( 0, "string or number", arg );
+                return runLarge( () -> {
+                    writer.write( bytes );
+                    return null;
+                } );
             }
+
+            writeBytes( bytes );
+            return MethodResult.of();
+        }
+        else
+        {
+            throw LuaValues.badArgumentOf( 0, "string or number", arg );
+        }
+    }
+
+    private void writeBytes( ByteBuffer bytes ) throws LuaException
+    {
+        try
+        {
+            writer.write( bytes );
         }
         catch( IOException e )
         {
@@ -98,11 +116,20 @@ public class BinaryWritableHandle extends HandleGeneric
         checkOpen();
         try
         {
-            // Technically this is not needed
-            if( writer instanceof FileChannel ) ((FileChannel) writer).force( false );
+            if( writer instanceof Flushable )
+            {
+                ((Flushable) writer).flush();
+            }
+            else if( writer instanceof FileChannel )
+            {
+                // Technically this is not needed
+                ((FileChannel) writer).force( false );
+            }
         }
-        catch( IOException ignored )
+        catch( IOException e )
         {
+            // Buffered channels may only discover an error (such as running out of space) when flushing.
+            if( writer instanceof Flushable ) throw new LuaException( e.getMessage() );
         }
     }
 
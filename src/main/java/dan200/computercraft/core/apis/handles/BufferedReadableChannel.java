@@ -0,0 +1,197 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.apis.handles;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * A readable channel which reads ahead from another channel, so that small reads (such as reading a single byte, or
+ * scanning for the end of a line) do not each hit the underlying file.
+ *
+ * This is seekable if and only if the underlying channel is. Seeking within the current buffer does not touch the
+ * underlying channel at all.
+ */
+public class BufferedReadableChannel implements SeekableByteChannel
+{
+    static final int BUFFER_SIZE = 8192;
+
+    /**
+     * The smallest read which will be served by mapping the file, rather than copying it through a buffer.
+     */
+    static final int MAP_THRESHOLD = 256 * 1024;
+
+    /**
+     * Mapped files cannot be deleted on Windows until the mapping has been garbage collected, which would stop
+     * programs deleting a file they have just read.
+     */
+    private static final boolean MAP_SUPPORTED = !System.getProperty( "os.name", "" ).startsWith( "Windows" );
+
+    private final ReadableByteChannel delegate;
+    private final SeekableByteChannel seekable;
+    private final ByteBuffer buffer;
+
+    public BufferedReadableChannel( @Nonnull ReadableByteChannel delegate )
+    {
+        this( delegate, BUFFER_SIZE );
+    }
+
+    BufferedReadableChannel( @Nonnull ReadableByteChannel delegate, int size )
+    {
+        this.delegate = delegate;
+        seekable = delegate instanceof SeekableByteChannel ? (SeekableByteChannel) delegate : null;
+        buffer = ByteBuffer.allocate( size );
+        buffer.limit( 0 );
+    }
+
+    @Override
+    public int read( ByteBuffer destination ) throws IOException
+    {
+        if( !isOpen() ) throw new ClosedChannelException();
+
+        // Keep reading until the destination is full or we hit the end of the file, as callers (and the old
+        // unbuffered behaviour) treat a short read as reaching the end.
+        int total = 0;
+        int read = 0;
+        while( destination.hasRemaining() )
+        {
+            if( !buffer.hasRemaining() )
+            {
+                if( destination.remaining() >= buffer.capacity() )
+                {
+                    // Large reads gain nothing from the buffer, so go directly to the underlying channel.
+                    read = delegate.read( destination );
+                    if( read <= 0 ) break;
+                    total += read;
+                    continue;
+                }
+
+                buffer.clear();
+                read = delegate.read( buffer );
+                buffer.flip();
+                if( read <= 0 ) break;
+            }
+
+            int count = Math.min( buffer.remaining(), destination.remaining() );
+            int limit = buffer.limit();
+            buffer.limit( buffer.position() + count );
+            destination.put( buffer );
+            buffer.limit( limit );
+            total += count;
+        }
+
+        return total == 0 && read < 0 ? -1 : total;
+    }
+
+    @Override
+    public int write( ByteBuffer src ) throws ClosedChannelException
+    {
+        if( !isOpen() ) throw new ClosedChannelException();
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long position() throws IOException
+    {
+        return getSeekable().position() - buffer.remaining();
+    }
+
+    @Override
+    public SeekableByteChannel position( long newPosition ) throws IOException
+    {
+        SeekableByteChannel seekable = getSeekable();
+
+        long end = seekable.position();
+        long start = end - buffer.limit();
+        if( newPosition >= start && newPosition <= end )
+        {
+            buffer.position( (int) (newPosition - start) );
+        }
+        else
+        {
+            seekable.position( newPosition );
+            buffer.limit( 0 );
+        }
+
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException
+    {
+        return getSeekable().size();
+    }
+
+    @Override
+    public SeekableByteChannel truncate( long size ) throws ClosedChannelException
+    {
+        if( !isOpen() ) throw new ClosedChannelException();
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public boolean isOpen()
+    {
+        return delegate.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        delegate.close();
+    }
+
+    /**
+     * Read a large block of the file by mapping it into memory, and copying it straight into a single array.
+     *
+     * The mapping never leaves this method. Another computer may truncate the file at any point, and touching a mapping
+     * past the end of the file crashes the whole JVM, so it must not be kept around until the result is used.
+     *
+     * @param count The maximum number of bytes to read.
+     * @return An array containing up to {@code count} bytes, or {@code null} if the read is too small to be worth
+     * mapping or the underlying channel is not a file. The channel is left unchanged in the latter case.
+     * @throws IOException If the file could not be mapped.
+     */
+    @Nullable
+    byte[] readMapped( long count ) throws IOException
+    {
+        if( !MAP_SUPPORTED || !(delegate instanceof FileChannel) ) return null;
+        if( !isOpen() ) throw new ClosedChannelException();
+
+        FileChannel file = (FileChannel) delegate;
+        long position = position();
+        long length = Math.min( count, file.size() - position );
+        if( length < MAP_THRESHOLD || length > Integer.MAX_VALUE ) return null;
+
+        ByteBuffer mapped = file.map( FileChannel.MapMode.READ_ONLY, position, length );
+        byte[] bytes = new byte[(int) length];
+        try
+        {
+            mapped.get( bytes );
+        }
+        catch( InternalError e )
+        {
+            // The JVM reports a fault while copying from the mapping (such as the file having been truncated) as an
+            // InternalError.
+            throw new IOException( "File changed while reading", e );
+        }
+        position( position + length );
+        return bytes;
+    }
+
+    private SeekableByteChannel getSeekable()
+    {
+        if( seekable == null ) throw new UnsupportedOperationException( "Channel is not seekable" );
+        return seekable;
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.apis.handles;
+
+import javax.annotation.Nonnull;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonReadableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A writable channel which collects small writes into a buffer before passing them on to another channel.
+ *
+ * The buffer is written out when it is full, before seeking or truncating, and when the channel is flushed or closed.
+ * As with {@link java.io.BufferedWriter}, errors from the underlying channel (such as running out of space) may
+ * therefore only be reported by a later write, or by {@link #flush()}. Anything which could not be written is kept in
+ * the buffer, and retried when the buffer is next written out.
+ *
+ * Channels which are {@link Flushable} are assumed to do their own buffering (such as those from
+ * {@link dan200.computercraft.core.filesystem.FileMount}), and so writes are passed straight through to them.
+ *
+ * This is seekable if and only if the underlying channel is.
+ */
+public class BufferedWritableChannel implements SeekableByteChannel, Flushable
+{
+    static final int BUFFER_SIZE = 8192;
+
+    private final WritableByteChannel delegate;
+    private final SeekableByteChannel seekable;
+    private final ByteBuffer buffer;
+
+    public BufferedWritableChannel( @Nonnull WritableByteChannel delegate )
+    {
+        this( delegate, BUFFER_SIZE );
+    }
+
+    BufferedWritableChannel( @Nonnull WritableByteChannel delegate, int size )
+    {
+        this.delegate = delegate;
+        seekable = delegate instanceof SeekableByteChannel ? (SeekableByteChannel) delegate : null;
+        buffer = ByteBuffer.allocate( delegate instanceof Flushable ? 0 : size );
+    }
+
+    @Override
+    public int read( ByteBuffer dst ) throws ClosedChannelException
+    {
+        if( !isOpen() ) throw new ClosedChannelException();
+        throw new NonReadableChannelException();
+    }
+
+    @Override
+    public int write( ByteBuffer source ) throws IOException
+    {
+        if( !isOpen() ) throw new ClosedChannelException();
+
+        int count = source.remaining();
+        if( count > buffer.remaining() ) writeBuffer();
+
+        if( count >= buffer.capacity() )
+        {
+            // Large writes gain nothing from the buffer, so go directly to the underlying channel.
+            while( source.hasRemaining() ) delegate.write( source );
+        }
+        else
+        {
+            buffer.put( source );
+        }
+
+        return count;
+    }
+
+    @Override
+    public long position() throws IOException
+    {
+        return getSeekable().position() + buffer.position();
+    }
+
+    @Override
+    public SeekableByteChannel position( long newPosition ) throws IOException
+    {
+        SeekableByteChannel seekable = getSeekable();
+        writeBuffer();
+        seekable.position( newPosition );
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException
+    {
+        SeekableByteChannel seekable = getSeekable();
+        writeBuffer();
+        return seekable.size();
+    }
+
+    @Override
+    public SeekableByteChannel truncate( long size ) throws IOException
+    {
+        SeekableByteChannel seekable = getSeekable();
+        writeBuffer();
+        seekable.truncate( size );
+        return this;
+    }
+
+    /**
+     * Write any buffered data to the underlying channel, and then ask for it to be written to disk.
+     *
+     * @throws IOException If the buffered data could not be written.
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        if( !isOpen() ) throw new ClosedChannelException();
+        writeBuffer();
+
+        if( delegate instanceof Flushable )
+        {
+            ((Flushable) delegate).flush();
+            return;
+        }
+
+        try
+        {
+            // Technically this is not needed
+            if( delegate instanceof FileChannel ) ((FileChannel) delegate).force( false );
+        }
+        catch( IOException ignored )
+        {
+        }
+    }
+
+    @Override
+    public boolean isOpen()
+    {
+        return delegate.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if( !delegate.isOpen() ) return;
+        try
+        {
+            writeBuffer();
+        }
+        finally
+        {
+            delegate.close();
+        }
+    }
+
+    private void writeBuffer() throws IOException
+    {
+        if( buffer.position() == 0 ) return;
+
+        buffer.flip();
+        try
+        {
+            while( buffer.hasRemaining() ) delegate.write( buffer );
+        }
+        finally
+        {
+            // Keep anything we failed to write, so the next flush tries again.
+            buffer.compact();
+        }
+    }
+
+    private SeekableByteChannel getSeekable()
+    {
+        if( seekable == null ) throw new UnsupportedOperationException( "Channel is not seekable" );
+        return seekable;
+    }
+}
@@ -7,6 +7,7 @@ package dan200.computercraft.core.apis.handles;
 
 import dan200.computercraft.api.lua.LuaException;
 import dan200.computercraft.api.lua.LuaFunction;
+import dan200.computercraft.api.lua.MethodResult;
 import dan200.computercraft.core.filesystem.TrackingCloseable;
 
 import javax.annotation.Nonnull;
@@ -118,9 +119,15 @@ public class EncodedReadableHandle extends HandleGeneric
      * @cc.treturn string|nil The read characters, or {@code nil} if at the of the file.
      */
     @LuaFunction
-    public final Object[] read( Optional<Integer> countA ) throws LuaException
+    public final MethodResult read( Optional<Integer> countA ) throws LuaException
     {
         checkOpen();
+        if( countA.orElse( 1 ) > LARGE_TRANSFER ) return runLarge( () -> first( doRead( countA ) ) );
+        return MethodResult.of( doRead( countA ) );
+    }
+
+    private Object[] doRead( Optional<Integer> countA ) throws LuaException
+    {
         try
         {
             int count = countA.orElse( 1 );
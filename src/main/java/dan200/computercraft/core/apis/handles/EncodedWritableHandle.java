@@ -8,6 +8,7 @@ package dan200.computercraft.core.apis.handles;
 import dan200.computercraft.api.lua.IArguments;
 import dan200.computercraft.api.lua.LuaException;
 import dan200.computercraft.api.lua.LuaFunction;
+import dan200.computercraft.api.lua.MethodResult;
 import dan200.computercraft.core.filesystem.TrackingCloseable;
 import dan200.computercraft.shared.util.StringUtil;
 
@@ -44,18 +45,10 @@ public class EncodedWritableHandle extends HandleGeneric
      * @cc.param value The value to write to the file.
      */
     @LuaFunction
-    public final void write( IArguments args ) throws LuaException
+    public final MethodResult write( IArguments args ) throws LuaException
     {
         checkOpen();
-        String text = StringUtil.toString( args.get( 0 ) );
-        try
-        {
-            writer.write( text, 0, text.length() );
-        }
-        catch( IOException e )
-        {
-            throw new LuaException( e.getMessage() );
-        }
+        return write( StringUtil.toString( args.get( 0 ) ), false );
     }
 
     /**
@@ -66,19 +59,33 @@ public class EncodedWritableHandle extends HandleGeneric
      * @cc.param value The value to write to the file.
      */
     @LuaFunction
-    public final void writeLine( IArguments args ) throws LuaException
+    public final MethodResult writeLine( IArguments args ) throws LuaException
     {
         checkOpen();
-        String text = StringUtil.toString( args.get( 0 ) );
+        return write( StringUtil.toString( args.get( 0 ) ), true );
+    }
+
+    private MethodResult write( String text, boolean newLine ) throws LuaException
+    {
+        if( text.length() > LARGE_TRANSFER )
+        {
+            return runLarge( () -> {
+                writer.write( text, 0, text.length() );
+                if( newLine ) writer.newLine();
+                return null;
+            } );
+        }
+
         try
         {
             writer.write( text, 0, text.length() );
-            writer.newLine();
+            if( newLine ) writer.newLine();
         }
         catch( IOException e )
         {
             throw new LuaException( e.getMessage() );
         }
+        return MethodResult.of();
     }
 
     /**
@@ -7,6 +7,8 @@ package dan200.computercraft.core.apis.handles;
 
 import dan200.computercraft.api.lua.LuaException;
 import dan200.computercraft.api.lua.LuaFunction;
+import dan200.computercraft.api.lua.MethodResult;
+import dan200.computercraft.core.apis.FileTaskExecutor;
 import dan200.computercraft.core.filesystem.TrackingCloseable;
 import dan200.computercraft.shared.util.IoUtil;
 
@@ -18,7 +20,20 @@ import java.util.Optional;
 
 public abstract class HandleGeneric
 {
+    /**
+     * Reads and writes of more than this many bytes may be run with the {@link #setRunner(FileTaskExecutor.Runner)
+     * handle's runner}, rather than on the computer thread.
+     */
+    protected static final int LARGE_TRANSFER = 1 << 16;
+
     private TrackingCloseable closeable;
+    private FileTaskExecutor.Runner runner = FileTaskExecutor.Runner.BLOCKING;
+
+    /**
+     * Whether a large transfer is still running in the background. Other calls are rejected until it finishes, as the
+     * underlying channels are not thread safe.
+     */
+    private volatile boolean busy;
 
     protected HandleGeneric( @Nonnull TrackingCloseable closeable )
     {
@@ -29,6 +44,59 @@ public abstract class HandleGeneric
     {
         TrackingCloseable closeable = this.closeable;
         if( closeable == null || !closeable.isOpen() ) throw new LuaException( "attempt to use a closed file" );
+        if( busy ) throw new LuaException( "attempt to use a busy file" );
+    }
+
+    /**
+     * Set how large reads and writes are run. This is used by {@link dan200.computercraft.core.apis.FSAPI} to run them
+     * away from the computer thread.
+     *
+     * @param runner The runner to use.
+     */
+    public void setRunner( @Nonnull FileTaskExecutor.Runner runner )
+    {
+        this.runner = runner;
+    }
+
+    /**
+     * Unwrap the result of a read, so it can be returned by a {@link FileTaskExecutor.Task}.
+     *
+     * @param result The values to return.
+     * @return The single value to return, or {@code null} if there is none.
+     */
+    protected static Object first( Object[] result )
+    {
+        return result == null || result.length == 0 ? null : result[0];
+    }
+
+    /**
+     * Run a large read or write using this handle's runner. The handle may not be used until it has finished.
+     *
+     * @param task The transfer to run.
+     * @return The transfer's result, or a result which yields until it has finished.
+     * @throws LuaException If the transfer was run on this thread and failed.
+     */
+    protected final MethodResult runLarge( FileTaskExecutor.Task task ) throws LuaException
+    {
+        busy = true;
+        try
+        {
+            return runner.run( () -> {
+                try
+                {
+                    return task.run();
+                }
+                finally
+                {
+                    busy = false;
+                }
+            } );
+        }
+        catch( RuntimeException | LuaException e )
+        {
+            busy = false;
+            throw e;
+        }
     }
 
     protected final void close()
@@ -0,0 +1,180 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+
+package dan200.computercraft.core.apis.http;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import dan200.computercraft.ComputerCraft;
+import dan200.computercraft.core.apis.http.options.AddressRule;
+import dan200.computercraft.core.apis.http.options.Options;
+import dan200.computercraft.shared.util.ThreadUtils;
+
+/**
+ * Caches DNS lookups and the {@link Options} computed from {@link ComputerCraft#httpRules}, so that repeated requests to the same host neither block
+ * on the resolver nor re-run every rule.
+ *
+ * Lookups are performed on a dedicated executor, so a slow DNS server does not hold up the rest of the HTTP API. The resolver cannot be interrupted,
+ * so cancelling a request does not stop its lookup. Instead, the executor is limited to {@link #MAX_THREADS} threads, and further lookups wait in a
+ * queue until one finishes. Concurrent lookups of the same host share a single query, so one slow host only takes up one thread.
+ */
+public final class AddressCache {
+    private static final int MAX_ENTRIES = 1024;
+
+    /**
+     * The maximum time we remember that a host could not be resolved, in milliseconds.
+     */
+    private static final long NEGATIVE_TTL = 10_000;
+
+    /**
+     * The maximum number of lookups which may run at once.
+     */
+    private static final int MAX_THREADS = 16;
+
+    private static final ExecutorService RESOLVER = createResolver();
+
+    private static final Cache<String, Entry> addresses = CacheBuilder.newBuilder()
+                                                                      .concurrencyLevel(4)
+                                                                      .maximumSize(MAX_ENTRIES)
+                                                                      .build();
+
+    private static final Cache<OptionsKey, Options> options = CacheBuilder.newBuilder()
+                                                                          .concurrencyLevel(4)
+                                                                          .maximumSize(MAX_ENTRIES)
+                                                                          .build();
+
+    private AddressCache() {
+    }
+
+    /**
+     * Resolve a host without blocking.
+     *
+     * @param host The host to resolve.
+     * @return A future which completes with the resolved address, or {@code null} if the host could not be resolved. This will already be complete
+     *     if the address was cached.
+     */
+    public static CompletableFuture<InetAddress> resolve(@Nonnull String host) {
+        long ttl = ComputerCraft.httpDnsCacheTtl;
+        if (ttl <= 0) {
+            return CompletableFuture.supplyAsync(() -> lookup(host), RESOLVER);
+        }
+
+        Entry created = new Entry();
+        Entry entry = addresses.asMap()
+                               .compute(host.toLowerCase(Locale.ROOT), (k, existing) -> existing != null && !existing.isExpired() ? existing : created);
+        if (entry == created) {
+            RESOLVER.execute(() -> created.complete(lookup(host), ttl));
+        }
+        return entry.address;
+    }
+
+    /**
+     * Get the options for a specific address. This is equivalent to {@link AddressRule#apply(Iterable, String, InetSocketAddress)}, but remembers the
+     * result until the rules are changed.
+     *
+     * @param host The host we are connecting to.
+     * @param address The resolved address of this host.
+     * @return The options for this host.
+     */
+    public static Options getOptions(@Nonnull String host, @Nonnull InetSocketAddress address) {
+        List<AddressRule> rules = ComputerCraft.httpRules;
+        OptionsKey key = new OptionsKey(rules, host, address);
+
+        Options result = options.getIfPresent(key);
+        if (result == null) {
+            result = AddressRule.apply(rules, host, address);
+            options.put(key, result);
+        }
+        return result;
+    }
+
+    private static ExecutorService createResolver() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_THREADS,
+                                                             MAX_THREADS,
+                                                             60L,
+                                                             TimeUnit.SECONDS,
+                                                             new LinkedBlockingQueue<>(),
+                                                             ThreadUtils.builder("DNS")
+                                                                        .setPriority(Thread.MIN_PRIORITY + (Thread.NORM_PRIORITY - Thread.MIN_PRIORITY) / 2)
+                                                                        .build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    public static void reset() {
+        addresses.invalidateAll();
+        options.invalidateAll();
+    }
+
+    private static InetAddress lookup(String host) {
+        try {
+            return InetAddress.getByName(host);
+        } catch (UnknownHostException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static final class Entry {
+        final CompletableFuture<InetAddress> address = new CompletableFuture<>();
+        private volatile boolean done;
+        private volatile long expiry;
+
+        void complete(InetAddress result, long ttl) {
+            this.expiry = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(result == null ? Math.min(ttl, NEGATIVE_TTL) : ttl);
+            this.done = true;
+            this.address.complete(result);
+        }
+
+        boolean isExpired() {
+            return this.done && System.nanoTime() - this.expiry >= 0;
+        }
+    }
+
+    private static final class OptionsKey {
+        private final List<AddressRule> rules;
+        private final String host;
+        private final InetSocketAddress address;
+
+        OptionsKey(List<AddressRule> rules, String host, InetSocketAddress address) {
+            this.rules = rules;
+            this.host = host;
+            this.address = address;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof OptionsKey)) {
+                return false;
+            }
+
+            OptionsKey other = (OptionsKey) o;
+            // Rules are replaced wholesale when the config is reloaded, so an identity check is enough to invalidate old entries.
+            return this.rules == other.rules && this.host.equals(other.host) && this.address.equals(other.address);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(this.rules), this.host, this.address);
+        }
+    }
+}
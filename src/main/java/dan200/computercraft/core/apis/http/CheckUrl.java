@@ -13,9 +13,9 @@ import java.util.concurrent.Future;
 import dan200.computercraft.core.apis.IAPIEnvironment;
 
 /**
- * Checks a URL using {@link NetworkUtils#getAddress(String, int, boolean)}}
+ * Checks a URL using {@link NetworkUtils#getAddressAsync(IAPIEnvironment, URI, boolean)}
  *
- * This requires a DNS lookup, and so needs to occur off-thread.
+ * This may require a DNS lookup, and so needs to occur off-thread.
  */
 public class CheckUrl extends Resource<CheckUrl> {
     private static final String EVENT = "http_check";
@@ -35,18 +35,28 @@ public class CheckUrl extends Resource<CheckUrl> {
         if (this.isClosed()) {
             return;
         }
-        this.future = NetworkUtils.EXECUTOR.submit(this::doRun);
+        boolean ssl = this.uri.getScheme()
+                              .equalsIgnoreCase("https");
+        this.future = NetworkUtils.getAddressAsync(this.environment, this.uri, ssl)
+                                  .thenAcceptAsync(this::doRun, NetworkUtils.EXECUTOR)
+                                  .exceptionally(e -> {
+                                      if (this.tryClose()) {
+                                          this.environment.queueEvent(EVENT, this.address, false, "Could not resolve host");
+                                      }
+                                      return null;
+                                  });
         this.checkClosed();
     }
 
-    private void doRun() {
+    private void doRun(InetSocketAddress netAddress) {
         if (this.isClosed()) {
             return;
         }
 
         try {
-            boolean ssl = uri.getScheme().equalsIgnoreCase( "https" );
-            InetSocketAddress netAddress = NetworkUtils.getAddress( uri, ssl );
+            if (netAddress == null) {
+                throw new HTTPRequestException("Unknown host");
+            }
             NetworkUtils.getOptions( uri.getHost(), netAddress );
 
             if (this.tryClose()) {
@@ -6,9 +6,11 @@
 
 package dan200.computercraft.core.apis.http;
 
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.security.KeyStore;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -18,9 +20,10 @@ import javax.net.ssl.SSLException;
 import javax.net.ssl.TrustManagerFactory;
 
 import dan200.computercraft.ComputerCraft;
+import dan200.computercraft.core.apis.IAPIEnvironment;
 import dan200.computercraft.core.apis.http.options.Action;
-import dan200.computercraft.core.apis.http.options.AddressRule;
 import dan200.computercraft.core.apis.http.options.Options;
+import dan200.computercraft.core.tracking.TrackingField;
 import dan200.computercraft.shared.util.ThreadUtils;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.EventLoopGroup;
@@ -122,14 +125,42 @@ public final class NetworkUtils {
      * @throws HTTPRequestException If the host is not malformed.
      */
     public static InetSocketAddress getAddress(String host, int port, boolean ssl) throws HTTPRequestException {
-        if (port < 0) {
-            port = ssl ? 443 : 80;
-        }
-        InetSocketAddress socketAddress = new InetSocketAddress(host, port);
-        if (socketAddress.isUnresolved()) {
+        InetAddress address = AddressCache.resolve(host)
+                                          .join();
+        if (address == null) {
             throw new HTTPRequestException("Unknown host");
         }
-        return socketAddress;
+        return new InetSocketAddress(address, getPort(port, ssl));
+    }
+
+    /**
+     * Create a {@link InetSocketAddress} from a {@link java.net.URI}, without blocking the current thread.
+     *
+     * The lookup is recorded against the computer's {@link TrackingField#HTTP_DNS_HITS cache hits}, {@link TrackingField#HTTP_DNS_MISSES misses} and
+     * {@link TrackingField#HTTP_DNS_TIME resolution time}.
+     *
+     * @param environment The environment of the computer performing this lookup.
+     * @param uri The URI to fetch.
+     * @param ssl Whether to connect with SSL. This is used to find the default port if not otherwise specified.
+     * @return A future which completes with the resolved address, or {@code null} if the host is unknown.
+     */
+    public static CompletableFuture<InetSocketAddress> getAddressAsync(IAPIEnvironment environment, URI uri, boolean ssl) {
+        int port = getPort(uri.getPort(), ssl);
+        long start = System.nanoTime();
+
+        CompletableFuture<InetAddress> address = AddressCache.resolve(uri.getHost());
+        if (address.isDone()) {
+            environment.addTrackingChange(TrackingField.HTTP_DNS_HITS, 1);
+        } else {
+            environment.addTrackingChange(TrackingField.HTTP_DNS_MISSES, 1);
+            address = address.whenComplete((x, e) -> environment.addTrackingChange(TrackingField.HTTP_DNS_TIME, System.nanoTime() - start));
+        }
+
+        return address.thenApply(x -> x == null ? null : new InetSocketAddress(x, port));
+    }
+
+    private static int getPort(int port, boolean ssl) {
+        return port < 0 ? (ssl ? 443 : 80) : port;
     }
 
     /**
@@ -141,7 +172,7 @@ public final class NetworkUtils {
      * @throws HTTPRequestException If the host is not permitted
      */
     public static Options getOptions(String host, InetSocketAddress address) throws HTTPRequestException {
-        Options options = AddressRule.apply( ComputerCraft.httpRules, host, address );
+        Options options = AddressCache.getOptions(host, address);
         if (options.action == Action.DENY) {
             throw new HTTPRequestException("Domain not permitted");
         }
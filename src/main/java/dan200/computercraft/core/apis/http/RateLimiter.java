@@ -0,0 +1,158 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+
+package dan200.computercraft.core.apis.http;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import dan200.computercraft.ComputerCraft;
+import dan200.computercraft.core.apis.IAPIEnvironment;
+import dan200.computercraft.core.tracking.TrackingField;
+
+/**
+ * Limits the rate at which a single computer may start HTTP work, using a pair of token buckets: one for the number of requests, and one for the
+ * number of bytes transferred.
+ *
+ * Work which exceeds the limit is queued rather than rejected, and started in order once the buckets have refilled. As each computer has its own
+ * buckets, a computer which sends more than its share only delays its own requests, leaving the shared network threads free for everyone else.
+ *
+ * @see ComputerCraft#httpRequestRate
+ * @see ComputerCraft#httpBandwidth
+ */
+public class RateLimiter {
+    private final IAPIEnvironment environment;
+    private final ArrayDeque<Pending> pending = new ArrayDeque<>();
+
+    private double requestTokens;
+    private double byteTokens;
+    private long lastRefill = System.nanoTime();
+
+    public RateLimiter(IAPIEnvironment environment) {
+        this.environment = environment;
+        this.requestTokens = getRequestCapacity();
+        this.byteTokens = getByteCapacity();
+    }
+
+    private static double getRequestCapacity() {
+        return Math.max(1, ComputerCraft.httpRequestRate);
+    }
+
+    private static double getByteCapacity() {
+        return ComputerCraft.httpBandwidth;
+    }
+
+    /**
+     * Start some work, or queue it if this computer is over its limit.
+     *
+     * @param bytes The number of bytes this work will send, if known in advance.
+     * @param task The work to run.
+     */
+    public void submit(long bytes, Runnable task) {
+        synchronized (this) {
+            this.refill();
+            if (!this.pending.isEmpty() || !this.tryAcquire(bytes)) {
+                this.pending.add(new Pending(bytes, task));
+                this.environment.addTrackingChange(TrackingField.HTTP_QUEUED, 1);
+                this.environment.addTrackingChange(TrackingField.HTTP_QUEUE_DEPTH, 1);
+                return;
+            }
+        }
+
+        task.run();
+    }
+
+    /**
+     * Record bytes which were transferred, but not known about when the work was submitted (such as the body of a response, or websocket
+     * messages). This may leave the bucket in debt, delaying later work.
+     *
+     * @param bytes The number of bytes transferred.
+     */
+    public synchronized void charge(long bytes) {
+        if (ComputerCraft.httpBandwidth > 0) {
+            this.byteTokens -= bytes;
+        }
+    }
+
+    /**
+     * Refill the buckets and start any queued work which now fits within them. This should be called every tick.
+     */
+    public void update() {
+        List<Pending> ready;
+        synchronized (this) {
+            if (this.pending.isEmpty()) {
+                return;
+            }
+
+            this.refill();
+            ready = new ArrayList<>();
+            while (!this.pending.isEmpty() && this.tryAcquire(this.pending.peek().bytes)) {
+                ready.add(this.pending.poll());
+            }
+        }
+
+        this.environment.addTrackingChange(TrackingField.HTTP_QUEUE_DEPTH, -ready.size());
+        long now = System.nanoTime();
+        for (Pending task : ready) {
+            this.environment.addTrackingChange(TrackingField.HTTP_QUEUE_TIME, now - task.queued);
+            task.task.run();
+        }
+    }
+
+    /**
+     * Whether there is no queued work waiting for {@link #update()} to start it.
+     *
+     * @return If this limiter has nothing to do.
+     */
+    public synchronized boolean isIdle() {
+        return this.pending.isEmpty();
+    }
+
+    public synchronized void shutdown() {
+        this.environment.addTrackingChange(TrackingField.HTTP_QUEUE_DEPTH, -this.pending.size());
+        this.pending.clear();
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        double elapsed = (now - this.lastRefill) / 1e9;
+        this.lastRefill = now;
+
+        this.requestTokens = Math.min(getRequestCapacity(), this.requestTokens + elapsed * ComputerCraft.httpRequestRate);
+        this.byteTokens = Math.min(getByteCapacity(), this.byteTokens + elapsed * ComputerCraft.httpBandwidth);
+    }
+
+    private boolean tryAcquire(long bytes) {
+        boolean limitRequests = ComputerCraft.httpRequestRate > 0;
+        boolean limitBytes = ComputerCraft.httpBandwidth > 0;
+
+        // We only require the byte bucket to be positive, rather than hold the whole request. Otherwise a request larger than the bucket would
+        // never be started.
+        if ((limitRequests && this.requestTokens < 1) || (limitBytes && this.byteTokens <= 0)) {
+            return false;
+        }
+
+        if (limitRequests) {
+            this.requestTokens -= 1;
+        }
+        if (limitBytes) {
+            this.byteTokens -= bytes;
+        }
+        return true;
+    }
+
+    private static final class Pending {
+        final long bytes;
+        final Runnable task;
+        final long queued = System.nanoTime();
+
+        Pending(long bytes, Runnable task) {
+            this.bytes = bytes;
+            this.task = task;
+        }
+    }
+}
@@ -9,6 +9,7 @@ package dan200.computercraft.core.apis.http;
 import java.util.Collections;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.function.IntSupplier;
 import java.util.function.Supplier;
 
@@ -73,4 +74,13 @@ public class ResourceGroup<T extends Resource<T>> {
     public synchronized void release(T resource) {
         this.resources.remove(resource);
     }
+
+    /**
+     * Run an action on every active resource in this group.
+     *
+     * @param action The action to run.
+     */
+    public void forEach(Consumer<? super T> action) {
+        this.resources.forEach(action);
+    }
 }
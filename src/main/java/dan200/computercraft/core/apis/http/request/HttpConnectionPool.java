@@ -0,0 +1,246 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+
+package dan200.computercraft.core.apis.http.request;
+
+import java.net.InetSocketAddress;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import dan200.computercraft.ComputerCraft;
+import dan200.computercraft.core.apis.http.NetworkUtils;
+import dan200.computercraft.core.apis.http.options.Options;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.pool.ChannelHealthChecker;
+import io.netty.channel.pool.ChannelPool;
+import io.netty.channel.pool.ChannelPoolHandler;
+import io.netty.channel.pool.FixedChannelPool;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpContentDecompressor;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.Future;
+
+/**
+ * Keeps connections to recently contacted hosts alive, so that repeated requests to the same server can skip the TCP and TLS handshake.
+ *
+ * Pools are keyed on everything which is used to construct a fresh connection (the host, resolved address, whether we use SSL, and the timeout from
+ * the matching {@link dan200.computercraft.core.apis.http.options.AddressRule}), so a pooled channel is always equivalent to a new one.
+ */
+public final class HttpConnectionPool {
+    private static final AttributeKey<ChannelPool> POOL = AttributeKey.valueOf("computercraft:pool");
+
+    private static final String TIMEOUT_HANDLER = "computercraft:timeout";
+    private static final String REQUEST_HANDLER = "computercraft:request";
+    private static final String IDLE_HANDLER = "computercraft:idle";
+
+    /**
+     * How long to wait for a free connection when the host has no timeout of its own, in milliseconds. Without this, a request would wait forever
+     * for a pool whose connections are all stuck.
+     */
+    private static final int DEFAULT_ACQUIRE_TIMEOUT = 30_000;
+
+    private static final ConcurrentMap<Key, ChannelPool> pools = new ConcurrentHashMap<>();
+
+    private HttpConnectionPool() {
+    }
+
+    /**
+     * Whether connections should be pooled at all.
+     *
+     * @return If connection pooling is enabled.
+     */
+    public static boolean isEnabled() {
+        return ComputerCraft.httpMaxConnectionsPerHost > 0;
+    }
+
+    /**
+     * Acquire a connected channel for this address, either reusing an idle one or opening a new connection.
+     *
+     * @param host The host we are connecting to, used for SNI.
+     * @param address The resolved address of the host.
+     * @param sslContext The SSL context to connect with, or {@code null} if this is a plain HTTP connection.
+     * @param options The options for this host.
+     * @return A future which will complete with the acquired channel.
+     */
+    static Future<Channel> acquire(String host, InetSocketAddress address, @Nullable SslContext sslContext, Options options) {
+        Key key = new Key(host, address, sslContext != null, options.timeout);
+        return pools.computeIfAbsent(key, k -> create(k, sslContext))
+                    .acquire();
+    }
+
+    /**
+     * Attach a request to an acquired channel.
+     *
+     * @param channel The channel returned from {@link #acquire(String, InetSocketAddress, SslContext, Options)}.
+     * @param handler The handler for this request.
+     * @param options The options for this host.
+     */
+    static void attach(Channel channel, HttpRequestHandler handler, Options options) {
+        ChannelPipeline pipeline = channel.pipeline();
+        if (options.timeout > 0) {
+            pipeline.addLast(TIMEOUT_HANDLER, new ReadTimeoutHandler(options.timeout, TimeUnit.MILLISECONDS));
+        }
+        pipeline.addLast(REQUEST_HANDLER, handler);
+    }
+
+    /**
+     * Return a channel to its pool. This must be called exactly once for every acquired channel.
+     *
+     * @param channel The channel to release.
+     * @param reuse Whether this channel can be reused. This should only be true if the response has been read in full and the server allows the
+     *     connection to be kept alive.
+     */
+    static void release(Channel channel, boolean reuse) {
+        ChannelPipeline pipeline = channel.pipeline();
+        if (pipeline.context(TIMEOUT_HANDLER) != null) {
+            pipeline.remove(TIMEOUT_HANDLER);
+        }
+        if (pipeline.context(REQUEST_HANDLER) != null) {
+            pipeline.remove(REQUEST_HANDLER);
+        }
+
+        ChannelPool pool = channel.attr(POOL)
+                                  .get();
+        if (reuse) {
+            pool.release(channel);
+        } else {
+            // Wait for the channel to close, so the health check on release discards it rather than returning it to the pool.
+            channel.close()
+                   .addListener(x -> pool.release(channel));
+        }
+    }
+
+    /**
+     * Close every pooled connection.
+     */
+    public static void reset() {
+        for (ChannelPool pool : pools.values()) {
+            pool.close();
+        }
+        pools.clear();
+    }
+
+    private static ChannelPool create(Key key, @Nullable SslContext sslContext) {
+        Bootstrap bootstrap = new Bootstrap().group(NetworkUtils.LOOP_GROUP)
+                                                              .channelFactory(NioSocketChannel::new)
+                                                              .remoteAddress(key.address);
+        if (key.timeout > 0) {
+            bootstrap.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, key.timeout);
+        }
+
+        Handler handler = new Handler(key, sslContext);
+        FixedChannelPool pool = new FixedChannelPool(bootstrap,
+                                                     handler,
+                                                     ChannelHealthChecker.ACTIVE,
+                                                     FixedChannelPool.AcquireTimeoutAction.FAIL,
+                                                     key.timeout > 0 ? key.timeout : DEFAULT_ACQUIRE_TIMEOUT,
+                                                     ComputerCraft.httpMaxConnectionsPerHost,
+                                                     Integer.MAX_VALUE,
+                                                     true);
+        handler.pool = pool;
+        return pool;
+    }
+
+    private static final class Handler implements ChannelPoolHandler {
+        private final Key key;
+        private final SslContext sslContext;
+        ChannelPool pool;
+
+        Handler(Key key, @Nullable SslContext sslContext) {
+            this.key = key;
+            this.sslContext = sslContext;
+        }
+
+        @Override
+        public void channelCreated(Channel ch) {
+            ch.attr(POOL)
+              .set(this.pool);
+
+            ChannelPipeline p = ch.pipeline();
+            if (this.sslContext != null) {
+                p.addLast(this.sslContext.newHandler(ch.alloc(), this.key.host, this.key.address.getPort()));
+            }
+            p.addLast(new HttpClientCodec(), new HttpContentDecompressor());
+        }
+
+        @Override
+        public void channelAcquired(Channel ch) {
+            if (ch.pipeline()
+                  .context(IDLE_HANDLER) != null) {
+                ch.pipeline()
+                  .remove(IDLE_HANDLER);
+            }
+        }
+
+        @Override
+        public void channelReleased(Channel ch) {
+            if (ch.isActive() && ComputerCraft.httpConnectionIdleTimeout > 0) {
+                ch.pipeline()
+                  .addLast(IDLE_HANDLER, new IdleCloser(ComputerCraft.httpConnectionIdleTimeout));
+            }
+        }
+    }
+
+    /**
+     * Closes a pooled channel once it has been idle for too long.
+     */
+    private static final class IdleCloser extends IdleStateHandler {
+        IdleCloser(int timeout) {
+            super(0, 0, timeout, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        protected void channelIdle(ChannelHandlerContext ctx, IdleStateEvent evt) {
+            ctx.close();
+        }
+    }
+
+    private static final class Key {
+        final String host;
+        final InetSocketAddress address;
+        final boolean ssl;
+        final int timeout;
+
+        Key(@Nonnull String host, @Nonnull InetSocketAddress address, boolean ssl, int timeout) {
+            this.host = host;
+            this.address = address;
+            this.ssl = ssl;
+            this.timeout = timeout;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) o;
+            return this.ssl == other.ssl && this.timeout == other.timeout && this.host.equals(other.host) && this.address.equals(other.address);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.host, this.address, this.ssl, this.timeout);
+        }
+    }
+}
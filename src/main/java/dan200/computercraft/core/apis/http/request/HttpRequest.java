@@ -9,17 +9,25 @@ package dan200.computercraft.core.apis.http.request;
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import dan200.computercraft.ComputerCraft;
 import dan200.computercraft.core.apis.IAPIEnvironment;
+import dan200.computercraft.core.apis.handles.ArrayByteChannel;
+import dan200.computercraft.core.apis.handles.BinaryReadableHandle;
+import dan200.computercraft.core.apis.handles.EncodedReadableHandle;
+import dan200.computercraft.core.apis.handles.HandleGeneric;
 import dan200.computercraft.core.apis.http.HTTPRequestException;
 import dan200.computercraft.core.apis.http.NetworkUtils;
+import dan200.computercraft.core.apis.http.RateLimiter;
 import dan200.computercraft.core.apis.http.Resource;
 import dan200.computercraft.core.apis.http.ResourceGroup;
 import dan200.computercraft.core.apis.http.options.Options;
@@ -27,6 +35,7 @@ import dan200.computercraft.core.tracking.TrackingField;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
@@ -42,6 +51,7 @@ import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.timeout.ReadTimeoutException;
 import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.util.concurrent.FutureListener;
 
 /**
  * Represents an in-progress HTTP request.
@@ -52,19 +62,23 @@ public class HttpRequest extends Resource<HttpRequest> {
 
     private static final int MAX_REDIRECTS = 16;
     final AtomicInteger redirects;
+    private final AtomicBoolean retried = new AtomicBoolean(false);
     private final IAPIEnvironment environment;
+    private final RateLimiter rateLimiter;
     private final String address;
     private final ByteBuf postBuffer;
     private final HttpHeaders headers;
     private final boolean binary;
     private Future<?> executorFuture;
     private ChannelFuture connectFuture;
+    private io.netty.util.concurrent.Future<Channel> acquireFuture;
     private HttpRequestHandler currentRequest;
 
-    public HttpRequest(ResourceGroup<HttpRequest> limiter, IAPIEnvironment environment, String address, String postText, HttpHeaders headers,
-                       boolean binary, boolean followRedirects) {
+    public HttpRequest(ResourceGroup<HttpRequest> limiter, IAPIEnvironment environment, RateLimiter rateLimiter, String address, String postText,
+                       HttpHeaders headers, boolean binary, boolean followRedirects) {
         super(limiter);
         this.environment = environment;
+        this.rateLimiter = rateLimiter;
         this.address = address;
         this.postBuffer = postText != null ? Unpooled.wrappedBuffer(postText.getBytes(StandardCharsets.UTF_8)) : Unpooled.buffer(0);
         this.headers = headers;
@@ -114,32 +128,61 @@ public class HttpRequest extends Resource<HttpRequest> {
         return this.environment;
     }
 
+    public RateLimiter rateLimiter() {
+        return this.rateLimiter;
+    }
+
     public void request(URI uri, HttpMethod method) {
+        this.request(uri, method, HttpConnectionPool.isEnabled());
+    }
+
+    /**
+     * Send this request again on a fresh connection, after a pooled connection was closed before the server responded.
+     *
+     * @param uri The URI we were requesting.
+     * @param method The method we were requesting with.
+     * @return Whether the request will be retried. Requests are only retried once.
+     */
+    boolean retry(URI uri, HttpMethod method) {
+        if (this.isClosed() || this.retried.getAndSet(true)) {
+            return false;
+        }
+
+        this.request(uri, method, false);
+        return true;
+    }
+
+    private void request(URI uri, HttpMethod method, boolean pooled) {
         if (this.isClosed()) {
             return;
         }
-        this.executorFuture = NetworkUtils.EXECUTOR.submit(() -> this.doRequest(uri, method));
+        boolean ssl = uri.getScheme()
+                         .equalsIgnoreCase("https");
+        this.executorFuture = NetworkUtils.getAddressAsync(this.environment, uri, ssl)
+                                          .thenAcceptAsync(address -> this.doRequest(uri, method, ssl, address, pooled), NetworkUtils.EXECUTOR)
+                                          .exceptionally(e -> {
+                                              if (ComputerCraft.logPeripheralErrors) {
+                                                  ComputerCraft.log.error("Error in HTTP request", e);
+                                              }
+                                              this.failure("Could not connect");
+                                              return null;
+                                          });
         this.checkClosed();
     }
 
-    private void doRequest(URI uri, HttpMethod method) {
+    private void doRequest(URI uri, HttpMethod method, boolean ssl, InetSocketAddress socketAddress, boolean pooled) {
         // If we're cancelled, abort.
         if (this.isClosed()) {
             return;
         }
 
         try {
-            boolean ssl = uri.getScheme()
-                             .equalsIgnoreCase("https");
-            InetSocketAddress socketAddress = NetworkUtils.getAddress(uri, ssl);
+            if (socketAddress == null) {
+                throw new HTTPRequestException("Unknown host");
+            }
             Options options = NetworkUtils.getOptions(uri.getHost(), socketAddress);
             SslContext sslContext = ssl ? NetworkUtils.getSslContext() : null;
 
-            // getAddress may have a slight delay, so let's perform another cancellation check.
-            if (this.isClosed()) {
-                return;
-            }
-
             long requestBody = getHeaderSize(this.headers) + this.postBuffer.capacity();
             if (options.maxUpload != 0 && requestBody > options.maxUpload) {
                 this.failure("Request body is too large");
@@ -150,7 +193,31 @@ public class HttpRequest extends Resource<HttpRequest> {
             this.environment.addTrackingChange(TrackingField.HTTP_REQUESTS, 1);
             this.environment.addTrackingChange(TrackingField.HTTP_UPLOAD, requestBody);
 
-            HttpRequestHandler handler = this.currentRequest = new HttpRequestHandler(this, uri, method, options);
+            // If we've an up-to-date copy of this response, serve it without going to the network. Stale copies are sent along with the request,
+            // so the server can tell us if they're still valid.
+            boolean cacheable = HttpResponseCache.isCacheable(method, this.headers, this.postBuffer);
+            HttpResponseCache.Entry cached = cacheable ? HttpResponseCache.get(uri, this.headers) : null;
+            if (cached != null && cached.isFresh()) {
+                this.respond(cached, options);
+                return;
+            }
+
+            if (pooled) {
+                HttpRequestHandler handler = this.currentRequest = new HttpRequestHandler(this, uri, method, options, true, cacheable, cached);
+                this.acquireFuture = HttpConnectionPool.acquire(uri.getHost(), socketAddress, sslContext, options)
+                                                       .addListener((FutureListener<Channel>) c -> {
+                                                           if (c.isSuccess()) {
+                                                               HttpConnectionPool.attach(c.getNow(), handler, options);
+                                                           } else {
+                                                               this.failure(c.cause());
+                                                           }
+                                                       });
+
+                this.checkClosed();
+                return;
+            }
+
+            HttpRequestHandler handler = this.currentRequest = new HttpRequestHandler(this, uri, method, options, false, cacheable, cached);
             this.connectFuture = new Bootstrap().group(NetworkUtils.LOOP_GROUP)
                                                 .channelFactory(NioSocketChannel::new)
                                                 .handler(new ChannelInitializer<SocketChannel>() {
@@ -217,7 +284,7 @@ public class HttpRequest extends Resource<HttpRequest> {
             message = cause.getMessage();
         } else if (cause instanceof TooLongFrameException) {
             message = "Response is too large";
-        } else if (cause instanceof ReadTimeoutException || cause instanceof ConnectTimeoutException) {
+        } else if (cause instanceof ReadTimeoutException || cause instanceof ConnectTimeoutException || cause instanceof TimeoutException) {
             message = "Timed out";
         } else {
             message = "Could not connect";
@@ -232,6 +299,45 @@ public class HttpRequest extends Resource<HttpRequest> {
         }
     }
 
+    /**
+     * Queue a response to this request.
+     *
+     * @param code The response's status code.
+     * @param reason The response's status message.
+     * @param headers The response's headers.
+     * @param body The response's body. This is wrapped in a read-only channel, and so may be shared between requests.
+     * @param charset The charset the body is encoded with.
+     */
+    void respond(int code, String reason, Map<String, String> headers, byte[] body, Charset charset) {
+        ArrayByteChannel contents = new ArrayByteChannel(body);
+        HandleGeneric reader = this.binary ? BinaryReadableHandle.of(contents) : new EncodedReadableHandle(EncodedReadableHandle.open(contents, charset));
+        HttpResponseHandle stream = new HttpResponseHandle(reader, code, reason, headers);
+
+        if (code >= 200 && code < 400) {
+            this.success(stream);
+        } else {
+            this.failure(reason, stream);
+        }
+    }
+
+    /**
+     * Queue a response from the {@link HttpResponseCache}. The address rules have already been checked by this point, but the download limit must
+     * be checked again, as the entry may have been stored by a request with a more generous limit.
+     *
+     * @param cached The cached response.
+     * @param options The options for this host.
+     */
+    void respond(HttpResponseCache.Entry cached, Options options) {
+        if (options.maxDownload != 0 && cached.body.length > options.maxDownload) {
+            this.failure("Response is too large");
+            return;
+        }
+
+        this.environment.addTrackingChange(TrackingField.HTTP_CACHE_HITS, 1);
+        this.environment.addTrackingChange(TrackingField.HTTP_CACHE_SAVED, cached.body.length);
+        this.respond(cached.code, cached.reason, cached.headerMap, cached.body, cached.charset);
+    }
+
     void success(HttpResponseHandle object) {
         if (this.tryClose()) {
             this.environment.queueEvent(SUCCESS_EVENT, this.address, object);
@@ -244,6 +350,7 @@ public class HttpRequest extends Resource<HttpRequest> {
 
         this.executorFuture = closeFuture(this.executorFuture);
         this.connectFuture = closeChannel(this.connectFuture);
+        this.acquireFuture = closeFuture(this.acquireFuture);
         this.currentRequest = closeCloseable(this.currentRequest);
     }
 
@@ -6,20 +6,19 @@
 package dan200.computercraft.core.apis.http.request;
 
 import dan200.computercraft.ComputerCraft;
-import dan200.computercraft.core.apis.handles.ArrayByteChannel;
-import dan200.computercraft.core.apis.handles.BinaryReadableHandle;
-import dan200.computercraft.core.apis.handles.EncodedReadableHandle;
-import dan200.computercraft.core.apis.handles.HandleGeneric;
 import dan200.computercraft.core.apis.http.HTTPRequestException;
 import dan200.computercraft.core.apis.http.NetworkUtils;
 import dan200.computercraft.core.apis.http.options.Options;
 import dan200.computercraft.core.tracking.TrackingField;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.*;
+import io.netty.handler.timeout.ReadTimeoutException;
 
+import javax.annotation.Nullable;
 import java.io.Closeable;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -27,6 +26,7 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static dan200.computercraft.core.apis.http.request.HttpRequest.getHeaderSize;
 
@@ -40,24 +40,75 @@ public final class HttpRequestHandler extends SimpleChannelInboundHandler<HttpOb
     private static final byte[] EMPTY_BYTES = new byte[0];
 
     private final HttpRequest request;
-    private boolean closed = false;
+    private volatile boolean closed = false;
 
     private final URI uri;
     private final HttpMethod method;
     private final Options options;
 
+    /**
+     * Whether this request is running on a channel acquired from {@link HttpConnectionPool}, rather than one we opened ourselves.
+     */
+    private final boolean pooled;
+    private final AtomicBoolean released = new AtomicBoolean( false );
+    private volatile Channel channel;
+
+    /**
+     * Whether we have received any part of the response. Until then, a failure on a pooled channel is most likely because the server closed an
+     * idle connection, and so the request can be safely retried.
+     */
+    private volatile boolean responseStarted;
+    private volatile boolean retrying;
+
+    /**
+     * Whether this response may be stored in the {@link HttpResponseCache}.
+     */
+    private final boolean cacheable;
+
+    /**
+     * The cached response we are revalidating, if any.
+     */
+    private final HttpResponseCache.Entry cached;
+
     private Charset responseCharset;
     private final HttpHeaders responseHeaders = new DefaultHttpHeaders();
     private HttpResponseStatus responseStatus;
     private CompositeByteBuf responseBody;
+    private boolean responseKeepAlive;
 
-    HttpRequestHandler( HttpRequest request, URI uri, HttpMethod method, Options options )
+    HttpRequestHandler( HttpRequest request, URI uri, HttpMethod method, Options options, boolean pooled, boolean cacheable, @Nullable HttpResponseCache.Entry cached )
     {
         this.request = request;
 
         this.uri = uri;
         this.method = method;
         this.options = options;
+        this.pooled = pooled;
+        this.cacheable = cacheable;
+        this.cached = cached;
+    }
+
+    @Override
+    public void handlerAdded( ChannelHandlerContext ctx ) throws Exception
+    {
+        super.handlerAdded( ctx );
+        channel = ctx.channel();
+
+        // Pooled channels are already connected, so we'll never receive channelActive. Instead send the request
+        // immediately (or give the channel straight back if we were cancelled while waiting for it).
+        if( !pooled ) return;
+        if( closed || request.checkClosed() )
+        {
+            releaseChannel( false );
+        }
+        else if( ctx.channel().isActive() )
+        {
+            sendRequest( ctx );
+        }
+        else if( !tryRetry() )
+        {
+            request.failure( "Could not connect" );
+        }
     }
 
     @Override
@@ -65,6 +116,12 @@ public final class HttpRequestHandler extends SimpleChannelInboundHandler<HttpOb
     {
         if( request.checkClosed() ) return;
 
+        sendRequest( ctx );
+        super.channelActive( ctx );
+    }
+
+    private void sendRequest( ChannelHandlerContext ctx )
+    {
         ByteBuf body = request.body();
         body.resetReaderIndex().retain();
 
@@ -81,23 +138,49 @@ public final class HttpRequestHandler extends SimpleChannelInboundHandler<HttpOb
             request.headers().set( HttpHeaderNames.ACCEPT_CHARSET, "UTF-8" );
         }
         request.headers().set( HttpHeaderNames.HOST, uri.getPort() < 0 ? uri.getHost() : uri.getHost() + ":" + uri.getPort() );
-        request.headers().set( HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE );
+        if( cached != null ) cached.addValidators( request.headers() );
+        request.headers().set( HttpHeaderNames.CONNECTION, pooled ? HttpHeaderValues.KEEP_ALIVE : HttpHeaderValues.CLOSE );
+
+        ctx.channel().writeAndFlush( request ).addListener( f -> {
+            if( !f.isSuccess() && !tryRetry() ) this.request.failure( f.cause() );
+        } );
+    }
 
-        ctx.channel().writeAndFlush( request );
+    /**
+     * Retry this request on a fresh connection if a pooled connection failed before the server sent anything back. This is only done for
+     * idempotent requests, as we cannot tell whether the server acted on the original.
+     *
+     * @return Whether the request is being retried. If not, the caller should report the failure as normal.
+     */
+    private boolean tryRetry()
+    {
+        if( retrying ) return true;
+        if( !pooled || closed || responseStarted || !isIdempotent( method ) ) return false;
 
-        super.channelActive( ctx );
+        closed = true;
+        releaseChannel( false );
+        if( !request.retry( uri, method ) ) return false;
+
+        retrying = true;
+        return true;
+    }
+
+    private static boolean isIdempotent( HttpMethod method )
+    {
+        return method.equals( HttpMethod.GET ) || method.equals( HttpMethod.HEAD ) || method.equals( HttpMethod.OPTIONS );
     }
 
     @Override
     public void channelInactive( ChannelHandlerContext ctx ) throws Exception
     {
-        if( !closed ) request.failure( "Could not connect" );
+        if( !closed && !tryRetry() ) request.failure( "Could not connect" );
         super.channelInactive( ctx );
     }
 
     @Override
     public void channelRead0( ChannelHandlerContext ctx, HttpObject message )
     {
+        responseStarted = true;
         if( closed || request.checkClosed() ) return;
 
         if( message instanceof HttpResponse )
@@ -115,6 +198,7 @@ public final class HttpRequestHandler extends SimpleChannelInboundHandler<HttpOb
                     // becomes inactive or disposed.
                     closed = true;
                     ctx.close();
+                    releaseChannel( false );
 
                     try
                     {
@@ -134,6 +218,7 @@ public final class HttpRequestHandler extends SimpleChannelInboundHandler<HttpOb
 
             responseCharset = HttpUtil.getCharset( response, StandardCharsets.UTF_8 );
             responseStatus = response.status();
+            responseKeepAlive = HttpUtil.isKeepAlive( response );
             responseHeaders.add( response.headers() );
         }
 
@@ -154,6 +239,7 @@ public final class HttpRequestHandler extends SimpleChannelInboundHandler<HttpOb
                 {
                     closed = true;
                     ctx.close();
+                    releaseChannel( false );
 
                     request.failure( "Response is too large" );
                     return;
@@ -173,7 +259,17 @@ public final class HttpRequestHandler extends SimpleChannelInboundHandler<HttpOb
                     responseHeaders.set( HttpHeaderNames.CONTENT_LENGTH, responseBody.readableBytes() );
                 }
 
-                ctx.close();
+                if( pooled && responseKeepAlive )
+                {
+                    // The response has been read in full, so the connection can be handed to the next request.
+                    closed = true;
+                    releaseChannel( true );
+                }
+                else
+                {
+                    ctx.close();
+                }
+
                 sendResponse();
             }
         }
@@ -182,6 +278,9 @@ public final class HttpRequestHandler extends SimpleChannelInboundHandler<HttpOb
     @Override
     public void exceptionCaught( ChannelHandlerContext ctx, Throwable cause )
     {
+        // Timeouts are not retried, as the server may simply be slow.
+        if( !(cause instanceof ReadTimeoutException) && tryRetry() ) return;
+
         if( ComputerCraft.logPeripheralErrors ) ComputerCraft.log.error( "Error handling HTTP response", cause );
         request.failure( cause );
     }
@@ -192,33 +291,43 @@ public final class HttpRequestHandler extends SimpleChannelInboundHandler<HttpOb
         CompositeByteBuf body = responseBody;
         byte[] bytes = body == null ? EMPTY_BYTES : NetworkUtils.toBytes( body );
 
-        // Decode the headers
+        // Fire off a stats event
         HttpResponseStatus status = responseStatus;
-        Map<String, String> headers = new HashMap<>();
-        for( Map.Entry<String, String> header : responseHeaders )
+        long downloaded = getHeaderSize( responseHeaders ) + bytes.length;
+        request.environment().addTrackingChange( TrackingField.HTTP_DOWNLOAD, downloaded );
+        request.rateLimiter().charge( downloaded );
+
+        if( cached != null && status.code() == HttpResponseStatus.NOT_MODIFIED.code() )
         {
-            String existing = headers.get( header.getKey() );
-            headers.put( header.getKey(), existing == null ? header.getValue() : existing + "," + header.getValue() );
+            // Our copy is still valid, so serve that instead.
+            request.respond( HttpResponseCache.revalidated( uri, cached, responseHeaders ), options );
+            return;
         }
 
-        // Fire off a stats event
-        request.environment().addTrackingChange( TrackingField.HTTP_DOWNLOAD, getHeaderSize( responseHeaders ) + bytes.length );
-
-        // Prepare to queue an event
-        ArrayByteChannel contents = new ArrayByteChannel( bytes );
-        HandleGeneric reader = request.isBinary()
-            ? BinaryReadableHandle.of( contents )
-            : new EncodedReadableHandle( EncodedReadableHandle.open( contents, responseCharset ) );
-        HttpResponseHandle stream = new HttpResponseHandle( reader, status.code(), status.reasonPhrase(), headers );
-
-        if( status.code() >= 200 && status.code() < 400 )
+        if( cacheable )
         {
-            request.success( stream );
+            request.environment().addTrackingChange( TrackingField.HTTP_CACHE_MISSES, 1 );
+            HttpResponseCache.put( uri, request.headers(), status.code(), status.reasonPhrase(), responseHeaders, bytes, responseCharset );
         }
-        else
+
+        request.respond( status.code(), status.reasonPhrase(), getHeaderMap( responseHeaders ), bytes, responseCharset );
+    }
+
+    /**
+     * Decode response headers into the form returned to Lua. Headers with multiple values are combined with a comma.
+     *
+     * @param responseHeaders The headers to decode.
+     * @return The decoded headers.
+     */
+    static Map<String, String> getHeaderMap( HttpHeaders responseHeaders )
+    {
+        Map<String, String> headers = new HashMap<>();
+        for( Map.Entry<String, String> header : responseHeaders )
         {
-            request.failure( status.reasonPhrase(), stream );
+            String existing = headers.get( header.getKey() );
+            headers.put( header.getKey(), existing == null ? header.getValue() : existing + "," + header.getValue() );
         }
+        return headers;
     }
 
     /**
@@ -246,10 +355,24 @@ public final class HttpRequestHandler extends SimpleChannelInboundHandler<HttpOb
         }
     }
 
+    /**
+     * Return a pooled channel to the {@link HttpConnectionPool}. This is a no-op for channels we opened ourselves, as those are closed by
+     * {@link HttpRequest}.
+     *
+     * @param reuse Whether the channel may be reused by another request.
+     */
+    private void releaseChannel( boolean reuse )
+    {
+        Channel channel = this.channel;
+        if( !pooled || channel == null || !released.compareAndSet( false, true ) ) return;
+        HttpConnectionPool.release( channel, reuse );
+    }
+
     @Override
     public void close()
     {
         closed = true;
+        releaseChannel( false );
         if( responseBody != null )
         {
             responseBody.release();
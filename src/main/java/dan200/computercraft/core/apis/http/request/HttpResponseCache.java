@@ -0,0 +1,323 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+
+package dan200.computercraft.core.apis.http.request;
+
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import dan200.computercraft.ComputerCraft;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+
+/**
+ * A cache of HTTP responses shared between all computers on the server, allowing identical downloads to be served without going to the network.
+ *
+ * This follows the rules for a shared cache: responses marked as {@code private} or {@code no-store} are never stored, requests with credentials are
+ * never served from the cache, and stale entries are revalidated with a conditional request using their {@code ETag} or {@code Last-Modified}
+ * header. Response bodies are stored once and exposed to each computer through a read-only view.
+ *
+ * @see ComputerCraft#httpResponseCacheSize
+ */
+public final class HttpResponseCache {
+    /**
+     * The maximum proportion of the cache a single response can occupy.
+     */
+    private static final int MAX_ENTRY_FRACTION = 16;
+
+    /**
+     * The current cache, and the size it was built with. This is rebuilt whenever {@link ComputerCraft#httpResponseCacheSize} changes, as Guava
+     * caches cannot be resized.
+     */
+    private static volatile Cache<String, Entry> cache;
+    private static volatile long cacheSize = -1;
+
+    private HttpResponseCache() {
+    }
+
+    public static boolean isEnabled() {
+        return ComputerCraft.httpResponseCacheSize > 0;
+    }
+
+    /**
+     * Determine whether a request may use the cache at all.
+     *
+     * @param method The request's method.
+     * @param headers The request's headers.
+     * @param body The request's body.
+     * @return Whether this request can be served from or stored in the cache.
+     */
+    static boolean isCacheable(HttpMethod method, HttpHeaders headers, ByteBuf body) {
+        if (!isEnabled() || !method.equals(HttpMethod.GET) || body.capacity() != 0) {
+            return false;
+        }
+
+        // Responses to authenticated requests may be specific to that user, and requests which already carry validators expect to see the server's
+        // response themselves.
+        return !headers.contains(HttpHeaderNames.AUTHORIZATION) && !headers.contains(HttpHeaderNames.COOKIE) && !headers.contains(HttpHeaderNames.IF_NONE_MATCH) && !headers.contains(
+            HttpHeaderNames.IF_MODIFIED_SINCE) && !hasDirective(headers, "no-store");
+    }
+
+    /**
+     * Find a cached response for this request.
+     *
+     * @param uri The URI being requested.
+     * @param headers The request's headers.
+     * @return The cached response, or {@code null} if none is available. This may be stale, in which case it should be revalidated.
+     */
+    @Nullable
+    static Entry get(URI uri, HttpHeaders headers) {
+        if (hasDirective(headers, "no-cache") || headers.contains(HttpHeaderNames.PRAGMA, "no-cache", true)) {
+            return null;
+        }
+
+        Entry entry = getCache().getIfPresent(uri.toString());
+        return entry != null && entry.matches(headers) ? entry : null;
+    }
+
+    /**
+     * Store a response in the cache, if it is permitted to be stored.
+     *
+     * @param uri The URI which was requested.
+     * @param requestHeaders The request's headers.
+     * @param code The response's status code.
+     * @param reason The response's status message.
+     * @param headers The response's headers.
+     * @param body The response's body.
+     * @param charset The charset the body is encoded with.
+     */
+    static void put(URI uri, HttpHeaders requestHeaders, int code, String reason, HttpHeaders headers, byte[] body, Charset charset) {
+        if (code != 200 || body.length > ComputerCraft.httpResponseCacheSize / MAX_ENTRY_FRACTION) {
+            return;
+        }
+        if (hasDirective(headers, "no-store") || hasDirective(headers, "private")) {
+            return;
+        }
+
+        Map<String, String> vary = getVary(requestHeaders, headers);
+        if (vary == null) {
+            return;
+        }
+
+        long freshness = getFreshness(headers);
+        if (freshness <= 0 && !headers.contains(HttpHeaderNames.ETAG) && !headers.contains(HttpHeaderNames.LAST_MODIFIED)) {
+            return;
+        }
+
+        getCache().put(uri.toString(), new Entry(code, reason, headers, vary, body, charset, freshness));
+    }
+
+    /**
+     * Update a cached response after a {@code 304 Not Modified} response, as described in RFC 7234, section 4.3.4.
+     *
+     * @param uri The URI which was requested.
+     * @param entry The entry which was revalidated.
+     * @param headers The headers of the 304 response.
+     * @return The updated entry.
+     */
+    static Entry revalidated(URI uri, Entry entry, HttpHeaders headers) {
+        HttpHeaders merged = new DefaultHttpHeaders().add(entry.headers);
+        for (String name : headers.names()) {
+            if (!name.equalsIgnoreCase(HttpHeaderNames.CONTENT_LENGTH.toString())) {
+                merged.set(name, headers.getAll(name));
+            }
+        }
+
+        Entry updated = new Entry(entry.code, entry.reason, merged, entry.vary, entry.body, entry.charset, getFreshness(merged));
+        if (hasDirective(merged, "no-store")) {
+            getCache().invalidate(uri.toString());
+        } else {
+            getCache().put(uri.toString(), updated);
+        }
+        return updated;
+    }
+
+    public static synchronized void reset() {
+        cache = null;
+        cacheSize = -1;
+    }
+
+    private static Cache<String, Entry> getCache() {
+        Cache<String, Entry> cache = HttpResponseCache.cache;
+        long size = ComputerCraft.httpResponseCacheSize;
+        if (cache != null && cacheSize == size) {
+            return cache;
+        }
+
+        synchronized (HttpResponseCache.class) {
+            if (HttpResponseCache.cache == null || cacheSize != size) {
+                HttpResponseCache.cache = CacheBuilder.newBuilder()
+                                                      .concurrencyLevel(4)
+                                                      .maximumWeight(Math.max(0, size))
+                                                      .<String, Entry>weigher((k, v) -> v.body.length + k.length())
+                                                      .build();
+                cacheSize = size;
+            }
+            return HttpResponseCache.cache;
+        }
+    }
+
+    /**
+     * Get how long a response is fresh for, in milliseconds.
+     *
+     * @param headers The response's headers.
+     * @return How long this response is fresh for. This will be 0 if it must always be revalidated.
+     */
+    private static long getFreshness(HttpHeaders headers) {
+        if (hasDirective(headers, "no-cache")) {
+            return 0;
+        }
+
+        long age = TimeUnit.SECONDS.toMillis(Math.max(0, headers.getInt(HttpHeaderNames.AGE, 0)));
+
+        long maxAge = getDirective(headers, "s-maxage");
+        if (maxAge < 0) {
+            maxAge = getDirective(headers, "max-age");
+        }
+        if (maxAge >= 0) {
+            return TimeUnit.SECONDS.toMillis(maxAge) - age;
+        }
+
+        long expires = headers.getTimeMillis(HttpHeaderNames.EXPIRES, -1);
+        if (expires >= 0) {
+            long date = headers.getTimeMillis(HttpHeaderNames.DATE, System.currentTimeMillis());
+            return expires - date - age;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Capture the request headers this response varies on.
+     *
+     * @param requestHeaders The request's headers.
+     * @param headers The response's headers.
+     * @return The request headers named by the response's {@code Vary} header, or {@code null} if the response cannot be cached.
+     */
+    @Nullable
+    private static Map<String, String> getVary(HttpHeaders requestHeaders, HttpHeaders headers) {
+        if (!headers.contains(HttpHeaderNames.VARY)) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, String> vary = new HashMap<>();
+        for (String value : headers.getAll(HttpHeaderNames.VARY)) {
+            for (String name : value.split(",")) {
+                name = name.trim()
+                           .toLowerCase(Locale.ROOT);
+                if (name.isEmpty()) {
+                    continue;
+                }
+                if (name.equals("*")) {
+                    return null;
+                }
+                vary.put(name, requestHeaders.get(name));
+            }
+        }
+        return vary;
+    }
+
+    private static boolean hasDirective(HttpHeaders headers, String directive) {
+        for (String value : headers.getAll(HttpHeaderNames.CACHE_CONTROL)) {
+            for (String part : value.split(",")) {
+                if (part.trim()
+                        .toLowerCase(Locale.ROOT)
+                        .startsWith(directive)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static long getDirective(HttpHeaders headers, String directive) {
+        for (String value : headers.getAll(HttpHeaderNames.CACHE_CONTROL)) {
+            for (String part : value.split(",")) {
+                part = part.trim()
+                           .toLowerCase(Locale.ROOT);
+                if (part.startsWith(directive + "=")) {
+                    try {
+                        return Long.parseLong(part.substring(directive.length() + 1)
+                                                  .replace("\"", ""));
+                    } catch (NumberFormatException e) {
+                        return 0;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * A cached response. This is immutable: revalidating an entry replaces it with a new one.
+     */
+    static final class Entry {
+        final int code;
+        final String reason;
+        final HttpHeaders headers;
+        final Map<String, String> headerMap;
+        final byte[] body;
+        final Charset charset;
+
+        private final Map<String, String> vary;
+        private final long expiry;
+
+        Entry(int code, String reason, HttpHeaders headers, Map<String, String> vary, byte[] body, Charset charset, long freshness) {
+            this.code = code;
+            this.reason = reason;
+            this.headers = headers;
+            this.headerMap = Collections.unmodifiableMap(HttpRequestHandler.getHeaderMap(headers));
+            this.vary = vary;
+            this.body = body;
+            this.charset = charset;
+            this.expiry = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, freshness));
+        }
+
+        boolean isFresh() {
+            return System.nanoTime() - this.expiry < 0;
+        }
+
+        boolean matches(HttpHeaders requestHeaders) {
+            for (Map.Entry<String, String> header : this.vary.entrySet()) {
+                if (!Objects.equals(requestHeaders.get(header.getKey()), header.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Add validators for this entry to a request.
+         *
+         * @param headers The request headers to add the validators to.
+         */
+        void addValidators(@Nonnull HttpHeaders headers) {
+            String etag = this.headers.get(HttpHeaderNames.ETAG);
+            if (etag != null) {
+                headers.set(HttpHeaderNames.IF_NONE_MATCH, etag);
+            }
+
+            String lastModified = this.headers.get(HttpHeaderNames.LAST_MODIFIED);
+            if (lastModified != null) {
+                headers.set(HttpHeaderNames.IF_MODIFIED_SINCE, lastModified);
+            }
+        }
+    }
+}
@@ -17,6 +17,7 @@ import dan200.computercraft.ComputerCraft;
 import dan200.computercraft.core.apis.IAPIEnvironment;
 import dan200.computercraft.core.apis.http.HTTPRequestException;
 import dan200.computercraft.core.apis.http.NetworkUtils;
+import dan200.computercraft.core.apis.http.RateLimiter;
 import dan200.computercraft.core.apis.http.Resource;
 import dan200.computercraft.core.apis.http.ResourceGroup;
 import dan200.computercraft.core.apis.http.options.Options;
@@ -52,6 +53,7 @@ public class Websocket extends Resource<Websocket> {
     static final String CLOSE_EVENT = "websocket_closed";
     static final String MESSAGE_EVENT = "websocket_message";
     private final IAPIEnvironment environment;
+    private final RateLimiter rateLimiter;
     private final URI uri;
     private final String address;
     private final HttpHeaders headers;
@@ -59,9 +61,11 @@ public class Websocket extends Resource<Websocket> {
     private ChannelFuture connectFuture;
     private WeakReference<WebsocketHandle> websocketHandle;
 
-    public Websocket(ResourceGroup<Websocket> limiter, IAPIEnvironment environment, URI uri, String address, HttpHeaders headers) {
+    public Websocket(ResourceGroup<Websocket> limiter, IAPIEnvironment environment, RateLimiter rateLimiter, URI uri, String address,
+                     HttpHeaders headers) {
         super(limiter);
         this.environment = environment;
+        this.rateLimiter = rateLimiter;
         this.uri = uri;
         this.address = address;
         this.headers = headers;
@@ -103,29 +107,33 @@ public class Websocket extends Resource<Websocket> {
         if (this.isClosed()) {
             return;
         }
-        this.executorFuture = NetworkUtils.EXECUTOR.submit(this::doConnect);
+        boolean ssl = this.uri.getScheme()
+                              .equalsIgnoreCase("wss");
+        this.executorFuture = NetworkUtils.getAddressAsync(this.environment, this.uri, ssl)
+                                          .thenAcceptAsync(address -> this.doConnect(ssl, address), NetworkUtils.EXECUTOR)
+                                          .exceptionally(e -> {
+                                              if (ComputerCraft.logPeripheralErrors) {
+                                                  ComputerCraft.log.error("Error in websocket", e);
+                                              }
+                                              this.failure("Could not connect");
+                                              return null;
+                                          });
         this.checkClosed();
     }
 
-    private void doConnect() {
+    private void doConnect(boolean ssl, InetSocketAddress socketAddress) {
         // If we're cancelled, abort.
         if (this.isClosed()) {
             return;
         }
 
         try {
-            boolean ssl = this.uri.getScheme()
-                                  .equalsIgnoreCase("wss");
-
-            InetSocketAddress socketAddress = NetworkUtils.getAddress(uri, ssl);
+            if (socketAddress == null) {
+                throw new HTTPRequestException("Unknown host");
+            }
             Options options = NetworkUtils.getOptions(this.uri.getHost(), socketAddress);
             SslContext sslContext = ssl ? NetworkUtils.getSslContext() : null;
 
-            // getAddress may have a slight delay, so let's perform another cancellation check.
-            if (this.isClosed()) {
-                return;
-            }
-
             this.connectFuture = new Bootstrap().group(NetworkUtils.LOOP_GROUP)
                                                 .channel(NioSocketChannel.class)
                                                 .handler(new ChannelInitializer<SocketChannel>() {
@@ -192,6 +200,10 @@ public class Websocket extends Resource<Websocket> {
         return this.environment;
     }
 
+    public RateLimiter rateLimiter() {
+        return this.rateLimiter;
+    }
+
     void close(int status, String reason) {
         if (this.tryClose()) {
             this.environment.queueEvent(CLOSE_EVENT, this.address, Strings.isNullOrEmpty(reason) ? null : reason, status < 0 ? null : status);
@@ -211,6 +223,19 @@ public class Websocket extends Resource<Websocket> {
         this.websocketHandle = null;
     }
 
+    /**
+     * Send any messages queued on this websocket's handle.
+     *
+     * @see WebsocketHandle#flush()
+     */
+    public void flush() {
+        WeakReference<WebsocketHandle> websocketHandleRef = this.websocketHandle;
+        WebsocketHandle websocketHandle = websocketHandleRef == null ? null : websocketHandleRef.get();
+        if (websocketHandle != null) {
+            websocketHandle.flush();
+        }
+    }
+
     public String address() {
         return this.address;
     }
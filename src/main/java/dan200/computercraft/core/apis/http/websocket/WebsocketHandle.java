@@ -12,12 +12,16 @@ import static dan200.computercraft.core.apis.http.websocket.Websocket.CLOSE_EVEN
 import static dan200.computercraft.core.apis.http.websocket.Websocket.MESSAGE_EVENT;
 
 import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 import javax.annotation.Nonnull;
 
 import com.google.common.base.Objects;
+import dan200.computercraft.api.lua.IArguments;
 import dan200.computercraft.api.lua.ILuaCallback;
 import dan200.computercraft.api.lua.LuaException;
 import dan200.computercraft.api.lua.LuaFunction;
@@ -30,6 +34,8 @@ import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.util.ReferenceCountUtil;
 
 /**
  * A websocket, which can be used to send an receive messages with a web server.
@@ -38,12 +44,24 @@ import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
  * @see dan200.computercraft.core.apis.HTTPAPI#websocket On how to open a websocket.
  */
 public class WebsocketHandle implements Closeable {
+    /**
+     * The number of bytes which may be queued before we flush, rather than waiting for the next tick.
+     */
+    private static final int FLUSH_THRESHOLD = 64 * 1024;
+
     private final Websocket websocket;
     private final Options options;
     private boolean closed = false;
 
     private Channel channel;
 
+    /**
+     * Messages which have been sent since the last flush. These are written to the channel in one batch, either at the end of the tick or once
+     * {@link #FLUSH_THRESHOLD} is reached.
+     */
+    private final List<WebSocketFrame> pending = new ArrayList<>();
+    private int pendingBytes;
+
     public WebsocketHandle(Websocket websocket, Options options, Channel channel) {
         this.websocket = websocket;
         this.options = options;
@@ -78,27 +96,95 @@ public class WebsocketHandle implements Closeable {
     /**
      * Send a websocket message to the connected server.
      *
-     * @param message The message to send.
-     * @param binary Whether this message should be treated as a
+     * Messages are sent in batches at the end of each tick, so several messages sent in quick succession are written together.
+     *
+     * @param args The arguments to this function. This accepts the message to send, and whether this message should be sent as binary.
      * @throws LuaException If the message is too large.
      * @throws LuaException If the websocket has been closed.
+     * @cc.tparam any message The message to send.
+     * @cc.tparam[opt] boolean binary Whether this message should be treated as a binary string.
      */
     @LuaFunction
-    public final void send(Object message, Optional<Boolean> binary) throws LuaException {
+    public final void send(IArguments args) throws LuaException {
         this.checkOpen();
 
-        String text = StringUtil.toString(message);
-        if (this.options.websocketMessage != 0 && text.length() > this.options.websocketMessage) {
-            throw new LuaException("Message is too large");
+        boolean binary = args.optBoolean(1, false);
+
+        WebSocketFrame frame;
+        int length;
+        if (binary) {
+            // Lua strings are immutable, so we can wrap their contents directly rather than decoding and copying them.
+            ByteBuffer bytes;
+            try {
+                bytes = args.getBytes(0);
+            } catch (LuaException e) {
+                // Other values (such as numbers) are converted to a string, as they are for text messages.
+                bytes = LuaValues.encode(StringUtil.toString(args.get(0)));
+            }
+            length = bytes.remaining();
+            this.checkSize(length);
+            frame = new BinaryWebSocketFrame(Unpooled.wrappedBuffer(bytes));
+        } else {
+            String text = StringUtil.toString(args.get(0));
+            length = text.length();
+            this.checkSize(length);
+            frame = new TextWebSocketFrame(text);
         }
 
         this.websocket.environment()
-                      .addTrackingChange(TrackingField.WEBSOCKET_OUTGOING, text.length());
+                      .addTrackingChange(TrackingField.WEBSOCKET_OUTGOING, length);
+        this.websocket.rateLimiter()
+                      .charge(length);
 
-        Channel channel = this.channel;
-        if (channel != null) {
-            channel.writeAndFlush(binary.orElse(false) ? new BinaryWebSocketFrame(Unpooled.wrappedBuffer(LuaValues.encode(text))) : new TextWebSocketFrame(
-                text));
+        if (this.channel == null) {
+            ReferenceCountUtil.release(frame);
+            return;
+        }
+
+        boolean flush;
+        synchronized (this.pending) {
+            this.pending.add(frame);
+            this.pendingBytes += length;
+            flush = this.pendingBytes >= FLUSH_THRESHOLD;
+        }
+        if (flush) {
+            this.flush();
+        }
+    }
+
+    private void checkSize(int length) throws LuaException {
+        if (this.options.websocketMessage != 0 && length > this.options.websocketMessage) {
+            throw new LuaException("Message is too large");
+        }
+    }
+
+    /**
+     * Write all pending messages to the channel, and flush it.
+     */
+    void flush() {
+        synchronized (this.pending) {
+            if (this.pending.isEmpty()) {
+                return;
+            }
+
+            List<WebSocketFrame> frames = new ArrayList<>(this.pending);
+            this.pending.clear();
+            this.pendingBytes = 0;
+
+            Channel channel = this.channel;
+            if (channel == null) {
+                frames.forEach(ReferenceCountUtil::release);
+                return;
+            }
+
+            // Schedule this while holding the lock, so batches reach the event loop in the order they were sent.
+            channel.eventLoop()
+                   .execute(() -> {
+                       for (WebSocketFrame frame : frames) {
+                           channel.write(frame, channel.voidPromise());
+                       }
+                       channel.flush();
+                   });
         }
     }
 
@@ -114,6 +200,7 @@ public class WebsocketHandle implements Closeable {
     @Override
     public void close() {
         this.closed = true;
+        this.flush();
 
         Channel channel = this.channel;
         if (channel != null) {
@@ -8,6 +8,8 @@ package dan200.computercraft.core.apis.http.websocket;
 
 import static dan200.computercraft.core.apis.http.websocket.Websocket.MESSAGE_EVENT;
 
+import java.nio.ByteBuffer;
+
 import dan200.computercraft.core.apis.http.HTTPRequestException;
 import dan200.computercraft.core.apis.http.NetworkUtils;
 import dan200.computercraft.core.apis.http.options.Options;
@@ -97,15 +99,20 @@ public class WebsocketHandler extends SimpleChannelInboundHandler<Object> {
 
             this.websocket.environment()
                           .addTrackingChange(TrackingField.WEBSOCKET_INCOMING, data.length());
+            this.websocket.rateLimiter()
+                          .charge(data.length());
             this.websocket.environment()
                           .queueEvent(MESSAGE_EVENT, this.websocket.address(), data, false);
         } else if (frame instanceof BinaryWebSocketFrame) {
+            // Copy the frame out of Netty's buffer, as it is released once we return. The event only needs to read it.
             byte[] converted = NetworkUtils.toBytes(frame.content());
 
             this.websocket.environment()
                           .addTrackingChange(TrackingField.WEBSOCKET_INCOMING, converted.length);
+            this.websocket.rateLimiter()
+                          .charge(converted.length);
             this.websocket.environment()
-                          .queueEvent(MESSAGE_EVENT, this.websocket.address(), converted, true);
+                          .queueEvent(MESSAGE_EVENT, this.websocket.address(), ByteBuffer.wrap(converted).asReadOnlyBuffer(), true);
         } else if (frame instanceof CloseWebSocketFrame) {
             CloseWebSocketFrame closeFrame = (CloseWebSocketFrame) frame;
             this.websocket.close(closeFrame.statusCode(), closeFrame.reasonText());
@@ -38,6 +38,16 @@ public final class TaskCallback implements ILuaCallback {
         return new TaskCallback(task).pull;
     }
 
+    /**
+     * Wait for a task which has already been started, such as one run on another thread.
+     *
+     * @param task The task's ID, which will be sent in the {@code task_complete} event.
+     * @return A result which yields until the task has finished.
+     */
+    public static MethodResult await(long task) {
+        return new TaskCallback(task).pull;
+    }
+
     @Nonnull
     @Override
     public MethodResult resume(Object[] response) throws LuaException {
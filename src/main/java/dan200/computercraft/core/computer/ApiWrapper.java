@@ -35,6 +35,11 @@ final class ApiWrapper implements ILuaAPI {
         this.delegate.update();
     }
 
+    @Override
+    public boolean isIdle() {
+        return this.delegate.isIdle();
+    }
+
     @Override
     public void shutdown() {
         this.delegate.shutdown();
@@ -8,6 +8,8 @@ package dan200.computercraft.core.computer;
 
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.annotation.Nullable;
+
 import com.google.common.base.Objects;
 import dan200.computercraft.api.lua.ILuaAPI;
 import dan200.computercraft.api.peripheral.IWorkMonitor;
@@ -44,6 +46,7 @@ public class Computer {
     private boolean m_blinking = false;
     private boolean startRequested;
     private int m_ticksSinceStart = -1;
+    private volatile Runnable wakeListener;
 
     public Computer(IComputerEnvironment environment, Terminal terminal, int id) {
         this.m_id = id;
@@ -76,6 +79,7 @@ public class Computer {
 
     public void turnOn() {
         this.startRequested = true;
+        this.wake();
     }
 
     public void shutdown() {
@@ -131,6 +135,59 @@ public class Computer {
         if (!Objects.equal(label, this.m_label)) {
             this.m_label = label;
             this.externalOutputChanged.set(true);
+            this.wake();
+        }
+    }
+
+    /**
+     * Put this computer to sleep if it has nothing to do. This is the case when it is off (and not about to start), or when it is waiting for an
+     * event with no events queued, no timers running and all its APIs idle. In both cases, any changes to its outputs must have been propagated.
+     *
+     * A dormant computer does not need to be ticked. It is woken by anything which gives it work to do, such as queuing an event, turning it on or
+     * changing its redstone input, at which point the {@link #setWakeListener(Runnable) wake listener} is called. This should only be called from
+     * the main thread.
+     *
+     * @return Whether this computer is now dormant.
+     */
+    public boolean trySleep() {
+        if (this.startRequested || (this.m_ticksSinceStart >= 0 && this.m_ticksSinceStart <= START_DELAY) || this.externalOutputChanged.get()
+            || !this.internalEnvironment.isIdle()) {
+            return false;
+        }
+
+        return this.executor.trySleep();
+    }
+
+    /**
+     * Whether this computer is dormant, and so does not need to be ticked.
+     *
+     * @return If this computer is dormant.
+     * @see #trySleep()
+     */
+    public boolean isDormant() {
+        return this.executor.isDormant();
+    }
+
+    /**
+     * Wake this computer if it is dormant.
+     */
+    public void wake() {
+        this.executor.wake();
+    }
+
+    /**
+     * Set a callback to run when this computer stops being dormant. This may be called from any thread, so should do as little as possible.
+     *
+     * @param listener The listener to call, or {@code null} to remove it.
+     */
+    public void setWakeListener(@Nullable Runnable listener) {
+        this.wakeListener = listener;
+    }
+
+    void onWake() {
+        Runnable listener = this.wakeListener;
+        if (listener != null) {
+            listener.run();
         }
     }
 
@@ -141,6 +141,25 @@ final class ComputerExecutor {
      * @see #queueStop(boolean, boolean)
      */
     private boolean closed;
+    /**
+     * Whether this computer is dormant, and so is not being ticked. This is set by {@link #trySleep()}, and cleared by {@link #wake()} when the
+     * computer is given something to do.
+     *
+     * This is only written while holding {@link #queueLock}.
+     */
+    private volatile boolean dormant;
+    /**
+     * Whether an event was queued while this computer was dormant. Such events are not run until the computer has been ticked again, so that its
+     * APIs have caught up with the world first.
+     *
+     * @see #tick()
+     */
+    private volatile boolean deferredEvents;
+    /**
+     * Whether this computer has done any work since the start of its last {@link #tick()}. A computer which has just run may have changed state
+     * which the next tick needs to see, so cannot become dormant yet.
+     */
+    private volatile boolean workedSinceTick;
     private IWritableMount rootMount;
 
     ComputerExecutor(Computer computer) {
@@ -175,6 +194,56 @@ final class ComputerExecutor {
         return this.isOn;
     }
 
+    boolean isDormant() {
+        return this.dormant;
+    }
+
+    /**
+     * Make this computer dormant if it has nothing to do: it has no pending command or events, is not running, and (if on) all its APIs are idle.
+     *
+     * @return Whether this computer is now dormant.
+     * @see Computer#trySleep()
+     */
+    boolean trySleep() {
+        // Check the APIs first, as they may need to take their own locks.
+        if (this.isOn) {
+            for (ILuaAPI api : this.apis) {
+                if (!api.isIdle()) {
+                    return false;
+                }
+            }
+        }
+
+        synchronized (this.queueLock) {
+            if (this.command != null || this.onComputerQueue || this.workedSinceTick || this.deferredEvents || !this.eventQueue.isEmpty()) {
+                return false;
+            }
+
+            this.dormant = true;
+            return true;
+        }
+    }
+
+    /**
+     * Wake this computer if it is dormant, so that it is ticked again.
+     */
+    void wake() {
+        if (!this.dormant) {
+            return;
+        }
+
+        synchronized (this.queueLock) {
+            this.wakeLocked();
+        }
+    }
+
+    private void wakeLocked() {
+        if (this.dormant) {
+            this.dormant = false;
+            this.computer.onWake();
+        }
+    }
+
     FileSystem getFileSystem() {
         return this.fileSystem;
     }
@@ -194,6 +263,7 @@ final class ComputerExecutor {
             }
 
             this.command = StateCommand.TURN_ON;
+            this.wakeLocked();
             this.enqueue();
         }
     }
@@ -235,6 +305,7 @@ final class ComputerExecutor {
             }
 
             this.command = newCommand;
+            this.wakeLocked();
             this.enqueue();
         }
     }
@@ -253,6 +324,7 @@ final class ComputerExecutor {
                 return;
             }
             this.command = StateCommand.ABORT;
+            this.wakeLocked();
             if (this.isOn) {
                 this.enqueue();
             }
@@ -280,7 +352,15 @@ final class ComputerExecutor {
             }
 
             this.eventQueue.offer(new Event(event, args));
-            this.enqueue();
+
+            // If we're dormant, wait until we've been ticked before running the event. Otherwise the computer might see
+            // state (such as the time) from before it went to sleep.
+            if (this.dormant) {
+                this.deferredEvents = true;
+                this.wakeLocked();
+            } else if (!this.deferredEvents) {
+                this.enqueue();
+            }
         }
     }
 
@@ -288,6 +368,8 @@ final class ComputerExecutor {
      * Update the internals of the executor.
      */
     void tick() {
+        this.workedSinceTick = false;
+
         if (this.isOn && this.isOnLock.tryLock()) {
             // This horrific structure means we don't try to update APIs while the state is being changed
             // (and so they may be running startup/shutdown).
@@ -304,6 +386,16 @@ final class ComputerExecutor {
                 this.isOnLock.unlock();
             }
         }
+
+        // Now our APIs are up-to-date, run any events queued while we were dormant.
+        if (this.deferredEvents) {
+            synchronized (this.queueLock) {
+                this.deferredEvents = false;
+                if (!this.eventQueue.isEmpty()) {
+                    this.enqueue();
+                }
+            }
+        }
     }
 
     /**
@@ -327,6 +419,7 @@ final class ComputerExecutor {
         }
 
         Tracking.addTaskTiming(this.getComputer(), this.timeout.nanoCurrent());
+        this.workedSinceTick = true;
 
         if (this.interruptedEvent) {
             return true;
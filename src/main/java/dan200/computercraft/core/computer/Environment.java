@@ -107,11 +107,13 @@ public final class Environment implements IAPIEnvironment {
     public void setOutput(ComputerSide side, int output) {
         int index = side.ordinal();
         synchronized (this.internalOutput) {
-            if (this.internalOutput[index] != output) {
-                this.internalOutput[index] = output;
-                this.internalOutputChanged = true;
+            if (this.internalOutput[index] == output) {
+                return;
             }
+            this.internalOutput[index] = output;
+            this.internalOutputChanged = true;
         }
+        this.computer.wake();
     }
 
     @Override
@@ -130,11 +132,13 @@ public final class Environment implements IAPIEnvironment {
     public void setBundledOutput(ComputerSide side, int output) {
         int index = side.ordinal();
         synchronized (this.internalOutput) {
-            if (this.internalBundledOutput[index] != output) {
-                this.internalBundledOutput[index] = output;
-                this.internalOutputChanged = true;
+            if (this.internalBundledOutput[index] == output) {
+                return;
             }
+            this.internalBundledOutput[index] = output;
+            this.internalOutputChanged = true;
         }
+        this.computer.wake();
     }
 
     @Override
@@ -175,10 +179,13 @@ public final class Environment implements IAPIEnvironment {
 
     @Override
     public int startTimer(long ticks) {
+        int token;
         synchronized (this.timers) {
-            this.timers.put(this.nextTimerToken, new Timer(ticks));
-            return this.nextTimerToken++;
+            token = this.nextTimerToken++;
+            this.timers.put(token, new Timer(ticks));
         }
+        this.computer.wake();
+        return token;
     }
 
     @Override
@@ -206,6 +213,7 @@ public final class Environment implements IAPIEnvironment {
         if (this.input[index] != level) {
             this.input[index] = level;
             this.inputChanged = true;
+            this.computer.wake();
         }
     }
 
@@ -214,6 +222,7 @@ public final class Environment implements IAPIEnvironment {
         if (this.bundledInput[index] != combination) {
             this.bundledInput[index] = combination;
             this.inputChanged = true;
+            this.computer.wake();
         }
     }
 
@@ -229,6 +238,28 @@ public final class Environment implements IAPIEnvironment {
         }
     }
 
+    /**
+     * Whether {@link #tick()} and {@link #updateOutput()} have nothing to do: no redstone input has changed, no output
+     * is waiting to be propagated and no timers are running. Anything which changes this also wakes the computer.
+     *
+     * @return If this environment is idle.
+     */
+    boolean isIdle() {
+        if (this.inputChanged) {
+            return false;
+        }
+
+        synchronized (this.internalOutput) {
+            if (this.internalOutputChanged) {
+                return false;
+            }
+        }
+
+        synchronized (this.timers) {
+            return this.timers.isEmpty();
+        }
+    }
+
     /**
      * Called on the main thread to update the internal state of the computer.
      */
@@ -60,11 +60,12 @@ public final class MainThread {
     private static final HashSet<MainThreadExecutor> cooling = new HashSet<>();
 
     /**
-     * The current tick number. This is used by {@link MainThreadExecutor} to determine when to reset its own time counter.
+     * The current tick number. This is used by {@link MainThreadExecutor} to determine when to reset its own time counter, and to measure time
+     * for computers which may not be ticked every tick.
      *
      * @see #currentTick()
      */
-    private static int currentTick;
+    private static volatile int currentTick;
 
     /**
      * The remaining budgeted time for this tick. This may be negative, in the case that we've gone over budget.
@@ -117,7 +118,12 @@ public final class MainThread {
         return canExecute;
     }
 
-    static int currentTick() {
+    /**
+     * Get the number of ticks since the server started. This may be called from any thread.
+     *
+     * @return The current tick number.
+     */
+    public static int currentTick() {
         return currentTick;
     }
 
@@ -0,0 +1,222 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+
+package dan200.computercraft.core.filesystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.hash.Hashing;
+import dan200.computercraft.ComputerCraft;
+import dan200.computercraft.shared.util.ThreadUtils;
+
+/**
+ * Stores file contents by their hash, so that identical files on different computers share the same space on disk.
+ *
+ * Rather than changing how {@link FileMount} lays out its files, files are hard links to an object in the store. The
+ * file system's link count doubles as the object's reference count: an object with a single link is no longer used by
+ * any computer, and is removed by {@link #collectGarbage()}. Files are never modified while shared - a mount replaces
+ * a shared file with a private copy before changing it.
+ *
+ * Hashing files and collecting garbage may take a while, so both are done on a separate background thread.
+ *
+ * As hard links share their metadata, all copies of an object report the same modification time - that of the most
+ * recently deduplicated copy.
+ *
+ * @see ComputerCraft#deduplicateFiles
+ */
+public final class ContentStore {
+    static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(ThreadUtils.builder("ContentStore")
+                                                                                         .setPriority(Thread.MIN_PRIORITY)
+                                                                                         .build());
+
+    private final File root;
+
+    public ContentStore(@Nonnull File root) {
+        this.root = root;
+    }
+
+    /**
+     * Whether the host file system exposes the link counts we need.
+     *
+     * @return If content stores may be used.
+     */
+    public static boolean isSupported() {
+        return FileSystems.getDefault()
+                          .supportedFileAttributeViews()
+                          .contains("unix");
+    }
+
+    /**
+     * Replace a file with a link to the matching object in the store, adding it to the store if needed.
+     *
+     * The file is hashed without holding {@code lock}, so this may be called in the background. The lock is then held
+     * while the file is linked, and the file is left alone if it has changed since it was hashed or if
+     * {@code canReplace} no longer holds. Anything which writes to or deletes the file should hold the same lock.
+     *
+     * @param file The file to deduplicate.
+     * @param lock The lock guarding changes to this file.
+     * @param canReplace Whether the file may still be replaced, such as it not being open for writing.
+     * @throws IOException If the store could not be updated.
+     */
+    void deduplicate(Path file, Object lock, BooleanSupplier canReplace) throws IOException {
+        BasicFileAttributes before = Files.readAttributes(file, BasicFileAttributes.class);
+        if (before.size() == 0) {
+            return;
+        }
+
+        String hash = com.google.common.io.Files.asByteSource(file.toFile())
+                                                .hash(Hashing.sha256())
+                                                .toString();
+        Path object = this.root.toPath()
+                               .resolve(hash.substring(0, 2))
+                               .resolve(hash);
+
+        synchronized (lock) {
+            BasicFileAttributes current = Files.readAttributes(file, BasicFileAttributes.class);
+            if (!canReplace.getAsBoolean() || !isSameVersion(before, current)) {
+                return;
+            }
+
+            if (!Files.exists(object)) {
+                Files.createDirectories(object.getParent());
+                try {
+                    Files.createLink(object, file);
+                    return;
+                } catch (FileAlreadyExistsException ignored) {
+                    // Someone else added this object in the meantime, so link to theirs instead.
+                }
+            }
+
+            if (Files.isSameFile(object, file) || Files.size(object) != current.size()) {
+                return;
+            }
+
+            Path temp = this.tempFile();
+            Files.createLink(temp, object);
+            replace(temp, file);
+
+            // The object still has the modification time of whichever file first added it, so bring it up to date.
+            Files.setLastModifiedTime(file, current.lastModifiedTime());
+        }
+    }
+
+    /**
+     * Ensure a file is not shared with any other, so it can be modified in place.
+     *
+     * @param file The file which is about to be modified.
+     * @throws IOException If the file could not be copied.
+     */
+    void unshare(Path file) throws IOException {
+        if (getLinks(file) <= 1) {
+            return;
+        }
+
+        Path temp = this.tempFile();
+        Files.copy(file, temp);
+        replace(temp, file);
+    }
+
+    /**
+     * Copy a file by linking to it.
+     *
+     * @param from The file to copy.
+     * @param to The location to copy it to. This should not exist.
+     * @throws IOException If the file could not be linked.
+     */
+    void link(Path from, Path to) throws IOException {
+        Files.createLink(to, from);
+    }
+
+    /**
+     * Remove unused objects in the background.
+     */
+    public void scheduleGarbageCollection() {
+        EXECUTOR.execute(this::collectGarbage);
+    }
+
+    /**
+     * Remove any objects which are no longer used by any file.
+     */
+    void collectGarbage() {
+        if (!this.root.isDirectory()) {
+            return;
+        }
+
+        try {
+            Files.walkFileTree(this.root.toPath(), new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    // Temporary files are still being written, so leave them alone.
+                    if (!file.getFileName()
+                             .toString()
+                             .startsWith("tmp-") && getLinks(file) <= 1) {
+                        Files.delete(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            ComputerCraft.log.error("Cannot clean up {}", this.root, e);
+        }
+    }
+
+    private Path tempFile() throws IOException {
+        Files.createDirectories(this.root.toPath());
+        return this.root.toPath()
+                        .resolve("tmp-" + UUID.randomUUID());
+    }
+
+    private static int getLinks(Path file) throws IOException {
+        return (Integer) Files.getAttribute(file, "unix:nlink");
+    }
+
+    private static boolean isSameVersion(BasicFileAttributes a, BasicFileAttributes b) {
+        return Objects.equals(a.fileKey(), b.fileKey()) && a.size() == b.size() && a.lastModifiedTime()
+                                                                                    .equals(b.lastModifiedTime());
+    }
+
+    private static void replace(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(from);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof ContentStore && this.root.equals(((ContentStore) o).root));
+    }
+
+    @Override
+    public int hashCode() {
+        return this.root.hashCode();
+    }
+}
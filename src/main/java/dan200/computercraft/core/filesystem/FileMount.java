@@ -7,6 +7,7 @@
 package dan200.computercraft.core.filesystem;
 
 import java.io.File;
+import java.io.Flushable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
@@ -17,23 +18,48 @@ import java.nio.channels.SeekableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.OptionalLong;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import com.google.common.collect.Sets;
 import dan200.computercraft.ComputerCraft;
 import dan200.computercraft.api.filesystem.FileOperationException;
 import dan200.computercraft.api.filesystem.IWritableMount;
+import dan200.computercraft.shared.util.ThreadUtils;
 
+/**
+ * A writable mount backed by a directory on disk.
+ *
+ * Metadata (directory listings and file attributes) is cached in memory as it is first read, and kept up-to-date by
+ * any changes made through this mount. Changes made to the directory by other means are only picked up once the mount
+ * is recreated (such as when the computer is rebooted).
+ *
+ * If a {@link ContentStore} is given, files are deduplicated against it in the background once they are closed, and
+ * copies between mounts sharing the same store only link the existing file. Shared files are replaced by a private copy
+ * before they are written to, and are counted in full against each mount's capacity.
+ */
 public class FileMount implements IWritableMount {
     private static final int MINIMUM_FILE_SIZE = 500;
     private static final Set<OpenOption> READ_OPTIONS = Collections.singleton(StandardOpenOption.READ);
@@ -41,26 +67,140 @@ public class FileMount implements IWritableMount {
                                                                          StandardOpenOption.CREATE,
                                                                          StandardOpenOption.TRUNCATE_EXISTING);
     private static final Set<OpenOption> APPEND_OPTIONS = Sets.newHashSet(StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    private static final Set<WritableCountingChannel> openChannels = Collections.newSetFromMap(new WeakHashMap<>());
+
+    /**
+     * Flushes buffered writes in the background. This is kept separate from {@link UsedSpaceLedger#EXECUTOR}, so that
+     * flushes are not held up by saving ledgers or measuring a large directory.
+     */
+    private static final ScheduledExecutorService FLUSH_EXECUTOR = Executors.newSingleThreadScheduledExecutor(ThreadUtils.builder("FileFlush")
+                                                                                                                        .build());
     private File m_rootPath;
     private long m_capacity;
-    private long m_usedSpace;
+    private volatile long m_usedSpace;
+    private final UsedSpaceLedger m_ledger;
+    @Nullable private final ContentStore m_store;
+    @Nullable private volatile Rebuild m_rebuild;
+
+    /**
+     * Held while files are opened for writing, deleted or deduplicated, so that deduplication never replaces a file
+     * which is being changed. See {@link ContentStore#deduplicate}.
+     */
+    private final Object m_storeLock = new Object();
+
+    /**
+     * The number of channels open for writing to each path. Guarded by {@link #m_storeLock}.
+     */
+    private final Map<String, Integer> m_writers = new HashMap<>();
+    private boolean m_created;
+
+    /**
+     * The cache of files and directories within this mount. This may be read from several threads at once (see
+     * {@link MountWrapper}), while changes to it are synchronized on this mount.
+     */
+    private volatile Node m_root;
+
     public FileMount(File rootPath, long capacity) {
+        this(rootPath, capacity, null);
+    }
+
+    public FileMount(File rootPath, long capacity, @Nullable ContentStore store) {
         this.m_rootPath = rootPath;
+        this.m_store = store;
+        this.m_root = new Node(rootPath);
         this.m_capacity = capacity + MINIMUM_FILE_SIZE;
-        this.m_usedSpace = this.created() ? measureUsedSpace(this.m_rootPath) : MINIMUM_FILE_SIZE;
+        this.m_ledger = new UsedSpaceLedger(rootPath, () -> this.m_usedSpace);
+
+        OptionalLong saved;
+        if (this.created()) {
+            saved = this.m_ledger.load();
+        } else {
+            saved = OptionalLong.of(MINIMUM_FILE_SIZE);
+            this.m_ledger.setDirectories(Collections.singletonList(""));
+        }
+
+        if (saved.isPresent()) {
+            this.m_usedSpace = saved.getAsLong();
+        } else {
+            // Walking the whole directory may take a while, so start it in the background. Anything which changes the
+            // directory or depends on the used space waits for the walk to finish first (see awaitUsedSpace), so the
+            // walk never sees a file which is also counted by addUsedSpace.
+            this.m_usedSpace = MINIMUM_FILE_SIZE;
+            Rebuild rebuild = this.m_rebuild = new Rebuild();
+            UsedSpaceLedger.EXECUTOR.execute(rebuild);
+        }
+    }
+
+    /**
+     * Wait for the used space to be measured, if it is still being rebuilt. If the rebuild has not started yet, it is
+     * run on the current thread instead.
+     */
+    private void awaitUsedSpace() {
+        Rebuild rebuild = this.m_rebuild;
+        if (rebuild == null) {
+            return;
+        }
+
+        // This is a no-op if the rebuild is already running or has finished.
+        rebuild.run();
+        try {
+            rebuild.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                  .interrupt();
+            return;
+        } catch (ExecutionException e) {
+            ComputerCraft.log.error("Error computing file size for {}", this.m_rootPath, e);
+        }
+        this.finishRebuild(rebuild);
+    }
+
+    private synchronized void finishRebuild(Rebuild rebuild) {
+        if (this.m_rebuild != rebuild || !rebuild.isDone()) {
+            return;
+        }
+
+        long size;
+        Collection<String> directories = null;
+        try {
+            size = rebuild.get();
+
+            // A size of zero means the walk failed, and so we don't know which directories exist.
+            if (size > 0) {
+                directories = rebuild.directories;
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            size = MINIMUM_FILE_SIZE;
+        }
+
+        this.m_ledger.changed();
+        if (directories != null) {
+            this.m_ledger.setDirectories(directories);
+        }
+        this.m_usedSpace = size;
+        this.m_rebuild = null;
+    }
+
+    private synchronized void addUsedSpace(long delta) {
+        this.m_ledger.changed();
+        this.m_usedSpace += delta;
     }
 
     private boolean created() {
-        return this.m_rootPath.exists();
+        // Once the root exists we assume it always will, so we don't need to check on every operation.
+        if (!this.m_created) {
+            this.m_created = this.m_rootPath.exists();
+        }
+        return this.m_created;
     }
 
-    private static long measureUsedSpace(File file) {
+    private static long measureUsedSpace(File file, Collection<String> directories) {
         if (!file.exists()) {
             return 0;
         }
 
         try {
-            Visitor visitor = new Visitor();
+            Visitor visitor = new Visitor(file.toPath(), directories);
             Files.walkFileTree(file.toPath(), visitor);
             return visitor.size;
         } catch (IOException e) {
@@ -80,15 +220,15 @@ public class FileMount implements IWritableMount {
             return;
         }
 
-        File file = this.getRealPath(path);
-        if (!file.exists() || !file.isDirectory()) {
+        Node node = this.getNode(path);
+        Map<String, Node> children = node == null ? null : this.getChildren(node);
+        if (children == null) {
             throw new FileOperationException(path, "Not a directory");
         }
 
-        String[] paths = file.list();
-        for (String subPath : paths) {
-            if (new File(file, subPath).exists()) {
-                contents.add(subPath);
+        for (Map.Entry<String, Node> child : children.entrySet()) {
+            if (getAttributes(child.getValue()) != null) {
+                contents.add(child.getKey());
             }
         }
     }
@@ -97,9 +237,9 @@ public class FileMount implements IWritableMount {
     @Override
     public ReadableByteChannel openForRead(@Nonnull String path) throws IOException {
         if (this.created()) {
-            File file = this.getRealPath(path);
-            if (file.exists() && !file.isDirectory()) {
-                return FileChannel.open(file.toPath(), READ_OPTIONS);
+            BasicFileAttributes attributes = this.stat(path);
+            if (attributes != null && !attributes.isDirectory()) {
+                return FileChannel.open(this.getRealPath(path).toPath(), READ_OPTIONS);
             }
         }
 
@@ -110,9 +250,9 @@ public class FileMount implements IWritableMount {
     @Override
     public BasicFileAttributes getAttributes(@Nonnull String path) throws IOException {
         if (this.created()) {
-            File file = this.getRealPath(path);
-            if (file.exists()) {
-                return Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            BasicFileAttributes attributes = this.stat(path);
+            if (attributes != null) {
+                return attributes;
             }
         }
 
@@ -125,8 +265,7 @@ public class FileMount implements IWritableMount {
             return path.isEmpty();
         }
 
-        File file = this.getRealPath(path);
-        return file.exists();
+        return this.stat(path) != null;
     }
 
     @Override
@@ -135,8 +274,8 @@ public class FileMount implements IWritableMount {
             return path.isEmpty();
         }
 
-        File file = this.getRealPath(path);
-        return file.exists() && file.isDirectory();
+        BasicFileAttributes attributes = this.stat(path);
+        return attributes != null && attributes.isDirectory();
     }
 
     @Override
@@ -146,9 +285,9 @@ public class FileMount implements IWritableMount {
                 return 0;
             }
         } else {
-            File file = this.getRealPath(path);
-            if (file.exists()) {
-                return file.isDirectory() ? 0 : file.length();
+            BasicFileAttributes attributes = this.stat(path);
+            if (attributes != null) {
+                return attributes.isDirectory() ? 0 : attributes.size();
             }
         }
 
@@ -163,6 +302,7 @@ public class FileMount implements IWritableMount {
 
     @Override
     public void makeDirectory(@Nonnull String path) throws IOException {
+        this.awaitUsedSpace();
         this.create();
         File file = this.getRealPath(path);
         if (file.exists()) {
@@ -183,8 +323,24 @@ public class FileMount implements IWritableMount {
             throw new FileOperationException(path, "Out of space");
         }
 
-        if (file.mkdirs()) {
-            this.m_usedSpace += dirsToCreate * MINIMUM_FILE_SIZE;
+        this.m_ledger.changed();
+        boolean success = file.mkdirs();
+
+        // Only the outermost directory we created will be in a cached listing.
+        String created = path;
+        for (int i = 1; i < dirsToCreate; i++) {
+            if (success) {
+                this.m_ledger.addDirectory(created);
+            }
+            created = FileSystem.getDirectory(created);
+        }
+        if (success) {
+            this.m_ledger.addDirectory(created);
+        }
+        this.changed(created);
+
+        if (success) {
+            this.addUsedSpace(dirsToCreate * MINIMUM_FILE_SIZE);
         } else {
             throw new FileOperationException(path, "Access denied");
         }
@@ -197,9 +353,21 @@ public class FileMount implements IWritableMount {
         }
 
         if (this.created()) {
+            this.awaitUsedSpace();
             File file = this.getRealPath(path);
             if (file.exists()) {
-                this.deleteRecursively(file);
+                this.m_ledger.changed();
+                boolean directory = file.isDirectory();
+                try {
+                    synchronized (this.m_storeLock) {
+                        this.deleteRecursively(file);
+                    }
+                } finally {
+                    if (directory) {
+                        this.m_ledger.removeDirectory(path);
+                    }
+                    this.changed(path);
+                }
             }
         }
     }
@@ -207,6 +375,7 @@ public class FileMount implements IWritableMount {
     @Nonnull
     @Override
     public WritableByteChannel openForWrite(@Nonnull String path) throws IOException {
+        this.awaitUsedSpace();
         this.create();
         File file = this.getRealPath(path);
         if (file.exists() && file.isDirectory()) {
@@ -214,13 +383,24 @@ public class FileMount implements IWritableMount {
         }
 
         if (file.exists()) {
-            this.m_usedSpace -= Math.max(file.length(), MINIMUM_FILE_SIZE);
+            this.addUsedSpace(-Math.max(file.length(), MINIMUM_FILE_SIZE));
         } else if (this.getRemainingSpace() < MINIMUM_FILE_SIZE) {
             throw new FileOperationException(path, "Out of space");
         }
-        this.m_usedSpace += MINIMUM_FILE_SIZE;
+        this.addUsedSpace(MINIMUM_FILE_SIZE);
 
-        return new SeekableCountingChannel(Files.newByteChannel(file.toPath(), WRITE_OPTIONS), MINIMUM_FILE_SIZE);
+        SeekableByteChannel channel;
+        synchronized (this.m_storeLock) {
+            if (this.m_store != null) {
+                // The file may be shared with other computers, so write a new one rather than truncating it.
+                Files.deleteIfExists(file.toPath());
+            }
+
+            channel = Files.newByteChannel(file.toPath(), WRITE_OPTIONS);
+            this.m_writers.merge(path, 1, Integer::sum);
+        }
+        this.changed(path);
+        return new SeekableCountingChannel(path, channel, MINIMUM_FILE_SIZE);
     }
 
     @Nonnull
@@ -230,6 +410,7 @@ public class FileMount implements IWritableMount {
             throw new FileOperationException(path, "No such file");
         }
 
+        this.awaitUsedSpace();
         File file = this.getRealPath(path);
         if (!file.exists()) {
             throw new FileOperationException(path, "No such file");
@@ -238,12 +419,67 @@ public class FileMount implements IWritableMount {
             throw new FileOperationException(path, "Cannot write to directory");
         }
 
-        // Allowing seeking when appending is not recommended, so we use a separate channel.
-        return new WritableCountingChannel(Files.newByteChannel(file.toPath(), APPEND_OPTIONS), Math.max(MINIMUM_FILE_SIZE - file.length(), 0));
+        WritableByteChannel channel;
+        synchronized (this.m_storeLock) {
+            if (this.m_store != null) {
+                this.m_store.unshare(file.toPath());
+            }
+
+            // Allowing seeking when appending is not recommended, so we use a separate channel.
+            channel = Files.newByteChannel(file.toPath(), APPEND_OPTIONS);
+            this.m_writers.merge(path, 1, Integer::sum);
+        }
+        return new WritableCountingChannel(path, channel, Math.max(MINIMUM_FILE_SIZE - file.length(), 0));
+    }
+
+    /**
+     * Copy a file from another mount by linking to it, rather than copying its contents.
+     *
+     * @param source The mount to copy from.
+     * @param sourcePath The file to copy.
+     * @param destPath The path to copy to. This should not exist.
+     * @return Whether the file was copied. If not, the caller should copy the file contents instead.
+     * @throws IOException If there is not enough space for the copy.
+     */
+    boolean copyFrom(FileMount source, String sourcePath, String destPath) throws IOException {
+        if (this.m_store == null || !this.m_store.equals(source.m_store) || !source.created()) {
+            return false;
+        }
+
+        BasicFileAttributes attributes = source.stat(sourcePath);
+        if (attributes == null || attributes.isDirectory() || this.exists(destPath)) {
+            return false;
+        }
+
+        this.awaitUsedSpace();
+        this.create();
+        File dest = this.getRealPath(destPath);
+        if (!dest.getParentFile()
+                 .isDirectory()) {
+            return false;
+        }
+
+        long cost = Math.max(attributes.size(), MINIMUM_FILE_SIZE);
+        if (this.getRemainingSpace() < cost) {
+            throw new FileOperationException(destPath, "Out of space");
+        }
+
+        this.m_ledger.changed();
+        try {
+            this.m_store.link(source.getRealPath(sourcePath)
+                                    .toPath(), dest.toPath());
+        } catch (IOException e) {
+            return false;
+        }
+
+        this.addUsedSpace(cost);
+        this.changed(destPath);
+        return true;
     }
 
     @Override
     public long getRemainingSpace() {
+        this.awaitUsedSpace();
         return Math.max(this.m_capacity - this.m_usedSpace, 0);
     }
 
@@ -275,18 +511,237 @@ public class FileMount implements IWritableMount {
         long fileSize = file.isDirectory() ? 0 : file.length();
         boolean success = file.delete();
         if (success) {
-            this.m_usedSpace -= Math.max(MINIMUM_FILE_SIZE, fileSize);
+            this.addUsedSpace(-Math.max(MINIMUM_FILE_SIZE, fileSize));
         } else {
             throw new IOException("Access denied");
         }
     }
 
+    private void closedWriter(String path) {
+        synchronized (this.m_storeLock) {
+            this.m_writers.computeIfPresent(path, (k, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    private void deduplicate(String path) {
+        File file = this.getRealPath(path);
+        try {
+            // Replacing the file with a link changes its directory's modification time, so the saved ledger is no longer
+            // valid.
+            this.m_ledger.changed();
+
+            // If the file is opened again before we get to it, it is deduplicated once that channel is closed instead.
+            this.m_store.deduplicate(file.toPath(), this.m_storeLock, () -> !this.m_writers.containsKey(path));
+        } catch (NoSuchFileException ignored) {
+            // The file was deleted in the meantime.
+        } catch (IOException e) {
+            // The file is still intact, it just takes up more space than it needs to.
+            ComputerCraft.log.warn("Cannot deduplicate {}", file, e);
+        }
+    }
+
+    /**
+     * Get the attributes of a file, using the cache where possible.
+     *
+     * @param path The path to the file.
+     * @return The file's attributes, or {@code null} if it does not exist.
+     */
+    @Nullable
+    private BasicFileAttributes stat(String path) {
+        Node node = this.getNode(path);
+        return node == null ? null : getAttributes(node);
+    }
+
+    /**
+     * Find the node for a path, loading directory listings as needed.
+     *
+     * @param path The path to find.
+     * @return The node for this path, or {@code null} if it does not exist.
+     */
+    @Nullable
+    private Node getNode(String path) {
+        Node node = this.m_root;
+        if (path.isEmpty()) {
+            return node;
+        }
+
+        for (String part : path.split("/")) {
+            Map<String, Node> children = this.getChildren(node);
+            if (children == null) {
+                return null;
+            }
+
+            Node child = children.get(part);
+            if (child == null) {
+                // Names in the cache are matched exactly, but the underlying file system may be case-insensitive. We
+                // fall back to the disk (without caching the result) so the behaviour is the same as before.
+                File file = new File(node.file, part);
+                if (!file.exists()) {
+                    return null;
+                }
+                child = new Node(file);
+            }
+            node = child;
+        }
+
+        return node;
+    }
+
+    /**
+     * Find the node for a path, without loading anything from disk.
+     *
+     * @param path The path to find.
+     * @return The node for this path, or {@code null} if it is not cached.
+     */
+    @Nullable
+    private Node getCachedNode(String path) {
+        Node node = this.m_root;
+        if (path.isEmpty()) {
+            return node;
+        }
+
+        for (String part : path.split("/")) {
+            Map<String, Node> children = node.children;
+            node = children == null ? null : children.get(part);
+            if (node == null) {
+                return null;
+            }
+        }
+        return node;
+    }
+
+    @Nullable
+    private static BasicFileAttributes getAttributes(Node node) {
+        BasicFileAttributes attributes = node.attributes;
+        if (attributes == null) {
+            try {
+                node.attributes = attributes = Files.readAttributes(node.file.toPath(), BasicFileAttributes.class);
+            } catch (IOException e) {
+                return null;
+            }
+        }
+        return attributes;
+    }
+
+    /**
+     * Get the children of a directory node, loading them if needed.
+     *
+     * @param node The directory.
+     * @return The children of this directory, or {@code null} if this is not a directory.
+     */
+    @Nullable
+    private Map<String, Node> getChildren(Node node) {
+        if (!node.listed) {
+            BasicFileAttributes attributes = getAttributes(node);
+            String[] names = attributes != null && attributes.isDirectory() ? node.file.list() : null;
+            if (names == null) {
+                return null;
+            }
+
+            // Keep the existing nodes where possible, so we don't need to stat them again.
+            Map<String, Node> previous = node.children;
+            Map<String, Node> children = new ConcurrentHashMap<>(names.length);
+            for (String name : names) {
+                Node child = previous == null ? null : previous.get(name);
+                children.put(name, child != null ? child : new Node(new File(node.file, name)));
+            }
+
+            // Two readers may list the same directory at once, in which case either listing is fine to keep.
+            node.children = children;
+            node.listed = true;
+        }
+
+        return node.children;
+    }
+
+    /**
+     * Update the cache after a file or directory has been created, deleted or replaced.
+     *
+     * @param path The path which was changed.
+     */
+    private synchronized void changed(String path) {
+        if (path.isEmpty()) {
+            this.m_root = new Node(this.m_rootPath);
+            return;
+        }
+
+        Node parent = this.getCachedNode(FileSystem.getDirectory(path));
+        if (parent == null) {
+            return;
+        }
+
+        parent.attributes = null;
+        Map<String, Node> children = parent.children;
+        if (children == null) {
+            return;
+        }
+
+        String name = FileSystem.getName(path);
+        if (children.containsKey(name)) {
+            File file = new File(parent.file, name);
+            if (file.exists()) {
+                children.put(name, new Node(file));
+            } else {
+                children.remove(name);
+            }
+        } else {
+            // This is either a new file, or one which is cased differently on disk. Reload the listing the next time
+            // it is used.
+            parent.listed = false;
+        }
+    }
+
+    /**
+     * Update the cache after a file's contents have changed.
+     *
+     * @param path The path which was written to.
+     */
+    private synchronized void modified(String path) {
+        Node node = this.getCachedNode(path);
+        if (node != null) {
+            node.attributes = null;
+        }
+    }
+
+    /**
+     * A cached file or directory. Fields are filled in lazily by readers, so are volatile to be safely shared between
+     * threads.
+     */
+    private static final class Node {
+        final File file;
+
+        /**
+         * The attributes of this file, or {@code null} if they have not been loaded yet.
+         */
+        @Nullable volatile BasicFileAttributes attributes;
+
+        /**
+         * The children of this directory. This may be out-of-date if {@link #listed} is false.
+         */
+        @Nullable volatile Map<String, Node> children;
+        volatile boolean listed;
+
+        Node(File file) {
+            this.file = file;
+        }
+    }
+
     private static class Visitor extends SimpleFileVisitor<Path> {
+        private final Path root;
+        private final Collection<String> directories;
         long size;
 
+        Visitor(Path root, Collection<String> directories) {
+            this.root = root;
+            this.directories = directories;
+        }
+
         @Override
         public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
             this.size += MINIMUM_FILE_SIZE;
+            this.directories.add(this.root.relativize(dir)
+                                          .toString()
+                                          .replace(File.separatorChar, '/'));
             return FileVisitResult.CONTINUE;
         }
 
@@ -303,33 +758,220 @@ public class FileMount implements IWritableMount {
         }
     }
 
-    private class WritableCountingChannel implements WritableByteChannel {
+    /**
+     * Measures the used space of this mount, once no ledger could be loaded.
+     */
+    private final class Rebuild extends FutureTask<Long> {
+        final List<String> directories;
 
+        Rebuild() {
+            this(new ArrayList<>());
+        }
+
+        private Rebuild(List<String> directories) {
+            super(() -> measureUsedSpace(FileMount.this.m_rootPath, directories));
+            this.directories = directories;
+        }
+
+        @Override
+        protected void done() {
+            FileMount.this.finishRebuild(this);
+        }
+    }
+
+    /**
+     * Write any buffered data in every open file. This should be called when the world is saved.
+     */
+    public static void flushAll() {
+        List<WritableCountingChannel> channels;
+        synchronized (openChannels) {
+            channels = new ArrayList<>(openChannels);
+        }
+
+        for (WritableCountingChannel channel : channels) {
+            channel.flushQuietly();
+        }
+    }
+
+    /**
+     * A channel which charges writes against this mount's capacity, and collects small writes into a buffer.
+     *
+     * Writes are charged as soon as they are made, even if they are only buffered, so running out of space is always
+     * reported by the write which caused it. The buffer is written out when it is full, a short while after it was
+     * first written to (see {@link ComputerCraft#fileFlushInterval}), when the world is saved, and when the channel is
+     * flushed or closed.
+     *
+     * If the buffer cannot be written, its contents are kept so the next flush can try again, and a failure in the
+     * background is reported by the next operation on the channel. Space charged for bytes which never reach the file
+     * is given back to the mount.
+     */
+    private class WritableCountingChannel implements WritableByteChannel, Flushable, WriteListener.Target {
+        private final String m_path;
         private final WritableByteChannel m_inner;
+        @Nullable private final ByteBuffer m_buffer;
+        private WriteListener m_listener = WriteListener.NONE;
+        private boolean m_flushScheduled;
+
+        /**
+         * An error from flushing the buffer in the background, to be reported by the next operation.
+         */
+        @Nullable private IOException m_error;
+
         long m_ignoredBytesLeft;
 
-        WritableCountingChannel(WritableByteChannel inner, long bytesToIgnore) {
+        /**
+         * The space charged against the mount for writes since the last seek. If written bytes never reach the file,
+         * they are refunded from this.
+         */
+        long m_charged;
+
+        WritableCountingChannel(String path, WritableByteChannel inner, long bytesToIgnore) {
+            this.m_path = path;
             this.m_inner = inner;
             this.m_ignoredBytesLeft = bytesToIgnore;
+
+            int bufferSize = ComputerCraft.fileWriteBuffer;
+            this.m_buffer = bufferSize > 0 ? ByteBuffer.allocate(bufferSize) : null;
+            if (this.m_buffer != null) {
+                synchronized (openChannels) {
+                    openChannels.add(this);
+                }
+            }
         }
 
         @Override
-        public int write(@Nonnull ByteBuffer b) throws IOException {
-            this.count(b.remaining());
-            return this.m_inner.write(b);
+        public void setWriteListener(@Nonnull WriteListener listener) {
+            this.m_listener = listener;
         }
 
-        void count(long n) throws IOException {
-            this.m_ignoredBytesLeft -= n;
-            if (this.m_ignoredBytesLeft < 0) {
-                long newBytes = -this.m_ignoredBytesLeft;
-                this.m_ignoredBytesLeft = 0;
-
-                long bytesLeft = FileMount.this.m_capacity - FileMount.this.m_usedSpace;
-                if (newBytes > bytesLeft) {
-                    throw new IOException("Out of space");
+        @Override
+        public synchronized int write(@Nonnull ByteBuffer b) throws IOException {
+            if (!this.m_inner.isOpen()) {
+                throw new ClosedChannelException();
+            }
+            this.checkError();
+
+            // Make room for this write before charging for it, so a failed flush does not charge for bytes we never take.
+            int count = b.remaining();
+            if (this.m_buffer == null || count >= this.m_buffer.capacity()) {
+                // Large writes gain nothing from the buffer, so go directly to the file.
+                this.writeBuffer();
+                this.count(count);
+                FileMount.this.modified(this.m_path);
+                this.m_listener.written(count);
+                try {
+                    this.writeFully(b);
+                } catch (IOException e) {
+                    this.uncount(b.remaining());
+                    throw e;
+                }
+            } else {
+                if (count > this.m_buffer.remaining()) {
+                    this.writeBuffer();
                 }
-                FileMount.this.m_usedSpace += newBytes;
+                this.count(count);
+                FileMount.this.modified(this.m_path);
+                this.m_listener.written(count);
+                this.m_buffer.put(b);
+                this.scheduleFlush();
+            }
+
+            return count;
+        }
+
+        void count(long n) throws IOException {
+            long newBytes = n - this.m_ignoredBytesLeft;
+            if (newBytes <= 0) {
+                this.m_ignoredBytesLeft -= n;
+                return;
+            }
+
+            long bytesLeft = FileMount.this.m_capacity - FileMount.this.m_usedSpace;
+            if (newBytes > bytesLeft) {
+                throw new IOException("Out of space");
+            }
+            this.m_ignoredBytesLeft = 0;
+            this.m_charged += newBytes;
+            FileMount.this.addUsedSpace(newBytes);
+        }
+
+        /**
+         * Undo {@link #count(long)} for the most recently counted bytes, as they could not be written.
+         *
+         * @param n The number of bytes to give back.
+         */
+        void uncount(long n) {
+            long refund = Math.min(n, this.m_charged);
+            this.m_charged -= refund;
+            this.m_ignoredBytesLeft += n - refund;
+            if (refund > 0) {
+                FileMount.this.addUsedSpace(-refund);
+            }
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            if (!this.m_inner.isOpen()) {
+                throw new ClosedChannelException();
+            }
+            this.checkError();
+            this.writeBuffer();
+            this.m_listener.flushed();
+        }
+
+        synchronized void flushQuietly() {
+            this.m_flushScheduled = false;
+            if (!this.m_inner.isOpen() || this.m_buffer == null || this.m_buffer.position() == 0) {
+                return;
+            }
+
+            try {
+                this.writeBuffer();
+                this.m_listener.flushed();
+            } catch (IOException e) {
+                this.m_error = e;
+            }
+        }
+
+        private void scheduleFlush() {
+            long interval = ComputerCraft.fileFlushInterval;
+            if (!this.m_flushScheduled && interval > 0) {
+                this.m_flushScheduled = true;
+                FLUSH_EXECUTOR.schedule(this::flushQuietly, interval, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        void writeBuffer() throws IOException {
+            if (this.m_buffer == null || this.m_buffer.position() == 0) {
+                return;
+            }
+
+            this.m_buffer.flip();
+            try {
+                this.writeFully(this.m_buffer);
+            } finally {
+                // Keep anything we failed to write, so the next flush tries again.
+                this.m_buffer.compact();
+                FileMount.this.modified(this.m_path);
+            }
+        }
+
+        int bufferedBytes() {
+            return this.m_buffer == null ? 0 : this.m_buffer.position();
+        }
+
+        private void writeFully(ByteBuffer b) throws IOException {
+            while (b.hasRemaining()) {
+                this.m_inner.write(b);
+                this.m_listener.syscall();
+            }
+        }
+
+        void checkError() throws IOException {
+            IOException error = this.m_error;
+            if (error != null) {
+                this.m_error = null;
+                throw error;
             }
         }
 
@@ -339,16 +981,47 @@ public class FileMount implements IWritableMount {
         }
 
         @Override
-        public void close() throws IOException {
-            this.m_inner.close();
+        public synchronized void close() throws IOException {
+            try {
+                boolean open = this.m_inner.isOpen();
+                try {
+                    if (open) {
+                        try {
+                            this.writeBuffer();
+                        } catch (IOException e) {
+                            // This is our last chance to write the buffer, so give back the space for what is left.
+                            this.uncount(this.bufferedBytes());
+                            throw e;
+                        }
+                        this.checkError();
+                    }
+                } finally {
+                    this.m_inner.close();
+                    if (open) {
+                        FileMount.this.closedWriter(this.m_path);
+                    }
+                    if (this.m_buffer != null) {
+                        synchronized (openChannels) {
+                            openChannels.remove(this);
+                        }
+                    }
+                }
+
+                if (open && FileMount.this.m_store != null) {
+                    // Hashing large files may take a while, so don't hold up the computer closing it.
+                    ContentStore.EXECUTOR.execute(() -> FileMount.this.deduplicate(this.m_path));
+                }
+            } finally {
+                FileMount.this.modified(this.m_path);
+            }
         }
     }
 
     private class SeekableCountingChannel extends WritableCountingChannel implements SeekableByteChannel {
         private final SeekableByteChannel m_inner;
 
-        SeekableCountingChannel(SeekableByteChannel inner, long bytesToIgnore) {
-            super(inner, bytesToIgnore);
+        SeekableCountingChannel(String path, SeekableByteChannel inner, long bytesToIgnore) {
+            super(path, inner, bytesToIgnore);
             this.m_inner = inner;
         }
 
@@ -361,12 +1034,12 @@ public class FileMount implements IWritableMount {
         }
 
         @Override
-        public long position() throws IOException {
-            return this.m_inner.position();
+        public synchronized long position() throws IOException {
+            return this.m_inner.position() + this.bufferedBytes();
         }
 
         @Override
-        public SeekableByteChannel position(long newPosition) throws IOException {
+        public synchronized SeekableByteChannel position(long newPosition) throws IOException {
             if (!this.isOpen()) {
                 throw new ClosedChannelException();
             }
@@ -374,18 +1047,24 @@ public class FileMount implements IWritableMount {
                 throw new IllegalArgumentException("Cannot seek before the beginning of the stream");
             }
 
+            this.checkError();
+            this.writeBuffer();
+
             long delta = newPosition - this.m_inner.position();
             if (delta < 0) {
                 this.m_ignoredBytesLeft -= delta;
+                this.m_charged = 0;
             } else {
                 this.count(delta);
             }
 
-            return this.m_inner.position(newPosition);
+            this.m_inner.position(newPosition);
+            return this;
         }
 
         @Override
-        public long size() throws IOException {
+        public synchronized long size() throws IOException {
+            this.writeBuffer();
             return this.m_inner.size();
         }
 
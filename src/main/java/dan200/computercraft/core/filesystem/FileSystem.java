@@ -24,9 +24,17 @@ import java.nio.channels.WritableByteChannel;
 import java.nio.file.AccessDeniedException;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
+import java.util.concurrent.locks.Lock;
 import java.util.function.Function;
 import java.util.regex.Pattern;
 
+/**
+ * A computer's file system, made up of several mounts.
+ *
+ * The mount table is copy-on-write, so looking up a mount never blocks. Each mount then has its own read/write lock
+ * (see {@link MountWrapper}), meaning operations on different mounts, and reads from the same mount, may run in
+ * parallel.
+ */
 public class FileSystem
 {
     /**
@@ -38,10 +46,11 @@ public class FileSystem
     private static final int MAX_COPY_DEPTH = 128;
 
     private final FileSystemWrapperMount wrapper = new FileSystemWrapperMount( this );
-    private final Map<String, MountWrapper> mounts = new HashMap<>();
+    private volatile Map<String, MountWrapper> mounts = Collections.emptyMap();
 
     private final HashMap<WeakReference<FileSystemWrapper<?>>, ChannelWrapper<?>> openFiles = new HashMap<>();
     private final ReferenceQueue<FileSystemWrapper<?>> openFileQueue = new ReferenceQueue<>();
+    private volatile boolean closed;
 
     public FileSystem( String rootLabel, IMount rootMount ) throws FileSystemException
     {
@@ -55,6 +64,8 @@ public class FileSystem
 
     public void close()
     {
+        closed = true;
+
         // Close all dangling open files
         synchronized( openFiles )
         {
@@ -64,6 +75,16 @@ public class FileSystem
         }
     }
 
+    /**
+     * Whether this file system is still in use, or the computer using it has been shut down.
+     *
+     * @return If this file system has not been closed.
+     */
+    public boolean isOpen()
+    {
+        return !closed;
+    }
+
     public synchronized void mount( String label, String location, IMount mount ) throws FileSystemException
     {
         if( mount == null ) throw new NullPointerException();
@@ -88,15 +109,21 @@ public class FileSystem
 
     private synchronized void mount( MountWrapper wrapper )
     {
-        String location = wrapper.getLocation();
-        mounts.remove( location );
-        mounts.put( location, wrapper );
+        Map<String, MountWrapper> mounts = new HashMap<>( this.mounts );
+        mounts.put( wrapper.getLocation(), wrapper );
+        this.mounts = Collections.unmodifiableMap( mounts );
     }
 
-    public synchronized void unmount( String path )
+    public void unmount( String path )
     {
-        MountWrapper mount = mounts.remove( sanitizePath( path ) );
-        if( mount == null ) return;
+        MountWrapper mount;
+        synchronized( this )
+        {
+            Map<String, MountWrapper> mounts = new HashMap<>( this.mounts );
+            mount = mounts.remove( sanitizePath( path ) );
+            if( mount == null ) return;
+            this.mounts = Collections.unmodifiableMap( mounts );
+        }
 
         cleanup();
 
@@ -167,17 +194,17 @@ public class FileSystem
         return lastSlash >= 0 ? path.substring( lastSlash + 1 ) : path;
     }
 
-    public synchronized long getSize( String path ) throws FileSystemException
+    public long getSize( String path ) throws FileSystemException
     {
         return getMount( sanitizePath( path ) ).getSize( sanitizePath( path ) );
     }
 
-    public synchronized BasicFileAttributes getAttributes( String path ) throws FileSystemException
+    public BasicFileAttributes getAttributes( String path ) throws FileSystemException
     {
         return getMount( sanitizePath( path ) ).getAttributes( sanitizePath( path ) );
     }
 
-    public synchronized String[] list( String path ) throws FileSystemException
+    public String[] list( String path ) throws FileSystemException
     {
         path = sanitizePath( path );
         MountWrapper mount = getMount( path );
@@ -187,7 +214,7 @@ public class FileSystem
         mount.list( path, list );
 
         // Add any mounts that are mounted at this location
-        for( MountWrapper otherMount : mounts.values() )
+        for( MountWrapper otherMount : this.mounts.values() )
         {
             if( getDirectory( otherMount.getLocation() ).equals( path ) )
             {
@@ -202,24 +229,60 @@ public class FileSystem
         return array;
     }
 
-    private void findIn( String dir, List<String> matches, Pattern wildPattern ) throws FileSystemException
+    /**
+     * Find all files under a directory matching the remaining segments of a wildcard path.
+     *
+     * As a wildcard never matches a {@code /}, every match has exactly one path segment per pattern segment. This means
+     * we only need to visit directories at the depth the pattern allows, and can skip listing every child when a
+     * segment has no wildcard at all.
+     *
+     * @param dir      The directory to search in, which should exist.
+     * @param segments The pattern for each remaining path segment. This is {@code null} for segments without a wildcard.
+     * @param names    The literal name of each remaining segment.
+     * @param index    The current segment.
+     * @param matches  The list to add matching paths to.
+     * @throws FileSystemException If a directory could not be read.
+     */
+    private void findIn( String dir, Pattern[] segments, String[] names, int index, List<String> matches ) throws FileSystemException
     {
+        boolean last = index == segments.length - 1;
         String[] list = list( dir );
+        if( segments[index] == null )
+        {
+            // The listing is sorted, so we can look up literal segments directly. This ensures names are matched
+            // exactly, even on case-insensitive file systems.
+            String entry = names[index];
+            if( Arrays.binarySearch( list, entry ) < 0 ) return;
+
+            String entryPath = dir.isEmpty() ? entry : dir + "/" + entry;
+            if( last )
+            {
+                matches.add( entryPath );
+            }
+            else if( isDir( entryPath ) )
+            {
+                findIn( entryPath, segments, names, index + 1, matches );
+            }
+            return;
+        }
+
         for( String entry : list )
         {
+            if( !segments[index].matcher( entry ).matches() ) continue;
+
             String entryPath = dir.isEmpty() ? entry : dir + "/" + entry;
-            if( wildPattern.matcher( entryPath ).matches() )
+            if( last )
             {
                 matches.add( entryPath );
             }
-            if( isDir( entryPath ) )
+            else if( isDir( entryPath ) )
             {
-                findIn( entryPath, matches, wildPattern );
+                findIn( entryPath, segments, names, index + 1, matches );
             }
         }
     }
 
-    public synchronized String[] find( String wildPath ) throws FileSystemException
+    public String[] find( String wildPath ) throws FileSystemException
     {
         // Match all the files on the system
         wildPath = sanitizePath( wildPath, true );
@@ -238,10 +301,20 @@ public class FileSystem
         // If this isn't a directory then just abort
         if( !isDir( startDir ) ) return new String[0];
 
+        // Split the rest of the path into segments, compiling a pattern for each one containing a wildcard.
+        String[] names = wildPath.substring( prevDir + 1 ).split( "/" );
+        Pattern[] segments = new Pattern[names.length];
+        for( int i = 0; i < names.length; i++ )
+        {
+            if( names[i].indexOf( '*' ) >= 0 )
+            {
+                segments[i] = Pattern.compile( "^\\Q" + names[i].replaceAll( "\\*", "\\\\E.*\\\\Q" ) + "\\E$" );
+            }
+        }
+
         // Scan as normal, starting from this directory
-        Pattern wildPattern = Pattern.compile( "^\\Q" + wildPath.replaceAll( "\\*", "\\\\E[^\\\\/]*\\\\Q" ) + "\\E$" );
         List<String> matches = new ArrayList<>();
-        findIn( startDir, matches, wildPattern );
+        findIn( startDir, segments, names, 0, matches );
 
         // Return matches
         String[] array = new String[matches.size()];
@@ -249,49 +322,49 @@ public class FileSystem
         return array;
     }
 
-    public synchronized boolean exists( String path ) throws FileSystemException
+    public boolean exists( String path ) throws FileSystemException
     {
         path = sanitizePath( path );
         MountWrapper mount = getMount( path );
         return mount.exists( path );
     }
 
-    public synchronized boolean isDir( String path ) throws FileSystemException
+    public boolean isDir( String path ) throws FileSystemException
     {
         path = sanitizePath( path );
         MountWrapper mount = getMount( path );
         return mount.isDirectory( path );
     }
 
-    public synchronized boolean isReadOnly( String path ) throws FileSystemException
+    public boolean isReadOnly( String path ) throws FileSystemException
     {
         path = sanitizePath( path );
         MountWrapper mount = getMount( path );
         return mount.isReadOnly( path );
     }
 
-    public synchronized String getMountLabel( String path ) throws FileSystemException
+    public String getMountLabel( String path ) throws FileSystemException
     {
         path = sanitizePath( path );
         MountWrapper mount = getMount( path );
         return mount.getLabel();
     }
 
-    public synchronized void makeDir( String path ) throws FileSystemException
+    public void makeDir( String path ) throws FileSystemException
     {
         path = sanitizePath( path );
         MountWrapper mount = getMount( path );
         mount.makeDirectory( path );
     }
 
-    public synchronized void delete( String path ) throws FileSystemException
+    public void delete( String path ) throws FileSystemException
     {
         path = sanitizePath( path );
         MountWrapper mount = getMount( path );
         mount.delete( path );
     }
 
-    public synchronized void move( String sourcePath, String destPath ) throws FileSystemException
+    public void move( String sourcePath, String destPath ) throws FileSystemException
     {
         sourcePath = sanitizePath( sourcePath );
         destPath = sanitizePath( destPath );
@@ -299,6 +372,20 @@ public class FileSystem
         {
             throw new FileSystemException( "Access denied" );
         }
+
+        Lock[] locks = MountWrapper.lock( getMount( sourcePath ), true, getMount( destPath ) );
+        try
+        {
+            moveLocked( sourcePath, destPath );
+        }
+        finally
+        {
+            MountWrapper.unlock( locks );
+        }
+    }
+
+    private void moveLocked( String sourcePath, String destPath ) throws FileSystemException
+    {
         if( !exists( sourcePath ) )
         {
             throw new FileSystemException( "No such file" );
@@ -311,11 +398,11 @@ public class FileSystem
         {
             throw new FileSystemException( "Can't move a directory inside itself" );
         }
-        copy( sourcePath, destPath );
+        copyLocked( sourcePath, destPath );
         delete( sourcePath );
     }
 
-    public synchronized void copy( String sourcePath, String destPath ) throws FileSystemException
+    public void copy( String sourcePath, String destPath ) throws FileSystemException
     {
         sourcePath = sanitizePath( sourcePath );
         destPath = sanitizePath( destPath );
@@ -323,6 +410,20 @@ public class FileSystem
         {
             throw new FileSystemException( "/" + destPath + ": Access denied" );
         }
+
+        Lock[] locks = MountWrapper.lock( getMount( sourcePath ), false, getMount( destPath ) );
+        try
+        {
+            copyLocked( sourcePath, destPath );
+        }
+        finally
+        {
+            MountWrapper.unlock( locks );
+        }
+    }
+
+    private void copyLocked( String sourcePath, String destPath ) throws FileSystemException
+    {
         if( !exists( sourcePath ) )
         {
             throw new FileSystemException( "/" + sourcePath + ": No such file" );
@@ -338,8 +439,9 @@ public class FileSystem
         copyRecursive( sourcePath, getMount( sourcePath ), destPath, getMount( destPath ), 0 );
     }
 
-    private synchronized void copyRecursive( String sourcePath, MountWrapper sourceMount, String destinationPath, MountWrapper destinationMount, int depth ) throws FileSystemException
+    private void copyRecursive( String sourcePath, MountWrapper sourceMount, String destinationPath, MountWrapper destinationMount, int depth ) throws FileSystemException
     {
+        if( closed ) throw new FileSystemException( "File system has been closed" );
         if( !sourceMount.exists( sourcePath ) ) return;
         if( depth >= MAX_COPY_DEPTH ) throw new FileSystemException( "Too many directories to copy" );
 
@@ -364,6 +466,9 @@ public class FileSystem
         else
         {
             // Copy a file:
+            // Mounts sharing a content store can link the file instead.
+            if( destinationMount.tryCopyFrom( sourceMount, sourcePath, destinationPath ) ) return;
+
             try( ReadableByteChannel source = sourceMount.openForRead( sourcePath );
                  WritableByteChannel destination = destinationMount.openForWrite( destinationPath ) )
             {
@@ -393,10 +498,19 @@ public class FileSystem
         }
     }
 
-    private synchronized <T extends Closeable> FileSystemWrapper<T> openFile( @Nonnull MountWrapper mount, @Nonnull Channel channel, @Nonnull T file ) throws FileSystemException
+    private <T extends Closeable> FileSystemWrapper<T> openFile( @Nonnull MountWrapper mount, @Nonnull Channel channel, @Nonnull T file ) throws FileSystemException
     {
         synchronized( openFiles )
         {
+            // The mount may have been removed while we were opening the file. As unmount closes files while holding
+            // this lock, checking here means we can never leave a file open on an unmounted disk.
+            if( mounts.get( mount.getLocation() ) != mount )
+            {
+                IoUtil.closeQuietly( file );
+                IoUtil.closeQuietly( channel );
+                throw new FileSystemException( "/" + mount.getLocation() + ": Invalid Path" );
+            }
+
             if( ComputerCraft.maximumFilesOpen > 0 &&
                 openFiles.size() >= ComputerCraft.maximumFilesOpen )
             {
@@ -420,7 +534,7 @@ public class FileSystem
         }
     }
 
-    public synchronized <T extends Closeable> FileSystemWrapper<T> openForRead( String path, Function<ReadableByteChannel, T> open ) throws FileSystemException
+    public <T extends Closeable> FileSystemWrapper<T> openForRead( String path, Function<ReadableByteChannel, T> open ) throws FileSystemException
     {
         cleanup();
 
@@ -430,7 +544,7 @@ public class FileSystem
         return channel != null ? openFile( mount, channel, open.apply( channel ) ) : null;
     }
 
-    public synchronized <T extends Closeable> FileSystemWrapper<T> openForWrite( String path, boolean append, Function<WritableByteChannel, T> open ) throws FileSystemException
+    public <T extends Closeable> FileSystemWrapper<T> openForWrite( String path, boolean append, Function<WritableByteChannel, T> open ) throws FileSystemException
     {
         cleanup();
 
@@ -440,7 +554,7 @@ public class FileSystem
         return channel != null ? openFile( mount, channel, open.apply( channel ) ) : null;
     }
 
-    public synchronized long getFreeSpace( String path ) throws FileSystemException
+    public long getFreeSpace( String path ) throws FileSystemException
     {
         path = sanitizePath( path );
         MountWrapper mount = getMount( path );
@@ -448,17 +562,17 @@ public class FileSystem
     }
 
     @Nonnull
-    public synchronized OptionalLong getCapacity( String path ) throws FileSystemException
+    public OptionalLong getCapacity( String path ) throws FileSystemException
     {
         path = sanitizePath( path );
         MountWrapper mount = getMount( path );
         return mount.getCapacity();
     }
 
-    private synchronized MountWrapper getMount( String path ) throws FileSystemException
+    private MountWrapper getMount( String path ) throws FileSystemException
     {
         // Return the deepest mount that contains a given path
-        Iterator<MountWrapper> it = mounts.values().iterator();
+        Iterator<MountWrapper> it = this.mounts.values().iterator();
         MountWrapper match = null;
         int matchLength = 999;
         while( it.hasNext() )
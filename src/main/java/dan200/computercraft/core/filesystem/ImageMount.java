@@ -0,0 +1,1001 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+
+package dan200.computercraft.core.filesystem;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonReadableChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import dan200.computercraft.ComputerCraft;
+import dan200.computercraft.api.filesystem.FileOperationException;
+import dan200.computercraft.api.filesystem.IWritableMount;
+import dan200.computercraft.core.apis.handles.ArrayByteChannel;
+
+/**
+ * A writable mount which stores a whole file system inside a single file, rather than as a directory tree.
+ *
+ * The image is an append-only log of records, each of which creates a directory, replaces the contents of a file, or
+ * deletes a file or directory. The log is replayed into an in-memory index when the mount is opened, so metadata
+ * queries never touch the disk. A record which was only partially written (for instance, due to a crash) fails its
+ * checksum and is discarded. Once most of the image is made up of overwritten or deleted records, it is compacted by
+ * copying the live records to a new image.
+ *
+ * Files are written to the image when their handle is closed, and when the world is saved. As each write appends the
+ * whole file to the image, flushing a handle only writes the file if it has not been written in the last few seconds,
+ * so programs which flush after every line do not rewrite their file on every call.
+ *
+ * The whole image is read into memory when it is opened, and each write appends a full copy of the file. This is only
+ * suitable for small file systems: an image is compacted once its unused records outweigh its live ones, so it is never
+ * much larger than twice the mount's capacity, which bounds both the memory used by {@link #load()} and the size of the
+ * file on disk.
+ *
+ * @see ComputerCraft#packedFileSystems
+ */
+public final class ImageMount implements IWritableMount {
+    private static final int MINIMUM_FILE_SIZE = 500;
+
+    private static final byte[] MAGIC = "CCIMAGE1".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte TYPE_DIRECTORY = 0;
+    private static final byte TYPE_FILE = 1;
+    private static final byte TYPE_DELETE = 2;
+
+    /**
+     * The size of a record, excluding its path and contents: checksum, type, modification time, path length and
+     * contents length.
+     */
+    private static final int RECORD_HEADER = 4 + 1 + 8 + 2 + 4;
+
+    /**
+     * The amount of unused space an image must contain before we consider compacting it. This is kept small, as the
+     * whole image is read into memory when it is opened.
+     */
+    private static final long COMPACT_THRESHOLD = 16 * 1024;
+
+    /**
+     * The minimum time between two flushes of a handle writing its file to the image, in nanoseconds.
+     */
+    private static final long FLUSH_INTERVAL = TimeUnit.SECONDS.toNanos(5);
+
+    private static final Set<WriteChannel> openChannels = Collections.newSetFromMap(new WeakHashMap<>());
+
+    private static final Cache<File, ImageMount> mounts = CacheBuilder.newBuilder()
+                                                                      .weakValues()
+                                                                      .build();
+
+    private final File image;
+    private final long capacity;
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    private long usedSpace;
+    private long length;
+    private long liveBytes;
+
+    ImageMount(File image, long capacity) throws IOException {
+        this.image = image;
+        this.capacity = capacity + MINIMUM_FILE_SIZE;
+        this.usedSpace = MINIMUM_FILE_SIZE;
+
+        long now = System.currentTimeMillis();
+        this.entries.put("", new Entry(true, now));
+        this.load();
+    }
+
+    /**
+     * Open an image, creating it if it does not exist.
+     *
+     * Several mounts may refer to the same image (for instance, a floppy disk inserted into several drives), so
+     * mounts are shared for as long as one of them is in use.
+     *
+     * @param image The image file.
+     * @param capacity The capacity of this mount.
+     * @return The opened mount.
+     * @throws IOException If the image could not be read.
+     */
+    public static ImageMount open(File image, long capacity) throws IOException {
+        try {
+            return mounts.get(image.getAbsoluteFile(), () -> new ImageMount(image, capacity));
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Convert a directory into an image. On success, the directory is moved aside to {@code <name>.migrated}.
+     *
+     * @param directory The directory to read from.
+     * @param image The image to create. This should not exist.
+     * @throws IOException If the directory could not be converted.
+     */
+    public static void pack(File directory, File image) throws IOException {
+        File temp = new File(image.getPath() + ".tmp");
+        Files.deleteIfExists(temp.toPath());
+
+        ImageMount mount = new ImageMount(temp, Long.MAX_VALUE / 2);
+        Path root = directory.toPath();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (!dir.equals(root)) {
+                    mount.makeDirectory(getPath(root, dir));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                try (WritableByteChannel channel = mount.openForWrite(getPath(root, file))) {
+                    channel.write(ByteBuffer.wrap(Files.readAllBytes(file)));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        if (mount.length == 0) {
+            mount.append(TYPE_DIRECTORY, "", System.currentTimeMillis(), null);
+        }
+        move(temp, image);
+        backup(directory);
+        ComputerCraft.log.info("Packed {} into {}", directory, image);
+    }
+
+    /**
+     * Convert an image back into a directory. On success, the image is moved aside to {@code <name>.migrated}.
+     *
+     * @param image The image to read from.
+     * @param directory The directory to create. This should not exist.
+     * @throws IOException If the image could not be converted.
+     */
+    public static void unpack(File image, File directory) throws IOException {
+        ImageMount mount = new ImageMount(image, Long.MAX_VALUE / 2);
+        File temp = new File(directory.getPath() + ".tmp");
+        deleteRecursively(temp);
+
+        ArrayDeque<String> queue = new ArrayDeque<>();
+        queue.add("");
+        while (!queue.isEmpty()) {
+            String path = queue.remove();
+            Entry entry = mount.entries.get(path);
+            File file = new File(temp, path);
+            if (entry.directory) {
+                Files.createDirectories(file.toPath());
+                for (String child : entry.children) {
+                    queue.add(path.isEmpty() ? child : path + "/" + child);
+                }
+            } else {
+                Files.write(file.toPath(), mount.read(entry));
+            }
+        }
+
+        move(temp, directory);
+        backup(image);
+        ComputerCraft.log.info("Unpacked {} into {}", image, directory);
+    }
+
+    // IMount implementation
+
+    @Override
+    public synchronized boolean exists(@Nonnull String path) {
+        return this.entries.containsKey(path);
+    }
+
+    @Override
+    public synchronized boolean isDirectory(@Nonnull String path) {
+        Entry entry = this.entries.get(path);
+        return entry != null && entry.directory;
+    }
+
+    @Override
+    public synchronized void list(@Nonnull String path, @Nonnull List<String> contents) throws IOException {
+        Entry entry = this.entries.get(path);
+        if (entry == null || !entry.directory) {
+            throw new FileOperationException(path, "Not a directory");
+        }
+        contents.addAll(entry.children);
+    }
+
+    @Override
+    public synchronized long getSize(@Nonnull String path) throws IOException {
+        return this.getEntry(path).length;
+    }
+
+    @Nonnull
+    @Override
+    public synchronized BasicFileAttributes getAttributes(@Nonnull String path) throws IOException {
+        return this.getEntry(path);
+    }
+
+    @Nonnull
+    @Override
+    public synchronized ReadableByteChannel openForRead(@Nonnull String path) throws IOException {
+        Entry entry = this.entries.get(path);
+        if (entry == null || entry.directory) {
+            throw new FileOperationException(path, "No such file");
+        }
+        return new ArrayByteChannel(this.read(entry));
+    }
+
+    // IWritableMount implementation
+
+    @Override
+    public synchronized void makeDirectory(@Nonnull String path) throws IOException {
+        Entry existing = this.entries.get(path);
+        if (existing != null) {
+            if (!existing.directory) {
+                throw new FileOperationException(path, "File exists");
+            }
+            return;
+        }
+
+        // Find all directories which need to be created, outermost first.
+        List<String> toCreate = new ArrayList<>();
+        for (String dir = path; !this.entries.containsKey(dir); dir = FileSystem.getDirectory(dir)) {
+            toCreate.add(0, dir);
+        }
+        if (!this.entries.get(FileSystem.getDirectory(toCreate.get(0))).directory) {
+            throw new FileOperationException(path, "Access denied");
+        }
+        if (this.getRemainingSpace() < (long) toCreate.size() * MINIMUM_FILE_SIZE) {
+            throw new FileOperationException(path, "Out of space");
+        }
+
+        for (String dir : toCreate) {
+            long now = System.currentTimeMillis();
+            this.append(TYPE_DIRECTORY, dir, now, null);
+
+            Entry entry = new Entry(true, now);
+            entry.recordSize = recordHeader(dir);
+            this.add(dir, entry);
+            this.liveBytes += entry.recordSize;
+        }
+    }
+
+    @Override
+    public synchronized void delete(@Nonnull String path) throws IOException {
+        if (path.isEmpty()) {
+            throw new FileOperationException(path, "Access denied");
+        }
+
+        Entry entry = this.entries.get(path);
+        if (entry == null) {
+            return;
+        }
+
+        this.append(TYPE_DELETE, path, System.currentTimeMillis(), null);
+        this.remove(path, entry);
+        this.maybeCompact();
+    }
+
+    @Nonnull
+    @Override
+    public synchronized WritableByteChannel openForWrite(@Nonnull String path) throws IOException {
+        Entry existing = this.entries.get(path);
+        if (existing != null && existing.directory) {
+            throw new FileOperationException(path, "Cannot write to directory");
+        }
+
+        String dir = FileSystem.getDirectory(path);
+        if (!this.entries.containsKey(dir)) {
+            this.makeDirectory(dir);
+        }
+
+        if (existing == null && this.getRemainingSpace() < MINIMUM_FILE_SIZE) {
+            throw new FileOperationException(path, "Out of space");
+        }
+
+        // Like truncating a file on disk, the file is immediately replaced with an empty one. This is only written to
+        // the image once the channel is flushed or closed.
+        long now = System.currentTimeMillis();
+        Entry entry = new Entry(false, existing == null ? now : existing.created);
+        entry.modified = now;
+        if (existing != null) {
+            this.remove(path, existing);
+        }
+        this.add(path, entry);
+        return new SeekableWriteChannel(path, entry, new byte[0]);
+    }
+
+    @Nonnull
+    @Override
+    public synchronized WritableByteChannel openForAppend(@Nonnull String path) throws IOException {
+        Entry entry = this.entries.get(path);
+        if (entry == null) {
+            throw new FileOperationException(path, "No such file");
+        }
+        if (entry.directory) {
+            throw new FileOperationException(path, "Cannot write to directory");
+        }
+
+        // Allowing seeking when appending is not recommended, so we use a separate channel.
+        return new WriteChannel(path, entry, this.read(entry));
+    }
+
+    @Override
+    public synchronized long getRemainingSpace() {
+        return Math.max(this.capacity - this.usedSpace, 0);
+    }
+
+    @Nonnull
+    @Override
+    public OptionalLong getCapacity() {
+        return OptionalLong.of(this.capacity - MINIMUM_FILE_SIZE);
+    }
+
+    @Nonnull
+    private Entry getEntry(String path) throws FileOperationException {
+        Entry entry = this.entries.get(path);
+        if (entry == null) {
+            throw new FileOperationException(path, "No such file");
+        }
+        return entry;
+    }
+
+    private void add(String path, Entry entry) {
+        this.entries.put(path, entry);
+        this.usedSpace += entry.cost();
+        if (!path.isEmpty()) {
+            this.entries.get(FileSystem.getDirectory(path)).children.add(FileSystem.getName(path));
+        }
+    }
+
+    private void remove(String path, Entry entry) {
+        if (entry.directory) {
+            for (String child : entry.children.toArray(new String[0])) {
+                String childPath = path.isEmpty() ? child : path + "/" + child;
+                this.remove(childPath, this.entries.get(childPath));
+            }
+        }
+
+        this.entries.remove(path);
+        this.usedSpace -= entry.cost();
+        this.liveBytes -= entry.recordSize;
+
+        Entry parent = this.entries.get(FileSystem.getDirectory(path));
+        if (parent != null) {
+            parent.children.remove(FileSystem.getName(path));
+        }
+    }
+
+    /**
+     * Load the image, replaying every record into the index.
+     *
+     * @throws IOException If the image could not be read.
+     */
+    private void load() throws IOException {
+        if (!this.image.exists()) {
+            return;
+        }
+
+        byte[] bytes = Files.readAllBytes(this.image.toPath());
+        if (bytes.length < MAGIC.length || !Arrays.equals(Arrays.copyOf(bytes, MAGIC.length), MAGIC)) {
+            throw new IOException("Not a computer image: " + this.image);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.position(MAGIC.length);
+
+        CRC32 crc = new CRC32();
+        int valid = MAGIC.length;
+        while (buffer.remaining() >= RECORD_HEADER) {
+            int start = buffer.position();
+            int checksum = buffer.getInt();
+            byte type = buffer.get();
+            long modified = buffer.getLong();
+            int pathLength = buffer.getShort() & 0xFFFF;
+            if (buffer.remaining() < pathLength + 4) {
+                break;
+            }
+
+            String path = new String(bytes, buffer.position(), pathLength, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + pathLength);
+            int dataLength = buffer.getInt();
+            if (dataLength < 0 || buffer.remaining() < dataLength) {
+                break;
+            }
+
+            int dataOffset = buffer.position();
+            buffer.position(dataOffset + dataLength);
+
+            crc.reset();
+            crc.update(bytes, start + 4, buffer.position() - start - 4);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+
+            this.replay(type, path, modified, dataOffset, dataLength, buffer.position() - start);
+            valid = buffer.position();
+        }
+
+        if (valid < bytes.length) {
+            // The last record was only partially written, most likely due to a crash. Discard it, so that later
+            // records are not written after it.
+            ComputerCraft.log.warn("Discarding {} bytes of incomplete records from {}", bytes.length - valid, this.image);
+            try (FileChannel channel = FileChannel.open(this.image.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(valid);
+            }
+        }
+
+        this.length = valid;
+    }
+
+    private void replay(byte type, String path, long modified, int dataOffset, int dataLength, int recordSize) {
+        Entry existing = this.entries.get(path);
+        Entry parent = this.entries.get(FileSystem.getDirectory(path));
+        switch (type) {
+            case TYPE_DIRECTORY:
+                if (existing == null && parent != null && parent.directory) {
+                    Entry entry = new Entry(true, modified);
+                    entry.recordSize = recordSize;
+                    this.add(path, entry);
+                    this.liveBytes += recordSize;
+                }
+                break;
+            case TYPE_FILE:
+                if ((existing == null || !existing.directory) && parent != null && parent.directory) {
+                    Entry entry = new Entry(false, existing == null ? modified : existing.created);
+                    if (existing != null) {
+                        this.remove(path, existing);
+                    }
+                    entry.modified = modified;
+                    entry.offset = dataOffset;
+                    entry.length = dataLength;
+                    entry.reserved = dataLength;
+                    entry.recordSize = recordSize;
+                    this.add(path, entry);
+                    this.liveBytes += recordSize;
+                }
+                break;
+            case TYPE_DELETE:
+                if (existing != null && !path.isEmpty()) {
+                    this.remove(path, existing);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static int recordHeader(String path) {
+        return RECORD_HEADER + path.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /**
+     * Append a record to the image.
+     *
+     * @param type The type of this record.
+     * @param path The path this record refers to.
+     * @param modified The time the file was modified.
+     * @param data The contents of this file, if this is a file record.
+     * @return The offset of the record's contents within the image.
+     * @throws IOException If the record could not be written.
+     */
+    private long append(byte type, String path, long modified, @Nullable ByteBuffer data) throws IOException {
+        byte[] pathBytes = path.getBytes(StandardCharsets.UTF_8);
+        if (pathBytes.length > 0xFFFF) {
+            throw new FileOperationException(path, "Path too long");
+        }
+
+        int dataLength = data == null ? 0 : data.remaining();
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER + pathBytes.length);
+        header.putInt(0)
+              .put(type)
+              .putLong(modified)
+              .putShort((short) pathBytes.length)
+              .put(pathBytes)
+              .putInt(dataLength);
+
+        CRC32 crc = new CRC32();
+        crc.update(header.array(), 4, header.capacity() - 4);
+        if (data != null) {
+            crc.update(data.duplicate());
+        }
+        header.putInt(0, (int) crc.getValue());
+        header.flip();
+
+        try (FileChannel channel = FileChannel.open(this.image.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if (this.length == 0) {
+                writeFully(channel, ByteBuffer.wrap(MAGIC), 0);
+                this.length = MAGIC.length;
+            }
+
+            long offset = this.length;
+            try {
+                writeFully(channel, header, offset);
+                if (data != null) {
+                    writeFully(channel, data.duplicate(), offset + header.capacity());
+                }
+            } catch (IOException e) {
+                // Remove anything we did write, so a later record is not appended after garbage.
+                channel.truncate(offset);
+                throw e;
+            }
+
+            this.length = offset + header.capacity() + dataLength;
+            return offset + header.capacity();
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private byte[] read(Entry entry) throws IOException {
+        if (entry.offset < 0 || entry.length == 0) {
+            return new byte[0];
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(entry.length);
+        try (FileChannel channel = FileChannel.open(this.image.toPath(), StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, entry.offset + buffer.position()) < 0) {
+                    throw new EOFException("Unexpected end of image");
+                }
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Write the contents of a file to the image.
+     *
+     * @param path The path of the file.
+     * @param entry The entry this file was opened with.
+     * @param contents The file's contents.
+     * @param size The length of the file's contents.
+     * @throws IOException If the file could not be written.
+     */
+    private synchronized void commit(String path, Entry entry, byte[] contents, int size) throws IOException {
+        // If the file has been deleted or replaced since it was opened, then these changes are lost, as they would be
+        // when writing to a deleted file on disk.
+        if (this.entries.get(path) != entry) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long offset = this.append(TYPE_FILE, path, now, ByteBuffer.wrap(contents, 0, size));
+
+        this.liveBytes -= entry.recordSize;
+        entry.offset = offset;
+        entry.length = size;
+        entry.modified = now;
+        entry.recordSize = recordHeader(path) + size;
+        this.liveBytes += entry.recordSize;
+
+        this.maybeCompact();
+    }
+
+    /**
+     * Reserve space for a file which is being written to.
+     *
+     * @param path The path of the file.
+     * @param entry The entry this file was opened with.
+     * @param size The new size of the file.
+     * @throws IOException If there is not enough space for this file.
+     */
+    private synchronized void reserve(String path, Entry entry, long size) throws IOException {
+        if (this.entries.get(path) != entry || size <= entry.reserved) {
+            return;
+        }
+
+        long delta = Math.max(size, MINIMUM_FILE_SIZE) - Math.max(entry.reserved, MINIMUM_FILE_SIZE);
+        if (delta > this.capacity - this.usedSpace) {
+            throw new IOException("Out of space");
+        }
+        this.usedSpace += delta;
+        entry.reserved = size;
+    }
+
+    private void maybeCompact() {
+        long dead = this.length - MAGIC.length - this.liveBytes;
+        if (dead < COMPACT_THRESHOLD || dead < this.liveBytes) {
+            return;
+        }
+
+        try {
+            this.compact();
+        } catch (IOException e) {
+            ComputerCraft.log.error("Cannot compact {}", this.image, e);
+        }
+    }
+
+    /**
+     * Rewrite the image, containing only the records which are still in use.
+     *
+     * @throws IOException If the image could not be rewritten.
+     */
+    private void compact() throws IOException {
+        File temp = new File(this.image.getPath() + ".tmp");
+        Files.deleteIfExists(temp.toPath());
+        ImageMount compacted = new ImageMount(temp, this.capacity);
+
+        // Write the new image, remembering where each file's contents now live. Directories are visited before their
+        // children, so the image can be replayed in order.
+        Map<Entry, long[]> moved = new HashMap<>();
+        ArrayDeque<String> queue = new ArrayDeque<>();
+        queue.add("");
+        while (!queue.isEmpty()) {
+            String path = queue.remove();
+            Entry entry = this.entries.get(path);
+            if (entry.directory) {
+                long offset = compacted.append(TYPE_DIRECTORY, path, entry.modified, null);
+                moved.put(entry, new long[] {offset, recordHeader(path)});
+                for (String child : entry.children) {
+                    queue.add(path.isEmpty() ? child : path + "/" + child);
+                }
+            } else if (entry.offset >= 0) {
+                long offset = compacted.append(TYPE_FILE, path, entry.modified, ByteBuffer.wrap(this.read(entry)));
+                moved.put(entry, new long[] {offset, recordHeader(path) + entry.length});
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        move(temp, this.image);
+
+        this.length = compacted.length;
+        this.liveBytes = 0;
+        for (Map.Entry<Entry, long[]> move : moved.entrySet()) {
+            Entry entry = move.getKey();
+            if (!entry.directory) {
+                entry.offset = move.getValue()[0];
+            }
+            entry.recordSize = move.getValue()[1];
+            this.liveBytes += entry.recordSize;
+        }
+    }
+
+    private static String getPath(Path root, Path path) {
+        return root.relativize(path)
+                   .toString()
+                   .replace(File.separatorChar, '/');
+    }
+
+    private static void move(File from, File to) throws IOException {
+        try {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void backup(File file) throws IOException {
+        File backup = new File(file.getPath() + ".migrated");
+        deleteRecursively(backup);
+        Files.move(file.toPath(), backup.toPath());
+    }
+
+    private static void deleteRecursively(File file) throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+
+        Files.walkFileTree(file.toPath(), new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Write any unsaved changes in every open file to its image. This should be called when the world is saved.
+     */
+    public static void flushAll() {
+        List<WriteChannel> channels;
+        synchronized (openChannels) {
+            channels = new ArrayList<>(openChannels);
+        }
+
+        for (WriteChannel channel : channels) {
+            channel.flushQuietly();
+        }
+    }
+
+    /**
+     * A file or directory within the image. This also serves as the file's attributes.
+     */
+    private static final class Entry implements BasicFileAttributes {
+        final boolean directory;
+        final long created;
+        final Set<String> children;
+
+        long modified;
+
+        /**
+         * The offset of this file's contents within the image, or -1 if it has not been written yet.
+         */
+        long offset = -1;
+        int length;
+
+        /**
+         * The size of this file which has been counted towards the used space. This may be larger than {@link #length}
+         * while the file is being written.
+         */
+        long reserved;
+
+        /**
+         * The size of the record which created this entry, or 0 if it has not been written yet.
+         */
+        long recordSize;
+
+        Entry(boolean directory, long created) {
+            this.directory = directory;
+            this.created = created;
+            this.modified = created;
+            this.children = directory ? new HashSet<>() : null;
+        }
+
+        long cost() {
+            return this.directory ? MINIMUM_FILE_SIZE : Math.max(this.reserved, MINIMUM_FILE_SIZE);
+        }
+
+        @Override
+        public FileTime lastModifiedTime() {
+            return FileTime.fromMillis(this.modified);
+        }
+
+        @Override
+        public FileTime lastAccessTime() {
+            return FileTime.fromMillis(this.modified);
+        }
+
+        @Override
+        public FileTime creationTime() {
+            return FileTime.fromMillis(this.created);
+        }
+
+        @Override
+        public boolean isRegularFile() {
+            return !this.directory;
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return this.directory;
+        }
+
+        @Override
+        public boolean isSymbolicLink() {
+            return false;
+        }
+
+        @Override
+        public boolean isOther() {
+            return false;
+        }
+
+        @Override
+        public long size() {
+            return this.directory ? 0 : this.length;
+        }
+
+        @Override
+        public Object fileKey() {
+            return null;
+        }
+    }
+
+    private class WriteChannel implements WritableByteChannel, Flushable {
+        private final String path;
+        private final Entry entry;
+        byte[] contents;
+        int size;
+        int position;
+        boolean dirty;
+        private boolean open = true;
+        private long nextFlush = System.nanoTime();
+
+        WriteChannel(String path, Entry entry, byte[] contents) {
+            this.path = path;
+            this.entry = entry;
+            this.contents = contents;
+            this.size = contents.length;
+            this.position = contents.length;
+
+            synchronized (openChannels) {
+                openChannels.add(this);
+            }
+        }
+
+        @Override
+        public synchronized int write(ByteBuffer source) throws IOException {
+            if (!this.open) {
+                throw new ClosedChannelException();
+            }
+
+            int count = source.remaining();
+            long end = (long) this.position + count;
+            if (end > Integer.MAX_VALUE) {
+                throw new IOException("Out of space");
+            }
+
+            ImageMount.this.reserve(this.path, this.entry, end);
+            if (end > this.contents.length) {
+                this.contents = Arrays.copyOf(this.contents, (int) Math.min(Integer.MAX_VALUE, Math.max(end, this.contents.length * 2L)));
+            }
+
+            source.get(this.contents, this.position, count);
+            this.position = (int) end;
+            this.size = Math.max(this.size, this.position);
+            this.dirty = true;
+            return count;
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            if (!this.open) {
+                throw new ClosedChannelException();
+            }
+
+            // Writing the file appends all of it to the image, so don't do so more often than needed. Anything left
+            // over is written when the channel is closed or the world is saved.
+            if (this.dirty && System.nanoTime() - this.nextFlush >= 0) {
+                this.commit();
+            }
+        }
+
+        /**
+         * Write any changes to the image, ignoring errors. This is called when the world is saved.
+         */
+        synchronized void flushQuietly() {
+            if (!this.open || !this.dirty) {
+                return;
+            }
+
+            try {
+                this.commit();
+            } catch (IOException e) {
+                ComputerCraft.log.error("Cannot write {} to {}", this.path, ImageMount.this.image, e);
+            }
+        }
+
+        private void commit() throws IOException {
+            this.dirty = false;
+            this.nextFlush = System.nanoTime() + FLUSH_INTERVAL;
+            ImageMount.this.commit(this.path, this.entry, this.contents, this.size);
+        }
+
+        @Override
+        public synchronized boolean isOpen() {
+            return this.open;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (!this.open) {
+                return;
+            }
+
+            try {
+                // Files which are opened and then closed without being written to should still be created.
+                if (this.dirty || this.entry.offset < 0) {
+                    this.commit();
+                }
+            } finally {
+                this.open = false;
+                this.contents = null;
+                synchronized (openChannels) {
+                    openChannels.remove(this);
+                }
+            }
+        }
+    }
+
+    private class SeekableWriteChannel extends WriteChannel implements SeekableByteChannel {
+        SeekableWriteChannel(String path, Entry entry, byte[] contents) {
+            super(path, entry, contents);
+        }
+
+        @Override
+        public synchronized int read(ByteBuffer dst) throws ClosedChannelException {
+            if (!this.isOpen()) {
+                throw new ClosedChannelException();
+            }
+            throw new NonReadableChannelException();
+        }
+
+        @Override
+        public synchronized long position() throws ClosedChannelException {
+            if (!this.isOpen()) {
+                throw new ClosedChannelException();
+            }
+            return this.position;
+        }
+
+        @Override
+        public synchronized SeekableByteChannel position(long newPosition) throws IOException {
+            if (!this.isOpen()) {
+                throw new ClosedChannelException();
+            }
+            if (newPosition < 0) {
+                throw new IllegalArgumentException("Cannot seek before the beginning of the stream");
+            }
+            if (newPosition > Integer.MAX_VALUE) {
+                throw new IOException("Out of space");
+            }
+
+            this.position = (int) newPosition;
+            return this;
+        }
+
+        @Override
+        public synchronized long size() throws ClosedChannelException {
+            if (!this.isOpen()) {
+                throw new ClosedChannelException();
+            }
+            return this.size;
+        }
+
+        @Override
+        public synchronized SeekableByteChannel truncate(long size) throws IOException {
+            if (!this.isOpen()) {
+                throw new ClosedChannelException();
+            }
+            if (size < 0) {
+                throw new IllegalArgumentException("Cannot truncate to a negative size");
+            }
+
+            if (size < this.size) {
+                // Clear the discarded contents, so seeking past the end and writing does not bring them back.
+                Arrays.fill(this.contents, (int) size, this.size, (byte) 0);
+                this.size = (int) size;
+                this.dirty = true;
+            }
+            if (this.position > size) {
+                this.position = (int) size;
+            }
+            return this;
+        }
+    }
+}
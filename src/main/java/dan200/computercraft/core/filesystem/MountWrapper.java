@@ -13,6 +13,10 @@ import java.nio.file.AccessDeniedException;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.List;
 import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -22,12 +26,21 @@ import dan200.computercraft.api.filesystem.IMount;
 import dan200.computercraft.api.filesystem.IWritableMount;
 
 class MountWrapper {
+    private static final AtomicLong nextOrder = new AtomicLong();
+
     private final String label;
     private final String location;
 
     private final IMount mount;
     private final IWritableMount writableMount;
 
+    /**
+     * Guards access to this mount. Operations which only read from the mount may run in parallel, while those which
+     * change it are run one at a time.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final long order = nextOrder.getAndIncrement();
+
     MountWrapper(String label, String location, IMount mount) {
         this.label = label;
         this.location = location;
@@ -42,6 +55,43 @@ class MountWrapper {
         this.writableMount = mount;
     }
 
+    /**
+     * Acquire the locks needed to move or copy files between two mounts. Locks are always acquired in the same order,
+     * so two operations in opposite directions cannot deadlock.
+     *
+     * @param source The mount to read from.
+     * @param writeSource Whether the source mount will also be modified.
+     * @param destination The mount to write to.
+     * @return The acquired locks, which should be released with {@link #unlock(Lock[])}.
+     */
+    static Lock[] lock(MountWrapper source, boolean writeSource, MountWrapper destination) {
+        Lock[] locks;
+        if (source == destination) {
+            locks = new Lock[] {destination.lock.writeLock()};
+        } else {
+            Lock sourceLock = writeSource ? source.lock.writeLock() : source.lock.readLock();
+            Lock destinationLock = destination.lock.writeLock();
+            locks = source.order < destination.order ? new Lock[] {
+                sourceLock,
+                destinationLock
+            } : new Lock[] {
+                destinationLock,
+                sourceLock
+            };
+        }
+
+        for (Lock lock : locks) {
+            lock.lock();
+        }
+        return locks;
+    }
+
+    static void unlock(Lock[] locks) {
+        for (int i = locks.length - 1; i >= 0; i--) {
+            locks[i].unlock();
+        }
+    }
+
     public String getLabel() {
         return this.label;
     }
@@ -72,10 +122,13 @@ class MountWrapper {
 
     public boolean exists(String path) throws FileSystemException {
         path = this.toLocal(path);
+        this.lock.readLock().lock();
         try {
             return this.mount.exists(path);
         } catch (IOException e) {
             throw this.localExceptionOf(path, e);
+        } finally {
+            this.lock.readLock().unlock();
         }
     }
 
@@ -115,15 +168,19 @@ class MountWrapper {
 
     public boolean isDirectory(String path) throws FileSystemException {
         path = this.toLocal(path);
+        this.lock.readLock().lock();
         try {
             return this.mount.exists(path) && this.mount.isDirectory(path);
         } catch (IOException e) {
             throw this.localExceptionOf(path, e);
+        } finally {
+            this.lock.readLock().unlock();
         }
     }
 
     public void list(String path, List<String> contents) throws FileSystemException {
         path = this.toLocal(path);
+        this.lock.readLock().lock();
         try {
             if (!this.mount.exists(path) || !this.mount.isDirectory(path)) {
                 throw this.localExceptionOf(path, "Not a directory");
@@ -132,11 +189,14 @@ class MountWrapper {
             this.mount.list(path, contents);
         } catch (IOException e) {
             throw this.localExceptionOf(path, e);
+        } finally {
+            this.lock.readLock().unlock();
         }
     }
 
     public long getSize(String path) throws FileSystemException {
         path = this.toLocal(path);
+        this.lock.readLock().lock();
         try {
             if (!this.mount.exists(path)) {
                 throw this.localExceptionOf(path, "No such file");
@@ -144,12 +204,15 @@ class MountWrapper {
             return this.mount.isDirectory(path) ? 0 : this.mount.getSize(path);
         } catch (IOException e) {
             throw this.localExceptionOf(path, e);
+        } finally {
+            this.lock.readLock().unlock();
         }
     }
 
     @Nonnull
     public BasicFileAttributes getAttributes(String path) throws FileSystemException {
         path = this.toLocal(path);
+        this.lock.readLock().lock();
         try {
             if (!this.mount.exists(path)) {
                 throw this.localExceptionOf(path, "No such file");
@@ -157,11 +220,14 @@ class MountWrapper {
             return this.mount.getAttributes(path);
         } catch (IOException e) {
             throw this.localExceptionOf(path, e);
+        } finally {
+            this.lock.readLock().unlock();
         }
     }
 
     public ReadableByteChannel openForRead(String path) throws FileSystemException {
         path = this.toLocal(path);
+        this.lock.readLock().lock();
         try {
             if (this.mount.exists(path) && !this.mount.isDirectory(path)) {
                 return this.mount.openForRead(path);
@@ -170,6 +236,8 @@ class MountWrapper {
             }
         } catch (IOException e) {
             throw this.localExceptionOf(path, e);
+        } finally {
+            this.lock.readLock().unlock();
         }
     }
 
@@ -179,6 +247,7 @@ class MountWrapper {
         }
 
         path = this.toLocal(path);
+        this.lock.writeLock().lock();
         try {
             if (this.mount.exists(path)) {
                 if (!this.mount.isDirectory(path)) {
@@ -189,6 +258,35 @@ class MountWrapper {
             }
         } catch (IOException e) {
             throw this.localExceptionOf(path, e);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Attempt to copy a file from another mount without copying its contents.
+     *
+     * @param source The mount to copy from.
+     * @param sourcePath The file to copy.
+     * @param destPath The path to copy to.
+     * @return Whether the file was copied.
+     * @throws FileSystemException If the copy failed and should not be retried.
+     * @see FileMount#copyFrom(FileMount, String, String)
+     */
+    public boolean tryCopyFrom(MountWrapper source, String sourcePath, String destPath) throws FileSystemException {
+        if (!(this.writableMount instanceof FileMount) || !(source.mount instanceof FileMount)) {
+            return false;
+        }
+
+        sourcePath = source.toLocal(sourcePath);
+        destPath = this.toLocal(destPath);
+        this.lock.writeLock().lock();
+        try {
+            return ((FileMount) this.writableMount).copyFrom((FileMount) source.mount, sourcePath, destPath);
+        } catch (IOException e) {
+            throw this.localExceptionOf(destPath, e);
+        } finally {
+            this.lock.writeLock().unlock();
         }
     }
 
@@ -198,6 +296,7 @@ class MountWrapper {
         }
 
         path = this.toLocal(path);
+        this.lock.writeLock().lock();
         try {
             if (this.mount.exists(path)) {
                 this.writableMount.delete(path);
@@ -206,6 +305,8 @@ class MountWrapper {
             throw new FileSystemException("Access denied");
         } catch (IOException e) {
             throw this.localExceptionOf(path, e);
+        } finally {
+            this.lock.writeLock().unlock();
         }
     }
 
@@ -215,6 +316,7 @@ class MountWrapper {
         }
 
         path = this.toLocal(path);
+        this.lock.writeLock().lock();
         try {
             if (this.mount.exists(path) && this.mount.isDirectory(path)) {
                 throw this.localExceptionOf(path, "Cannot write to directory");
@@ -231,6 +333,8 @@ class MountWrapper {
             throw new FileSystemException("Access denied");
         } catch (IOException e) {
             throw this.localExceptionOf(path, e);
+        } finally {
+            this.lock.writeLock().unlock();
         }
     }
 
@@ -240,6 +344,7 @@ class MountWrapper {
         }
 
         path = this.toLocal(path);
+        this.lock.writeLock().lock();
         try {
             if (!this.mount.exists(path)) {
                 if (!path.isEmpty()) {
@@ -258,6 +363,8 @@ class MountWrapper {
             throw new FileSystemException("Access denied");
         } catch (IOException e) {
             throw this.localExceptionOf(path, e);
+        } finally {
+            this.lock.writeLock().unlock();
         }
     }
 }
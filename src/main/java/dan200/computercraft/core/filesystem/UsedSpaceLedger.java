@@ -0,0 +1,278 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+
+package dan200.computercraft.core.filesystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import javax.annotation.Nullable;
+
+import dan200.computercraft.ComputerCraft;
+import dan200.computercraft.shared.util.ThreadUtils;
+
+/**
+ * Persists the space used by a {@link FileMount} to a small file next to its directory, so that the mount does not need
+ * to walk the whole directory tree every time it is created.
+ *
+ * The ledger is deleted before the used space first changes, and only written back once the mount has been left
+ * alone for a few seconds. If the server crashes part way through a change, there is no ledger at all, and the used
+ * space is measured again.
+ *
+ * The ledger also records the modification time of every directory in the mount, and is ignored if any of these no
+ * longer match. This catches files being created, deleted or renamed outside of the mount, at any depth, while only
+ * needing to check the directories rather than every file. Files which are modified in place by other programs are
+ * not detected.
+ *
+ * The mount keeps the ledger's set of directories up to date as it creates and deletes them, so saving the ledger only
+ * needs to look at each known directory, rather than walking the whole tree.
+ */
+public final class UsedSpaceLedger {
+    /**
+     * How long to wait after a change before saving the ledger, in milliseconds.
+     */
+    private static final long SAVE_DELAY = 5000;
+
+    private static final String HEADER = "ComputerCraft used space v2";
+
+    static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(ThreadUtils.builder("FileMount")
+                                                                                                             .setPriority(Thread.MIN_PRIORITY)
+                                                                                                             .build());
+
+    private static final Set<UsedSpaceLedger> pending = ConcurrentHashMap.newKeySet();
+
+    private final File root;
+    private final File file;
+    private final File tempFile;
+    private final LongSupplier usedSpace;
+
+    /**
+     * The directories in the mount, relative to its root. This is {@code null} if they are not known (such as when
+     * measuring the mount failed), in which case the ledger is not saved.
+     */
+    private volatile Set<String> directories;
+
+    private final Object saveLock = new Object();
+    private boolean clean;
+    private boolean scheduled;
+    private long generation;
+
+    UsedSpaceLedger(File root, LongSupplier usedSpace) {
+        this.root = root;
+        this.file = new File(root.getParentFile(), root.getName() + ".size");
+        this.tempFile = new File(root.getParentFile(), root.getName() + ".size.tmp");
+        this.usedSpace = usedSpace;
+    }
+
+    /**
+     * Save every ledger with pending changes. This should be called when the server stops.
+     */
+    public static void saveAll() {
+        for (UsedSpaceLedger ledger : pending) {
+            ledger.save();
+        }
+    }
+
+    /**
+     * Read the ledger from disk.
+     *
+     * @return The saved used space. This is empty if the ledger is missing, could not be read, or is out of date.
+     */
+    OptionalLong load() {
+        try {
+            String[] lines = new String(Files.readAllBytes(this.file.toPath()), StandardCharsets.UTF_8).split("\n");
+            if (lines.length < 3 || !lines[0].equals(HEADER)) {
+                return OptionalLong.empty();
+            }
+
+            long used = Long.parseLong(lines[1].trim());
+            int directories = Integer.parseInt(lines[2].trim());
+            if (used < 0 || directories <= 0 || lines.length != directories + 3) {
+                return OptionalLong.empty();
+            }
+
+            List<String> paths = new ArrayList<>(directories);
+            for (int i = 0; i < directories; i++) {
+                String[] entry = lines[i + 3].split("\t", 2);
+                if (entry.length != 2) {
+                    return OptionalLong.empty();
+                }
+
+                File directory = entry[1].isEmpty() ? this.root : new File(this.root, entry[1]);
+                if (Long.parseLong(entry[0]) != directory.lastModified()) {
+                    return OptionalLong.empty();
+                }
+                paths.add(entry[1]);
+            }
+
+            this.setDirectories(paths);
+            synchronized (this) {
+                this.clean = true;
+            }
+            return OptionalLong.of(used);
+        } catch (NoSuchFileException e) {
+            return OptionalLong.empty();
+        } catch (IOException | RuntimeException e) {
+            ComputerCraft.log.warn("Cannot read used space from {}", this.file, e);
+            return OptionalLong.empty();
+        }
+    }
+
+    /**
+     * Set the directories in the mount, such as after it has been measured.
+     *
+     * @param directories Every directory in the mount, relative to its root. The root itself is the empty string.
+     */
+    void setDirectories(Collection<String> directories) {
+        Set<String> set = ConcurrentHashMap.newKeySet();
+        set.addAll(directories);
+        this.directories = set;
+    }
+
+    /**
+     * Record a directory which has been created. This should be called after {@link #changed()}.
+     *
+     * @param path The directory, relative to the mount's root.
+     */
+    void addDirectory(String path) {
+        Set<String> directories = this.directories;
+        if (directories != null) {
+            directories.add(path);
+        }
+    }
+
+    /**
+     * Record a directory, and everything inside it, having been deleted.
+     *
+     * @param path The directory, relative to the mount's root.
+     */
+    void removeDirectory(String path) {
+        Set<String> directories = this.directories;
+        if (directories != null) {
+            String prefix = path + "/";
+            directories.removeIf(directory -> directory.equals(path) || directory.startsWith(prefix));
+        }
+    }
+
+    /**
+     * Mark the ledger as out of date. This must be called <em>before</em> the used space (or the directory) is changed.
+     */
+    synchronized void changed() {
+        this.generation++;
+        if (this.clean) {
+            this.clean = false;
+            if (!this.file.delete() && this.file.exists()) {
+                ComputerCraft.log.warn("Cannot delete {}", this.file);
+            }
+        }
+
+        if (!this.scheduled) {
+            this.scheduled = true;
+            pending.add(this);
+            EXECUTOR.schedule(this::save, SAVE_DELAY, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void save() {
+        synchronized (this.saveLock) {
+            long generation;
+            synchronized (this) {
+                if (!this.scheduled) {
+                    return;
+                }
+                generation = this.generation;
+            }
+
+            try {
+                String contents = this.serialise();
+                if (contents == null) {
+                    // We can't describe this directory, so leave it to be measured again next time.
+                    synchronized (this) {
+                        this.scheduled = false;
+                        pending.remove(this);
+                    }
+                    return;
+                }
+
+                Files.write(this.tempFile.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                ComputerCraft.log.warn("Cannot save used space to {}", this.file, e);
+                synchronized (this) {
+                    this.scheduled = false;
+                    pending.remove(this);
+                }
+                return;
+            }
+
+            synchronized (this) {
+                if (generation != this.generation) {
+                    // Something changed while we were writing, so try again later.
+                    EXECUTOR.schedule(this::save, SAVE_DELAY, TimeUnit.MILLISECONDS);
+                    return;
+                }
+
+                try {
+                    move();
+                    this.clean = true;
+                } catch (IOException e) {
+                    ComputerCraft.log.warn("Cannot save used space to {}", this.file, e);
+                }
+
+                this.scheduled = false;
+                pending.remove(this);
+            }
+        }
+    }
+
+    @Nullable
+    private String serialise() {
+        Set<String> directories = this.directories;
+        if (directories == null) {
+            return null;
+        }
+
+        long used = this.usedSpace.getAsLong();
+        StringBuilder entries = new StringBuilder();
+        int count = 0;
+        for (String path : directories) {
+            if (path.indexOf('\n') >= 0 || path.indexOf('\t') >= 0) {
+                return null;
+            }
+
+            File directory = path.isEmpty() ? this.root : new File(this.root, path);
+            entries.append(directory.lastModified())
+                   .append('\t')
+                   .append(path)
+                   .append('\n');
+            count++;
+        }
+
+        return HEADER + "\n" + used + "\n" + count + "\n" + entries;
+    }
+
+    private void move() throws IOException {
+        try {
+            Files.move(this.tempFile.toPath(), this.file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(this.tempFile.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
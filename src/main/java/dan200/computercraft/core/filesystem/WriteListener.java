@@ -0,0 +1,54 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+
+package dan200.computercraft.core.filesystem;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Observes the writes made through a file handle, so they can be attributed to the computer which opened it.
+ *
+ * @see Target
+ */
+public interface WriteListener {
+    WriteListener NONE = new WriteListener() {
+        @Override
+        public void written(long bytes) {
+        }
+
+        @Override
+        public void syscall() {
+        }
+
+        @Override
+        public void flushed() {
+        }
+    };
+
+    /**
+     * Called when bytes are written to the channel. These may be buffered, rather than written to disk immediately.
+     *
+     * @param bytes The number of bytes written.
+     */
+    void written(long bytes);
+
+    /**
+     * Called when the channel writes to the underlying file.
+     */
+    void syscall();
+
+    /**
+     * Called when buffered writes are flushed to the underlying file.
+     */
+    void flushed();
+
+    /**
+     * A channel which can report its writes to a {@link WriteListener}.
+     */
+    interface Target {
+        void setWriteListener(@Nonnull WriteListener listener);
+    }
+}
@@ -24,9 +24,24 @@ public final class TrackingField {
 
     public static final TrackingField PERIPHERAL_OPS = TrackingField.of("peripheral", TrackingField::formatDefault);
     public static final TrackingField FS_OPS = TrackingField.of("fs", TrackingField::formatDefault);
+    public static final TrackingField FS_ASYNC_OPS = TrackingField.of("fs_async", TrackingField::formatDefault);
+    public static final TrackingField FS_WRITE_CALLS = TrackingField.of("fs_write_calls", TrackingField::formatDefault);
+    public static final TrackingField FS_FLUSHES = TrackingField.of("fs_flushes", TrackingField::formatDefault);
+    public static final TrackingField FS_BLOCKING_TIME = TrackingField.of("fs_blocking_time", x -> String.format("%7.1fms", x / 1e6));
     public static final TrackingField TURTLE_OPS = TrackingField.of("turtle", TrackingField::formatDefault);
+    public static final TrackingField COMMANDS = TrackingField.of("commands", TrackingField::formatDefault);
+    public static final TrackingField COMMAND_TIME = TrackingField.of("command_time", x -> String.format("%7.1fms", x / 1e6));
+    public static final TrackingField TURTLE_PUSH_QUERIES = TrackingField.of("turtle_push_queries", TrackingField::formatDefault);
+    public static final TrackingField TURTLE_BLOCK_LOOKUPS = TrackingField.of("turtle_block_lookups", TrackingField::formatDefault);
+    public static final TrackingField TURTLE_BLOCK_CACHE_HITS = TrackingField.of("turtle_block_cache_hits", TrackingField::formatDefault);
 
     public static final TrackingField HTTP_REQUESTS = TrackingField.of("http", TrackingField::formatDefault);
+    public static final TrackingField HTTP_DNS_HITS = TrackingField.of("http_dns_hits", TrackingField::formatDefault);
+    public static final TrackingField HTTP_DNS_MISSES = TrackingField.of("http_dns_misses", TrackingField::formatDefault);
+    public static final TrackingField HTTP_DNS_TIME = TrackingField.of("http_dns_time", x -> String.format("%7.1fms", x / 1e6));
+    public static final TrackingField HTTP_QUEUED = TrackingField.of("http_queued", TrackingField::formatDefault);
+    public static final TrackingField HTTP_QUEUE_DEPTH = TrackingField.of("http_queue_depth", TrackingField::formatDefault);
+    public static final TrackingField HTTP_QUEUE_TIME = TrackingField.of("http_queue_time", x -> String.format("%7.1fms", x / 1e6));
     public static final TrackingField COROUTINES_CREATED = TrackingField.of("coroutines_created", x -> String.format("%4d", x));
     public static final TrackingField COROUTINES_DISPOSED = TrackingField.of("coroutines_dead", x -> String.format("%4d", x));
     /**
@@ -34,8 +49,12 @@ public final class TrackingField {
      */
     private static final int KILOBYTE_SIZE = 1024;
     private static final String SI_PREFIXES = "KMGT";
+    public static final TrackingField FS_BYTES_WRITTEN = TrackingField.of("fs_bytes_written", TrackingField::formatBytes);
     public static final TrackingField HTTP_UPLOAD = TrackingField.of("http_upload", TrackingField::formatBytes);
     public static final TrackingField HTTP_DOWNLOAD = TrackingField.of("http_download", TrackingField::formatBytes);
+    public static final TrackingField HTTP_CACHE_HITS = TrackingField.of("http_cache_hits", TrackingField::formatDefault);
+    public static final TrackingField HTTP_CACHE_MISSES = TrackingField.of("http_cache_misses", TrackingField::formatDefault);
+    public static final TrackingField HTTP_CACHE_SAVED = TrackingField.of("http_cache_saved", TrackingField::formatBytes);
     public static final TrackingField WEBSOCKET_INCOMING = TrackingField.of("websocket_incoming", TrackingField::formatBytes);
     public static final TrackingField WEBSOCKET_OUTGOING = TrackingField.of("websocket_outgoing", TrackingField::formatBytes);
     private final String id;
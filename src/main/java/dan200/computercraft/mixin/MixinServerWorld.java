@@ -6,17 +6,22 @@
 
 package dan200.computercraft.mixin;
 
+import dan200.computercraft.core.filesystem.FileMount;
+import dan200.computercraft.core.filesystem.ImageMount;
 import dan200.computercraft.shared.util.DropConsumer;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
 import net.minecraft.entity.Entity;
 import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.ProgressListener;
 
 /**
  * @see ServerWorld#spawnEntity(Entity)
+ * @see ServerWorld#save(ProgressListener, boolean, boolean)
  */
 @Mixin (ServerWorld.class)
 public class MixinServerWorld {
@@ -26,4 +31,10 @@ public class MixinServerWorld {
             callbackInfo.setReturnValue(false);
         }
     }
+
+    @Inject (method = "save", at = @At ("HEAD"))
+    public void save(ProgressListener progressListener, boolean flush, boolean enabled, CallbackInfo callbackInfo) {
+        FileMount.flushAll();
+        ImageMount.flushAll();
+    }
 }
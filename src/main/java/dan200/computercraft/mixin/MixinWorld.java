@@ -11,12 +11,15 @@ import java.util.Collection;
 import javax.annotation.Nullable;
 
 import dan200.computercraft.shared.common.TileGeneric;
+import dan200.computercraft.shared.turtle.core.TurtleWorldCache;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Shadow;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
+import net.minecraft.block.BlockState;
 import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
@@ -25,6 +28,8 @@ import net.minecraft.world.World;
  * Horrible bodge to ensure a {@link BlockEntity}'s world is always present when setting a TE during another TE's tick.
  *
  * Forge does this, this is just a bodge to get Fabric in line with that behaviour.
+ *
+ * This also invalidates the {@link TurtleWorldCache} whenever a block is changed.
  */
 @Mixin (World.class)
 public class MixinWorld {
@@ -51,4 +56,9 @@ public class MixinWorld {
             }
         }
     }
+
+    @Inject (method = "setBlockState(Lnet/minecraft/util/math/BlockPos;Lnet/minecraft/block/BlockState;II)Z", at = @At ("RETURN"))
+    public void onSetBlockState(BlockPos pos, BlockState state, int flags, int maxUpdateDepth, CallbackInfoReturnable<Boolean> info) {
+        TurtleWorldCache.invalidate((World) (Object) this, pos);
+    }
 }
@@ -57,6 +57,15 @@ public class ServerTerminal implements ITerminal {
         return this.m_terminalChangedLastFrame;
     }
 
+    /**
+     * Whether the terminal has changed since the last {@link #update()}, and so will be marked as changed by the next one.
+     *
+     * @return If there is a terminal change waiting to be picked up.
+     */
+    protected boolean isTerminalChangePending() {
+        return this.m_terminalChanged.get();
+    }
+
     @Override
     public Terminal getTerminal() {
         return this.m_terminal;
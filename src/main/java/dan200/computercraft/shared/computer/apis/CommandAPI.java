@@ -11,6 +11,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import com.google.common.collect.ImmutableMap;
 import com.mojang.brigadier.tree.CommandNode;
@@ -21,7 +22,12 @@ import dan200.computercraft.api.lua.ILuaAPI;
 import dan200.computercraft.api.lua.ILuaContext;
 import dan200.computercraft.api.lua.LuaException;
 import dan200.computercraft.api.lua.LuaFunction;
+import dan200.computercraft.api.lua.LuaValues;
+import dan200.computercraft.api.lua.MethodResult;
+import dan200.computercraft.core.tracking.Tracking;
+import dan200.computercraft.core.tracking.TrackingField;
 import dan200.computercraft.shared.computer.blocks.TileCommandComputer;
+import dan200.computercraft.shared.computer.core.ServerComputer;
 import dan200.computercraft.shared.util.NBTUtil;
 
 import net.minecraft.block.Block;
@@ -40,6 +46,9 @@ import net.minecraft.world.World;
  * @cc.module commands
  */
 public class CommandAPI implements ILuaAPI {
+    private static final int MAX_BATCH_COMMANDS = 1024;
+    private static final int MAX_REGION_BLOCKS = 1 << 20;
+
     private final TileCommandComputer computer;
 
     public CommandAPI(TileCommandComputer computer) {
@@ -51,6 +60,11 @@ public class CommandAPI implements ILuaAPI {
         return new String[] {"commands"};
     }
 
+    @Override
+    public boolean isIdle() {
+        return true;
+    }
+
     /**
      * Execute a specific command.
      *
@@ -70,6 +84,19 @@ public class CommandAPI implements ILuaAPI {
     }
 
     private Object[] doCommand(String command) {
+        long start = System.nanoTime();
+        try {
+            return this.runCommand(command);
+        } finally {
+            ServerComputer computer = this.computer.getServerComputer();
+            if (computer != null) {
+                Tracking.addValue(computer.getComputer(), TrackingField.COMMANDS, 1);
+                Tracking.addValue(computer.getComputer(), TrackingField.COMMAND_TIME, System.nanoTime() - start);
+            }
+        }
+    }
+
+    private Object[] runCommand(String command) {
         MinecraftServer server = this.computer.getWorld()
                                               .getServer();
         if (server == null || !server.areCommandBlocksEnabled()) {
@@ -128,6 +155,58 @@ public class CommandAPI implements ILuaAPI {
         return context.issueMainThreadTask(() -> this.doCommand(command));
     }
 
+    /**
+     * Execute a list of commands, waiting until they have all finished.
+     *
+     * This is equivalent to calling {@link #exec} for each command, but is considerably faster when running many
+     * commands, as several commands are run each tick. If the commands take longer than this computer's time limit
+     * for a tick, the remaining commands are run on the following ticks.
+     *
+     * @param context  The context this command executes under.
+     * @param commands The commands to execute.
+     * @return The result of each command.
+     * @throws LuaException If any command is not a string, or there are more than 1024 commands.
+     * @cc.treturn { { boolean, { string... }, number|nil }... } A list containing what @{exec} would return for each
+     * command.
+     * @cc.usage Set a row of blocks above the computer to stone.
+     *     <pre>
+     *     local results = commands.execBatch({ "setblock ~ ~1 ~ minecraft:stone", "setblock ~1 ~1 ~ minecraft:stone" })
+     *     for i, result in ipairs(results) do
+     *       if not result[1] then printError(table.concat(result[2], "\n")) end
+     *     end
+     *     </pre>
+     */
+    @LuaFunction
+    public final MethodResult execBatch(ILuaContext context, Map<?, ?> commands) throws LuaException {
+        List<String> toRun = new ArrayList<>();
+        for (int i = 1; ; i++) {
+            Object command = commands.get((double) i);
+            if (command == null) {
+                break;
+            }
+            if (!(command instanceof String)) {
+                throw new LuaException("bad command #" + i + " (string expected, got " + LuaValues.getType(command) + ")");
+            }
+            if (i > MAX_BATCH_COMMANDS) {
+                throw new LuaException("Too many commands (max " + MAX_BATCH_COMMANDS + ")");
+            }
+            toRun.add((String) command);
+        }
+
+        if (toRun.isEmpty()) {
+            return MethodResult.of(Collections.emptyList());
+        }
+
+        List<Object[]> results = new ArrayList<>(toRun.size());
+        return SlicedTask.run(context, deadline -> {
+            do {
+                results.add(this.doCommand(toRun.get(results.size())));
+            } while (results.size() < toRun.size() && System.nanoTime() < deadline);
+
+            return results.size() < toRun.size() ? null : new Object[] {results};
+        });
+    }
+
     /**
      * List all available commands which the computer has permission to execute.
      *
@@ -229,6 +308,77 @@ public class CommandAPI implements ILuaAPI {
         return results;
     }
 
+    /**
+     * Read a large region of blocks.
+     *
+     * This is intended for scanning whole chunks or more, where {@link #getBlockInfos} is too limited and too slow.
+     * Rather than returning information for every block, this returns a palette listing each distinct block state (with
+     * its name and state, as @{getBlockInfo}), along with the index of each block in this palette. Air is given an index
+     * of 0, and is not included in the palette. Blocks are ordered in the same way as @{getBlockInfos}.
+     *
+     * Unlike @{getBlockInfos}, this does not load chunks. Blocks in unloaded chunks are given an index of 0, like air.
+     *
+     * Large regions are read over several ticks, so this may take a while to return. Note that the world may change
+     * while it is being read.
+     *
+     * @param context The current Lua context.
+     * @param minX    The start x coordinate of the range to query.
+     * @param minY    The start y coordinate of the range to query.
+     * @param minZ    The start z coordinate of the range to query.
+     * @param maxX    The end x coordinate of the range to query.
+     * @param maxY    The end y coordinate of the range to query.
+     * @param maxZ    The end z coordinate of the range to query.
+     * @param format  How to return the palette indices: either "string" (the default) or "table".
+     * @return The palette and the index of each block.
+     * @throws LuaException If the coordinates are not within the world.
+     * @throws LuaException If trying to read more than 1048576 blocks.
+     * @cc.treturn { table... } The details of each distinct block state.
+     * @cc.treturn string|{ number... } The palette index of each block. When returned as a string, each index is a 2 byte big-endian number, which may
+     * be read with {@code string.unpack(">I2", indices, i * 2 - 1)}.
+     * @cc.usage Count the diamond ore in the chunk containing the computer.
+     *     <pre>
+     *     local x, _, z = commands.getBlockPosition()
+     *     x, z = x - x % 16, z - z % 16
+     *     local palette, indices = commands.readRegion(x, 0, z, x + 15, 255, z + 15, "table")
+     *     local count = 0
+     *     for _, index in ipairs(indices) do
+     *       if index > 0 and palette[index].name == "minecraft:diamond_ore" then count = count + 1 end
+     *     end
+     *     print(count)
+     *     </pre>
+     */
+    @LuaFunction
+    public final MethodResult readRegion(ILuaContext context, int minX, int minY, int minZ, int maxX, int maxY, int maxZ, Optional<String> format) throws LuaException {
+        BlockPos min = new BlockPos(Math.min(minX, maxX), Math.min(minY, maxY), Math.min(minZ, maxZ));
+        BlockPos max = new BlockPos(Math.max(minX, maxX), Math.max(minY, maxY), Math.max(minZ, maxZ));
+        if (!World.isInBuildLimit(min) || !World.isInBuildLimit(max)) {
+            throw new LuaException("Co-ordinates out of range");
+        }
+
+        long blocks = (long) (max.getX() - min.getX() + 1) * (max.getY() - min.getY() + 1) * (max.getZ() - min.getZ() + 1);
+        if (blocks > MAX_REGION_BLOCKS) {
+            throw new LuaException("Too many blocks");
+        }
+
+        boolean table;
+        switch (format.orElse("string")) {
+        case "string":
+            table = false;
+            break;
+        case "table":
+            table = true;
+            break;
+        default:
+            throw new LuaException("Unknown format '" + format.get() + "'");
+        }
+
+        RegionReader reader = new RegionReader(this.computer.getWorld(), min, max);
+        return SlicedTask.run(context, deadline -> {
+            reader.read(deadline);
+            return reader.isDone() ? reader.getResult(table) : null;
+        });
+    }
+
     private static Map<?, ?> getBlockInfo(World world, BlockPos pos) {
         // Get the details of the block
         BlockState state = world.getBlockState(pos);
@@ -0,0 +1,135 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+
+package dan200.computercraft.shared.computer.apis;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import dan200.computercraft.api.lua.LuaException;
+import dan200.computercraft.shared.peripheral.generic.data.BlockPalette;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.ChunkStatus;
+
+/**
+ * Reads a region of blocks into a {@link BlockPalette} and a packed array of palette indices.
+ *
+ * Large regions take longer than a single tick's budget to read, so reading is split up into several calls to
+ * {@link #read(long)}, each of which stops once it runs out of time. The only allocations made per block are when a
+ * new block state is added to the palette.
+ *
+ * Chunks are never loaded or generated by reading them, as that may take far longer than our time budget. Instead,
+ * blocks in unloaded chunks are read as air.
+ *
+ * @see CommandAPI#readRegion
+ */
+final class RegionReader {
+    /**
+     * How many blocks to read between checking whether we have run out of time.
+     */
+    private static final int CHECK_INTERVAL = 256;
+
+    private final World world;
+    private final int minX, minY, minZ, maxX, maxZ;
+    private final BlockPalette palette = new BlockPalette(false);
+    private final BlockPos.Mutable pos = new BlockPos.Mutable();
+
+    /**
+     * The palette index of each block, as big-endian 16 bit integers.
+     */
+    private final byte[] indices;
+    private int read = 0;
+    private int x, y, z;
+
+    RegionReader(World world, BlockPos min, BlockPos max) {
+        this.world = world;
+        this.minX = min.getX();
+        this.minY = min.getY();
+        this.minZ = min.getZ();
+        this.maxX = max.getX();
+        this.maxZ = max.getZ();
+
+        int blocks = (max.getX() - min.getX() + 1) * (max.getY() - min.getY() + 1) * (max.getZ() - min.getZ() + 1);
+        this.indices = new byte[blocks * 2];
+
+        this.x = this.minX;
+        this.y = this.minY;
+        this.z = this.minZ;
+    }
+
+    /**
+     * Read blocks until the whole region has been read, or until the deadline has passed.
+     *
+     * @param deadline The time to stop at, as given by {@link System#nanoTime()}.
+     * @throws LuaException If the region contains too many different blocks.
+     */
+    void read(long deadline) throws LuaException {
+        Chunk chunk = null;
+        int chunkX = 0, chunkZ = 0;
+        boolean haveChunk = false;
+        while (!this.isDone()) {
+            if (this.read % CHECK_INTERVAL == 0 && this.read != 0 && System.nanoTime() >= deadline) {
+                return;
+            }
+
+            if (!haveChunk || chunkX != this.x >> 4 || chunkZ != this.z >> 4) {
+                chunkX = this.x >> 4;
+                chunkZ = this.z >> 4;
+                chunk = this.world.getChunk(chunkX, chunkZ, ChunkStatus.FULL, false);
+                haveChunk = true;
+            }
+
+            int index = chunk == null ? BlockPalette.AIR : this.palette.getIndex(chunk.getBlockState(this.pos.set(this.x, this.y, this.z)));
+            if (index > 0xFFFF) {
+                throw new LuaException("Too many different blocks");
+            }
+
+            this.indices[this.read * 2] = (byte) (index >> 8);
+            this.indices[this.read * 2 + 1] = (byte) index;
+            this.read++;
+
+            // Advance through the region in the same order as getBlockInfos: x, then z, then y.
+            if (++this.x > this.maxX) {
+                this.x = this.minX;
+                if (++this.z > this.maxZ) {
+                    this.z = this.minZ;
+                    this.y++;
+                }
+            }
+        }
+    }
+
+    boolean isDone() {
+        return this.read * 2 >= this.indices.length;
+    }
+
+    /**
+     * Get the result of reading this region. This should only be called once {@link #isDone()}.
+     *
+     * @param table Whether to return the indices as a table, rather than a packed string.
+     * @return The palette and the index of each block.
+     */
+    Object[] getResult(boolean table) {
+        if (!table) {
+            return new Object[] {
+                this.palette.getEntries(),
+                this.indices,
+            };
+        }
+
+        List<Integer> indices = new ArrayList<>(this.read);
+        for (int i = 0; i < this.read; i++) {
+            indices.add(((this.indices[i * 2] & 0xFF) << 8) | (this.indices[i * 2 + 1] & 0xFF));
+        }
+        return new Object[] {
+            this.palette.getEntries(),
+            indices,
+        };
+    }
+}
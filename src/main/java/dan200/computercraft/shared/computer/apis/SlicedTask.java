@@ -0,0 +1,81 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+
+package dan200.computercraft.shared.computer.apis;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import dan200.computercraft.ComputerCraft;
+import dan200.computercraft.api.lua.ILuaCallback;
+import dan200.computercraft.api.lua.ILuaContext;
+import dan200.computercraft.api.lua.LuaException;
+import dan200.computercraft.api.lua.MethodResult;
+
+/**
+ * Runs a long piece of main thread work a slice at a time, issuing a new main thread task for each slice until the work
+ * is finished. This keeps each tick within the computer's main thread budget, while the calling computer simply waits
+ * for the final result.
+ */
+final class SlicedTask implements ILuaCallback {
+    private final ILuaContext context;
+    private final Work work;
+    private volatile boolean done;
+    private long task;
+
+    private SlicedTask(ILuaContext context, Work work) {
+        this.context = context;
+        this.work = work;
+    }
+
+    static MethodResult run(ILuaContext context, Work work) throws LuaException {
+        return new SlicedTask(context, work).issue();
+    }
+
+    private MethodResult issue() throws LuaException {
+        this.task = this.context.issueMainThreadTask(() -> {
+            Object[] result = this.work.run(System.nanoTime() + ComputerCraft.maxMainComputerTime / 2);
+            if (result != null) {
+                this.done = true;
+            }
+            return result;
+        });
+        return MethodResult.pullEvent("task_complete", this);
+    }
+
+    @Nonnull
+    @Override
+    public MethodResult resume(Object[] response) throws LuaException {
+        if (response.length < 3 || !(response[1] instanceof Number) || !(response[2] instanceof Boolean)) {
+            return MethodResult.pullEvent("task_complete", this);
+        }
+
+        if (((Number) response[1]).longValue() != this.task) {
+            return MethodResult.pullEvent("task_complete", this);
+        }
+
+        if (!(Boolean) response[2]) {
+            throw new LuaException(response.length > 3 && response[3] instanceof String ? (String) response[3] : "Task failed");
+        }
+
+        return this.done ? MethodResult.of(Arrays.copyOfRange(response, 3, response.length)) : this.issue();
+    }
+
+    @FunctionalInterface
+    interface Work {
+        /**
+         * Do some work, stopping once it is finished or the deadline has passed.
+         *
+         * @param deadline The time to stop at, as given by {@link System#nanoTime()}.
+         * @return The values to return to the computer if the work is finished, otherwise {@code null}.
+         * @throws LuaException If the work failed.
+         */
+        @Nullable
+        Object[] run(long deadline) throws LuaException;
+    }
+}
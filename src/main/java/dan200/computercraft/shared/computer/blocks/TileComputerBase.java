@@ -144,6 +144,16 @@ public abstract class TileComputerBase extends TileGeneric implements IComputerT
     protected abstract ServerComputer createComputer(int instanceID, int id);
 
     public void updateInput() {
+        this.updateInputExcept(null);
+    }
+
+    /**
+     * Update the input on all sides but one. This is used when we know a side is already up-to-date, such as when it
+     * has just received a neighbour update.
+     *
+     * @param skip The side to skip, or {@code null} to update every side.
+     */
+    public void updateInputExcept(@Nullable Direction skip) {
         if (this.getWorld() == null || this.getWorld().isClient) {
             return;
         }
@@ -156,7 +166,9 @@ public abstract class TileComputerBase extends TileGeneric implements IComputerT
 
         BlockPos pos = computer.getPosition();
         for (Direction dir : DirectionUtil.FACINGS) {
-            this.updateSideInput(computer, dir, pos.offset(dir));
+            if (dir != skip) {
+                this.updateSideInput(computer, dir, pos.offset(dir));
+            }
         }
     }
 
@@ -248,6 +260,12 @@ public abstract class TileComputerBase extends TileGeneric implements IComputerT
 
             computer.keepAlive();
 
+            // If the computer is dormant, then none of its state can have changed since last tick. We still compare
+            // against our own copy of its state, in case we missed the tick where it changed.
+            if (!this.m_fresh && !this.m_startOn && computer.isDormant() && this.m_on == computer.isOn() && Objects.equals(this.label, computer.getLabel())) {
+                return;
+            }
+
             this.m_fresh = false;
             this.m_computerID = computer.getID();
             this.label = computer.getLabel();
@@ -275,6 +293,26 @@ public abstract class TileComputerBase extends TileGeneric implements IComputerT
         }
     }
 
+    /**
+     * Whether this computer is emitting a redstone signal on any side. If not, there is no need to notify our neighbours
+     * when this block appears, as they would see no change in power.
+     *
+     * @return Whether any redstone or bundled output is set.
+     */
+    public boolean hasRedstoneOutput() {
+        ServerComputer computer = this.getServerComputer();
+        if (computer == null) {
+            return false;
+        }
+
+        for (ComputerSide side : ComputerSide.values()) {
+            if (computer.getRedstoneOutput(side) > 0 || computer.getBundledRedstoneOutput(side) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     protected abstract void updateBlockState(ComputerState newState);
 
     @Override
@@ -17,8 +17,10 @@ public class ComputerRegistry<T extends IComputer> {
     private int m_sessionID;
 
     protected ComputerRegistry() {
+        // Don't call reset() here, as subclasses may override it and have not been initialised yet.
         this.m_computers = new HashMap<>();
-        this.reset();
+        this.m_nextUnusedInstanceID = 0;
+        this.m_sessionID = new Random().nextInt();
     }
 
     public void reset() {
@@ -22,6 +22,7 @@ import dan200.computercraft.core.apis.IAPIEnvironment;
 import dan200.computercraft.core.computer.Computer;
 import dan200.computercraft.core.computer.ComputerSide;
 import dan200.computercraft.core.computer.IComputerEnvironment;
+import dan200.computercraft.core.computer.MainThread;
 import dan200.computercraft.shared.common.ServerTerminal;
 import dan200.computercraft.shared.network.NetworkHandler;
 import dan200.computercraft.shared.network.NetworkMessage;
@@ -47,7 +48,7 @@ public class ServerComputer extends ServerTerminal implements IComputer, IComput
     private boolean m_changed;
 
     private boolean m_changedLastFrame;
-    private int m_ticksSincePing;
+    private int m_lastPing;
 
     public ServerComputer(World world, int computerID, String label, int instanceID, ComputerFamily family, int terminalWidth, int terminalHeight) {
         super(family != ComputerFamily.NORMAL, terminalWidth, terminalHeight);
@@ -63,7 +64,9 @@ public class ServerComputer extends ServerTerminal implements IComputer, IComput
         this.m_changed = false;
 
         this.m_changedLastFrame = false;
-        this.m_ticksSincePing = 0;
+        this.m_lastPing = MainThread.currentTick();
+
+        this.m_computer.setWakeListener(() -> ComputerCraft.serverComputerRegistry.wake(this));
     }
 
     public ComputerFamily getFamily() {
@@ -101,16 +104,47 @@ public class ServerComputer extends ServerTerminal implements IComputer, IComput
 
         this.m_changedLastFrame = this.m_computer.pollAndResetChanged() || this.m_changed;
         this.m_changed = false;
+    }
 
-        this.m_ticksSincePing++;
+    /**
+     * Put this computer to sleep if it has nothing to do, and all its changes have been sent to clients.
+     *
+     * @return Whether the computer is now dormant, and so does not need to be {@link #update() updated} until it is woken.
+     * @see Computer#trySleep()
+     */
+    boolean trySleep() {
+        return !this.m_changed && !this.m_changedLastFrame && !this.hasTerminalChanged() && !this.isTerminalChangePending() && this.m_computer.trySleep();
+    }
+
+    /**
+     * Whether this computer is dormant.
+     *
+     * A computer which changed during the last {@link #update()} (such as having just shut down) is not dormant until it has been updated again,
+     * so that its block has a chance to see the change.
+     *
+     * @return If this computer is dormant, and so none of its state will change until it is woken.
+     * @see Computer#isDormant()
+     */
+    public boolean isDormant() {
+        return !this.m_changed && !this.m_changedLastFrame && this.m_computer.isDormant();
+    }
+
+    @Override
+    protected void markTerminalChanged() {
+        super.markTerminalChanged();
+
+        // This is first called from ServerTerminal's constructor, before the computer exists.
+        if (this.m_computer != null) {
+            this.m_computer.wake();
+        }
     }
 
     public void keepAlive() {
-        this.m_ticksSincePing = 0;
+        this.m_lastPing = MainThread.currentTick();
     }
 
     public boolean hasTimedOut() {
-        return this.m_ticksSincePing > 100;
+        return MainThread.currentTick() - this.m_lastPing > 100;
     }
 
     public void unload() {
@@ -126,6 +160,7 @@ public class ServerComputer extends ServerTerminal implements IComputer, IComput
 
     public void updateUserData() {
         this.m_changed = true;
+        this.m_computer.wake();
     }
 
     public void broadcastState(boolean force) {
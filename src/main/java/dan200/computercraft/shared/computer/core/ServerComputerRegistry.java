@@ -6,26 +6,85 @@
 
 package dan200.computercraft.shared.computer.core;
 
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class ServerComputerRegistry extends ComputerRegistry<ServerComputer> {
+    /**
+     * How often (in ticks) we check whether dormant computers have timed out.
+     */
+    private static final int DORMANT_TIMEOUT_INTERVAL = 20;
+
+    /**
+     * The computers which are not dormant, and so must be updated every tick.
+     */
+    private final Set<ServerComputer> m_awake = new HashSet<>();
+
+    /**
+     * Computers which have been woken since the last update. This may be added to from any thread.
+     */
+    private final Queue<ServerComputer> m_woken = new ConcurrentLinkedQueue<>();
+
+    private int m_ticks;
+
     public void update() {
-        Iterator<ServerComputer> it = this.getComputers().iterator();
+        ServerComputer woken;
+        while ((woken = this.m_woken.poll()) != null) {
+            if (this.get(woken.getInstanceID()) == woken) {
+                this.m_awake.add(woken);
+            }
+        }
+
+        Iterator<ServerComputer> it = this.m_awake.iterator();
         while (it.hasNext()) {
             ServerComputer computer = it.next();
             if (computer.hasTimedOut()) {
-                //System.out.println( "TIMED OUT SERVER COMPUTER " + computer.getInstanceID() );
-                computer.unload();
-                computer.broadcastDelete();
                 it.remove();
-                //System.out.println( getComputers().size() + " SERVER COMPUTERS" );
+                this.timeOut(computer);
+                super.remove(computer.getInstanceID());
             } else {
                 computer.update();
                 if (computer.hasTerminalChanged() || computer.hasOutputChanged()) {
                     computer.broadcastState(false);
                 }
+
+                if (computer.trySleep()) {
+                    it.remove();
+                }
             }
         }
+
+        // Dormant computers aren't updated, and so are only checked for timeouts every so often.
+        if (++this.m_ticks % DORMANT_TIMEOUT_INTERVAL == 0) {
+            Iterator<ServerComputer> all = this.getComputers().iterator();
+            while (all.hasNext()) {
+                ServerComputer computer = all.next();
+                if (computer.hasTimedOut()) {
+                    this.m_awake.remove(computer);
+                    this.timeOut(computer);
+                    all.remove();
+                }
+            }
+        }
+    }
+
+    private void timeOut(ServerComputer computer) {
+        //System.out.println( "TIMED OUT SERVER COMPUTER " + computer.getInstanceID() );
+        computer.unload();
+        computer.broadcastDelete();
+    }
+
+    /**
+     * Mark a dormant computer as awake, so that it is updated from the next tick onwards.
+     *
+     * @param computer The computer which was woken.
+     * @see ServerComputer#trySleep()
+     */
+    void wake(ServerComputer computer) {
+        this.m_woken.add(computer);
     }
 
     @Override
@@ -35,6 +94,8 @@ public class ServerComputerRegistry extends ComputerRegistry<ServerComputer> {
             computer.unload();
         }
         super.reset();
+        this.m_awake.clear();
+        this.m_woken.clear();
         //System.out.println( getComputers().size() + " SERVER COMPUTERS" );
     }
 
@@ -42,6 +103,7 @@ public class ServerComputerRegistry extends ComputerRegistry<ServerComputer> {
     public void add(int instanceID, ServerComputer computer) {
         //System.out.println( "ADD SERVER COMPUTER " + instanceID );
         super.add(instanceID, computer);
+        this.m_awake.add(computer);
         computer.broadcastState(true);
         //System.out.println( getComputers().size() + " SERVER COMPUTERS" );
     }
@@ -53,6 +115,7 @@ public class ServerComputerRegistry extends ComputerRegistry<ServerComputer> {
         if (computer != null) {
             computer.unload();
             computer.broadcastDelete();
+            this.m_awake.remove(computer);
         }
         super.remove(instanceID);
         //System.out.println( getComputers().size() + " SERVER COMPUTERS" );
@@ -0,0 +1,73 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.shared.peripheral.generic.data;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.tag.BlockTags;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Describes many blocks at once, by giving each distinct block state an index into a shared list of block details.
+ *
+ * Most areas are made up of a handful of block states, so this avoids building (and sending to the computer) the same
+ * table over and over again. Air is always given index 0, and so has no entry in the palette. Blocks which could not be
+ * looked at may be given {@link #UNKNOWN}, which also has no entry.
+ */
+public final class BlockPalette
+{
+    public static final int AIR = 0;
+    public static final int UNKNOWN = -1;
+
+    private final boolean tags;
+    private final Map<BlockState, Integer> indices = new IdentityHashMap<>();
+    private final List<Map<String, Object>> entries = new ArrayList<>();
+
+    /**
+     * @param tags Whether to include each block's tags in its palette entry.
+     */
+    public BlockPalette( boolean tags )
+    {
+        this.tags = tags;
+    }
+
+    /**
+     * Get the palette index of a block state, adding it to the palette if needed.
+     *
+     * @param state The block state to look up.
+     * @return The state's index, starting from 1, or {@link #AIR} if the block is air.
+     */
+    public int getIndex( @Nonnull BlockState state )
+    {
+        if( state.isAir() ) return AIR;
+
+        Integer index = indices.get( state );
+        if( index != null ) return index;
+
+        Map<String, Object> entry = BlockData.fill( new HashMap<>(), state );
+        if( tags ) entry.put( "tags", DataHelpers.getTags( BlockTags.getTagGroup().getTagsFor( state.getBlock() ) ) );
+
+        entries.add( entry );
+        indices.put( state, entries.size() );
+        return entries.size();
+    }
+
+    /**
+     * Get the details of every block state in this palette, in order of their index.
+     *
+     * @return The palette's entries. This is a live view, so should not be used while blocks are still being added.
+     */
+    @Nonnull
+    public List<Map<String, Object>> getEntries()
+    {
+        return entries;
+    }
+}
@@ -48,6 +48,11 @@ public class PocketAPI implements ILuaAPI {
         return new String[] {"pocket"};
     }
 
+    @Override
+    public boolean isIdle() {
+        return true;
+    }
+
     /**
      * Search the player's inventory for another upgrade, replacing the existing one with that item if found.
      *
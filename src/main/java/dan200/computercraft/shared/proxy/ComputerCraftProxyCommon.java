@@ -7,11 +7,19 @@
 package dan200.computercraft.shared.proxy;
 
 import dan200.computercraft.ComputerCraft;
+import dan200.computercraft.ComputerCraftAPIImpl;
 import dan200.computercraft.api.ComputerCraftAPI;
 import dan200.computercraft.api.media.IMedia;
 import dan200.computercraft.api.peripheral.IPeripheralTile;
 import dan200.computercraft.api.turtle.event.TurtleEvent;
+import dan200.computercraft.core.apis.http.AddressCache;
+import dan200.computercraft.core.apis.http.request.HttpConnectionPool;
+import dan200.computercraft.core.apis.http.request.HttpResponseCache;
 import dan200.computercraft.core.computer.MainThread;
+import dan200.computercraft.core.filesystem.ContentStore;
+import dan200.computercraft.core.filesystem.FileMount;
+import dan200.computercraft.core.filesystem.ImageMount;
+import dan200.computercraft.core.filesystem.UsedSpaceLedger;
 import dan200.computercraft.core.tracking.Tracking;
 import dan200.computercraft.shared.TurtlePermissions;
 import dan200.computercraft.shared.command.CommandComputerCraft;
@@ -26,6 +34,8 @@ import dan200.computercraft.shared.peripheral.commandblock.CommandBlockPeriphera
 import dan200.computercraft.shared.peripheral.modem.wireless.WirelessNetwork;
 import dan200.computercraft.shared.turtle.FurnaceRefuelHandler;
 import dan200.computercraft.shared.turtle.SignInspectHandler;
+import dan200.computercraft.shared.turtle.core.TurtleWorldCache;
+import dan200.computercraft.shared.turtle.upgrades.TurtleInventoryCrafting;
 import dan200.computercraft.shared.util.TickScheduler;
 
 import net.minecraft.block.entity.BlockEntity;
@@ -85,6 +95,7 @@ public final class ComputerCraftProxyCommon {
         CommandRegistrationCallback.EVENT.register(CommandComputerCraft::register);
 
         ServerTickEvents.START_SERVER_TICK.register(server -> {
+            TurtleWorldCache.reset();
             MainThread.executePendingTasks();
             ComputerCraft.serverComputerRegistry.update();
             TickScheduler.tick();
@@ -96,6 +107,11 @@ public final class ComputerCraftProxyCommon {
             WirelessNetwork.resetNetworks();
             MainThread.reset();
             Tracking.reset();
+
+            ContentStore store = ComputerCraftAPIImpl.getContentStore();
+            if (store != null) {
+                store.scheduleGarbageCollection();
+            }
         });
 
         ServerLifecycleEvents.SERVER_STOPPING.register(server -> {
@@ -103,6 +119,14 @@ public final class ComputerCraftProxyCommon {
             WirelessNetwork.resetNetworks();
             MainThread.reset();
             Tracking.reset();
+            TurtleWorldCache.reset();
+            TurtleInventoryCrafting.reset();
+            HttpConnectionPool.reset();
+            AddressCache.reset();
+            HttpResponseCache.reset();
+            FileMount.flushAll();
+            ImageMount.flushAll();
+            UsedSpaceLedger.saveAll();
             ComputerCraftProxyCommon.server = null;
         });
 
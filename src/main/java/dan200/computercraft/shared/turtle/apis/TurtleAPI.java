@@ -6,16 +6,21 @@
 
 package dan200.computercraft.shared.turtle.apis;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import dan200.computercraft.ComputerCraft;
 import dan200.computercraft.api.lua.IArguments;
 import dan200.computercraft.api.lua.ILuaAPI;
 import dan200.computercraft.api.lua.ILuaContext;
 import dan200.computercraft.api.lua.LuaException;
 import dan200.computercraft.api.lua.LuaFunction;
+import dan200.computercraft.api.lua.LuaValues;
 import dan200.computercraft.api.lua.MethodResult;
+import dan200.computercraft.api.lua.ObjectArguments;
 import dan200.computercraft.api.turtle.ITurtleAccess;
 import dan200.computercraft.api.turtle.ITurtleCommand;
 import dan200.computercraft.api.turtle.TurtleCommandResult;
@@ -38,6 +43,7 @@ import dan200.computercraft.shared.turtle.core.TurtleInspectCommand;
 import dan200.computercraft.shared.turtle.core.TurtleMoveCommand;
 import dan200.computercraft.shared.turtle.core.TurtlePlaceCommand;
 import dan200.computercraft.shared.turtle.core.TurtleRefuelCommand;
+import dan200.computercraft.shared.turtle.core.TurtleScanCommand;
 import dan200.computercraft.shared.turtle.core.TurtleSuckCommand;
 import dan200.computercraft.shared.turtle.core.TurtleToolCommand;
 import dan200.computercraft.shared.turtle.core.TurtleTransferToCommand;
@@ -53,6 +59,8 @@ import net.minecraft.util.registry.Registry;
  * @cc.module turtle
  */
 public class TurtleAPI implements ILuaAPI {
+    private static final int MAX_BATCH_SIZE = 1024;
+
     private final IAPIEnvironment environment;
     private final ITurtleAccess turtle;
 
@@ -66,6 +74,11 @@ public class TurtleAPI implements ILuaAPI {
         return new String[] {"turtle"};
     }
 
+    @Override
+    public boolean isIdle() {
+        return true;
+    }
+
     /**
      * Move the turtle forward one block.
      *
@@ -591,6 +604,181 @@ public class TurtleAPI implements ILuaAPI {
         return this.trackCommand(new TurtleTransferToCommand(slot, count));
     }
 
+    /**
+     * Run a sequence of turtle commands as a single operation.
+     *
+     * Each command is either the name of a turtle function (such as {@code "forward"}), or a table containing the name
+     * followed by its arguments (such as {@code {"select", 2}}). The commands run one after another on the server,
+     * without waiting for the computer in between, so a whole sequence takes no longer than its slowest moves.
+     *
+     * Supported commands are the movement, turning, digging, placing, attacking, dropping, sucking, detecting,
+     * comparing and inspecting functions, along with {@link #scan}, {@link #select}, {@link #compareTo},
+     * {@link #transferTo} and {@link #refuel}.
+     *
+     * @param commands          The commands to run.
+     * @param continueOnFailure Whether to keep going after a command fails. By default, the sequence stops at the first
+     *                          failure.
+     * @return The result of every command which was run.
+     * @throws LuaException If any command is unknown or has invalid arguments. No commands are run in this case.
+     * @cc.treturn boolean Whether every command which was run succeeded.
+     * @cc.treturn table A list holding the values each command returned, as a table.
+     * @cc.usage Dig a 1x2 tunnel three blocks long, stopping if anything goes wrong.
+     * <pre>{@code
+     * local ok, results = turtle.batch({ "dig", "forward", "digUp", "dig", "forward", "digUp", "dig", "forward", "digUp" })
+     * if not ok then printError(results[#results][2]) end
+     * }</pre>
+     */
+    @LuaFunction
+    public final MethodResult batch(Map<?, ?> commands, Optional<Boolean> continueOnFailure) throws LuaException {
+        List<ITurtleCommand> parsed = new ArrayList<>();
+        for (int i = 1; ; i++) {
+            Object command = commands.get((double) i);
+            if (command == null) {
+                break;
+            }
+            if (i > MAX_BATCH_SIZE) {
+                throw new LuaException("Too many commands (max " + MAX_BATCH_SIZE + ")");
+            }
+
+            parsed.add(parseCommand(i, command));
+        }
+
+        this.environment.addTrackingChange(TrackingField.TURTLE_OPS, parsed.size());
+        return this.turtle.executeCommands(parsed, continueOnFailure.orElse(false));
+    }
+
+    private static ITurtleCommand parseCommand(int index, Object command) throws LuaException {
+        String name;
+        IArguments args;
+        if (command instanceof String) {
+            name = (String) command;
+            args = new ObjectArguments();
+        } else if (command instanceof Map) {
+            Map<?, ?> table = (Map<?, ?>) command;
+            Object nameValue = table.get(1.0);
+            if (!(nameValue instanceof String)) {
+                throw new LuaException("Command " + index + ": expected string name, got " + LuaValues.getType(nameValue));
+            }
+
+            name = (String) nameValue;
+            List<Object> values = new ArrayList<>();
+            for (int i = 2; ; i++) {
+                Object value = table.get((double) i);
+                if (value == null) {
+                    break;
+                }
+                values.add(value);
+            }
+
+            // The table's size counts every key, so anything past the first nil (or which is not a list index) would
+            // otherwise be silently dropped or read as nil.
+            if (values.size() + 1 != table.size()) {
+                throw new LuaException("Command " + index + ": expected a list of arguments with no holes");
+            }
+            args = new ObjectArguments(values);
+        } else {
+            throw new LuaException("Command " + index + ": expected string or table, got " + LuaValues.getType(command));
+        }
+
+        try {
+            return parseCommand(name, args);
+        } catch (LuaException e) {
+            throw new LuaException("Command " + index + " (" + name + "): " + e.getMessage());
+        }
+    }
+
+    private static ITurtleCommand parseCommand(String name, IArguments args) throws LuaException {
+        switch (name) {
+            case "forward":
+                return new TurtleMoveCommand(MoveDirection.FORWARD);
+            case "back":
+                return new TurtleMoveCommand(MoveDirection.BACK);
+            case "up":
+                return new TurtleMoveCommand(MoveDirection.UP);
+            case "down":
+                return new TurtleMoveCommand(MoveDirection.DOWN);
+            case "turnLeft":
+                return new TurtleTurnCommand(TurnDirection.LEFT);
+            case "turnRight":
+                return new TurtleTurnCommand(TurnDirection.RIGHT);
+            case "dig":
+                return TurtleToolCommand.dig(InteractDirection.FORWARD, args.optEnum(0, TurtleSide.class).orElse(null));
+            case "digUp":
+                return TurtleToolCommand.dig(InteractDirection.UP, args.optEnum(0, TurtleSide.class).orElse(null));
+            case "digDown":
+                return TurtleToolCommand.dig(InteractDirection.DOWN, args.optEnum(0, TurtleSide.class).orElse(null));
+            case "attack":
+                return TurtleToolCommand.attack(InteractDirection.FORWARD, args.optEnum(0, TurtleSide.class).orElse(null));
+            case "attackUp":
+                return TurtleToolCommand.attack(InteractDirection.UP, args.optEnum(0, TurtleSide.class).orElse(null));
+            case "attackDown":
+                return TurtleToolCommand.attack(InteractDirection.DOWN, args.optEnum(0, TurtleSide.class).orElse(null));
+            case "place":
+                return new TurtlePlaceCommand(InteractDirection.FORWARD, args.getAll());
+            case "placeUp":
+                return new TurtlePlaceCommand(InteractDirection.UP, args.getAll());
+            case "placeDown":
+                return new TurtlePlaceCommand(InteractDirection.DOWN, args.getAll());
+            case "drop":
+                return new TurtleDropCommand(InteractDirection.FORWARD, checkCount(args.optInt(0)));
+            case "dropUp":
+                return new TurtleDropCommand(InteractDirection.UP, checkCount(args.optInt(0)));
+            case "dropDown":
+                return new TurtleDropCommand(InteractDirection.DOWN, checkCount(args.optInt(0)));
+            case "suck":
+                return new TurtleSuckCommand(InteractDirection.FORWARD, checkCount(args.optInt(0)));
+            case "suckUp":
+                return new TurtleSuckCommand(InteractDirection.UP, checkCount(args.optInt(0)));
+            case "suckDown":
+                return new TurtleSuckCommand(InteractDirection.DOWN, checkCount(args.optInt(0)));
+            case "detect":
+                return new TurtleDetectCommand(InteractDirection.FORWARD);
+            case "detectUp":
+                return new TurtleDetectCommand(InteractDirection.UP);
+            case "detectDown":
+                return new TurtleDetectCommand(InteractDirection.DOWN);
+            case "compare":
+                return new TurtleCompareCommand(InteractDirection.FORWARD);
+            case "compareUp":
+                return new TurtleCompareCommand(InteractDirection.UP);
+            case "compareDown":
+                return new TurtleCompareCommand(InteractDirection.DOWN);
+            case "inspect":
+                return new TurtleInspectCommand(InteractDirection.FORWARD);
+            case "inspectUp":
+                return new TurtleInspectCommand(InteractDirection.UP);
+            case "inspectDown":
+                return new TurtleInspectCommand(InteractDirection.DOWN);
+            case "scan": {
+                int radius = args.optInt(0, 0);
+                if (radius < 0 || radius > ComputerCraft.turtleMaxScanRadius) {
+                    throw new LuaException("Radius " + radius + " out of range");
+                }
+                return new TurtleScanCommand(radius, args.optBoolean(1, false));
+            }
+            case "select": {
+                int slot = checkSlot(args.getInt(0));
+                return turtle -> {
+                    turtle.setSelectedSlot(slot);
+                    return TurtleCommandResult.success();
+                };
+            }
+            case "compareTo":
+                return new TurtleCompareToCommand(checkSlot(args.getInt(0)));
+            case "transferTo":
+                return new TurtleTransferToCommand(checkSlot(args.getInt(0)), checkCount(args.optInt(1)));
+            case "refuel": {
+                int count = args.optInt(0, Integer.MAX_VALUE);
+                if (count < 0) {
+                    throw new LuaException("Refuel count " + count + " out of range");
+                }
+                return new TurtleRefuelCommand(count);
+            }
+            default:
+                throw new LuaException("Unknown command");
+        }
+    }
+
     /**
      * Get the currently selected slot.
      *
@@ -690,6 +878,50 @@ public class TurtleAPI implements ILuaAPI {
         return this.trackCommand(new TurtleInspectCommand(InteractDirection.DOWN));
     }
 
+    /**
+     * Get information about every block around the turtle at once.
+     *
+     * Rather than returning a table for each block, this returns a palette listing each distinct block (in the same
+     * format as {@link #inspect}), and refers to blocks by their index in this palette. Air is not included in the
+     * palette.
+     *
+     * By default, this looks at the six blocks next to the turtle, returning a table with the palette index of each
+     * side ({@code forward}, {@code back}, {@code left}, {@code right}, {@code up} and {@code down}). Sides with no
+     * block are missing.
+     *
+     * If a radius is given, this looks at every block in the cube of that radius centred on the turtle, costing one fuel
+     * for each block of radius. The blocks are returned as a flat list of palette indices, ordered by x, then z, then y
+     * (in world coordinates, starting from the most negative corner). Air, and blocks in unloaded chunks, have an index
+     * of 0.
+     *
+     * Blocks which the turtle is not allowed to inspect (such as those protected by another mod) have an index of -1,
+     * and are not included in the palette.
+     *
+     * @param radius The radius of the cube to scan, or 0 to scan the adjacent blocks.
+     * @param tags   Whether to include the tags of each block in the palette.
+     * @return The turtle command result.
+     * @throws LuaException If the radius is out of range.
+     * @cc.treturn [1] table The details of each distinct block.
+     * @cc.treturn [1] table The palette index of each block.
+     * @cc.treturn [2] false If the scan failed.
+     * @cc.treturn [2] string The reason the scan failed.
+     * @cc.usage Find any ores next to the turtle.
+     * <pre>{@code
+     * local palette, sides = turtle.scan()
+     * for side, index in pairs(sides) do
+     *   if palette[index].name:find("_ore$") then print(side .. ": " .. palette[index].name) end
+     * end
+     * }</pre>
+     */
+    @LuaFunction
+    public final MethodResult scan(Optional<Integer> radius, Optional<Boolean> tags) throws LuaException {
+        int actualRadius = radius.orElse(0);
+        if (actualRadius < 0 || actualRadius > ComputerCraft.turtleMaxScanRadius) {
+            throw new LuaException("Radius " + actualRadius + " out of range");
+        }
+        return this.trackCommand(new TurtleScanCommand(actualRadius, tags.orElse(false)));
+    }
+
     /**
      * Get detailed information about the items in the given slot.
      *
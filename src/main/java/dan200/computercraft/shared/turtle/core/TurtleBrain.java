@@ -10,7 +10,9 @@ import static dan200.computercraft.shared.common.IColouredItem.NBT_COLOUR;
 import static dan200.computercraft.shared.util.WaterloggableHelpers.WATERLOGGED;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
@@ -34,12 +36,15 @@ import dan200.computercraft.api.turtle.TurtleAnimation;
 import dan200.computercraft.api.turtle.TurtleCommandResult;
 import dan200.computercraft.api.turtle.TurtleSide;
 import dan200.computercraft.core.computer.ComputerSide;
+import dan200.computercraft.core.tracking.Tracking;
+import dan200.computercraft.core.tracking.TrackingField;
 import dan200.computercraft.shared.TurtleUpgrades;
 import dan200.computercraft.shared.computer.blocks.ComputerProxy;
 import dan200.computercraft.shared.computer.core.ComputerFamily;
 import dan200.computercraft.shared.computer.core.ServerComputer;
 import dan200.computercraft.shared.turtle.blocks.TileTurtle;
 import dan200.computercraft.shared.util.Colour;
+import dan200.computercraft.shared.util.DirectionUtil;
 import dan200.computercraft.shared.util.Holiday;
 import dan200.computercraft.shared.util.HolidayUtil;
 import dan200.computercraft.shared.util.InventoryDelegate;
@@ -75,6 +80,13 @@ public class TurtleBrain implements ITurtleAccess {
     private static final String NBT_SLOT = "Slot";
 
     private static final int ANIM_DURATION = 8;
+
+    /**
+     * How far around the turtle to look for entities to push. Entities further away than this when a move starts are
+     * assumed not to reach the turtle before it finishes moving.
+     */
+    private static final double PUSH_MARGIN = 2.0;
+
     private final Queue<TurtleCommandQueueEntry> m_commandQueue = new ArrayDeque<>();
     private final Map<TurtleSide, ITurtleUpgrade> m_upgrades = new EnumMap<>(TurtleSide.class);
     private final Map<TurtleSide, IPeripheral> peripherals = new EnumMap<>(TurtleSide.class);
@@ -93,6 +105,9 @@ public class TurtleBrain implements ITurtleAccess {
     private int m_animationProgress = 0;
     private int m_lastAnimationProgress = 0;
 
+    // Entities which may be pushed by the current move. See getPushCandidates.
+    private List<Entity> m_pushCandidates = null;
+
     public TurtleBrain(TileTurtle turtle) {
         this.m_owner = turtle;
     }
@@ -243,18 +258,23 @@ public class TurtleBrain implements ITurtleAccess {
                         TileTurtle newTurtle = (TileTurtle) newTile;
                         newTurtle.setLocation(world, pos);
                         newTurtle.transferStateFrom(oldOwner);
-                        newTurtle.createServerComputer()
-                                 .setWorld(world);
-                        newTurtle.createServerComputer()
-                                 .setPosition(pos);
+                        ServerComputer computer = newTurtle.createServerComputer();
+                        computer.setWorld(world);
+                        computer.setPosition(pos);
 
-                        // Remove the old turtle
+                        // Remove the old turtle. This sends a neighbour update to the new turtle if it is next to the
+                        // old one, so that side's input is already up-to-date.
                         oldWorld.removeBlock(oldPos, false);
-
-                        // Make sure everybody knows about it
-                        newTurtle.updateBlock();
-                        newTurtle.updateInput();
-                        newTurtle.updateOutput();
+                        Direction behind = oldWorld == world ? getAdjacentSide(pos, oldPos) : null;
+
+                        // Make sure everybody knows about it. Our neighbours only need a block update if there is a
+                        // signal for them to see, otherwise they would compute the same power as before we arrived.
+                        newTurtle.updateInputExcept(behind);
+                        if (newTurtle.hasRedstoneOutput()) {
+                            newTurtle.updateOutput();
+                        } else {
+                            newTurtle.updateBlock();
+                        }
                         return true;
                     }
                 }
@@ -270,6 +290,17 @@ public class TurtleBrain implements ITurtleAccess {
         return false;
     }
 
+    @Nullable
+    private static Direction getAdjacentSide(BlockPos pos, BlockPos neighbour) {
+        for (Direction dir : DirectionUtil.FACINGS) {
+            if (pos.offset(dir)
+                   .equals(neighbour)) {
+                return dir;
+            }
+        }
+        return null;
+    }
+
     @Nonnull
     @Override
     public Vec3d getVisualPosition(float f) {
@@ -413,13 +444,28 @@ public class TurtleBrain implements ITurtleAccess {
         }
 
         // Issue command
-        int commandID = this.issueCommand(command);
+        int commandID = this.issueCommand(new TurtleCommandQueueEntry(++this.m_commandsIssued, command));
         return new CommandCallback(commandID).pull;
     }
 
-    private int issueCommand(ITurtleCommand command) {
-        this.m_commandQueue.offer(new TurtleCommandQueueEntry(++this.m_commandsIssued, command));
-        return this.m_commandsIssued;
+    @Nonnull
+    @Override
+    public MethodResult executeCommands(@Nonnull List<ITurtleCommand> commands, boolean continueOnFailure) {
+        if (this.getWorld().isClient) {
+            throw new UnsupportedOperationException("Cannot run commands on the client");
+        }
+
+        if (commands.isEmpty()) {
+            return MethodResult.of(true, Collections.emptyList());
+        }
+
+        int commandID = this.issueCommand(new TurtleCommandBatch(++this.m_commandsIssued, new ArrayList<>(commands), continueOnFailure));
+        return new CommandCallback(commandID).pull;
+    }
+
+    private int issueCommand(TurtleCommandQueueEntry entry) {
+        this.m_commandQueue.offer(entry);
+        return entry.callbackID;
     }
 
     @Override
@@ -429,6 +475,7 @@ public class TurtleBrain implements ITurtleAccess {
         }
 
         this.m_animation = animation;
+        this.m_pushCandidates = null;
         if (this.m_animation == TurtleAnimation.SHORT_WAIT) {
             this.m_animationProgress = ANIM_DURATION / 2;
             this.m_lastAnimationProgress = ANIM_DURATION / 2;
@@ -503,62 +550,75 @@ public class TurtleBrain implements ITurtleAccess {
     }
 
     private void updateCommands() {
-        if (this.m_animation != TurtleAnimation.NONE || this.m_commandQueue.isEmpty()) {
+        if (this.m_commandQueue.isEmpty()) {
             return;
         }
 
-        // If we've got a computer, ensure that we're allowed to perform work.
         ServerComputer computer = this.m_owner.getServerComputer();
-        if (computer != null && !computer.getComputer()
-                                         .getMainThreadMonitor()
-                                         .canWork()) {
-            return;
-        }
+        while (true) {
+            // Mutating commands wait for the current animation, and only one may run each tick. Read-only commands don't
+            // change anything an animation depends on, so we run as many of them as we can.
+            TurtleCommandQueueEntry nextCommand = this.m_commandQueue.peek();
+            if (nextCommand == null) {
+                return;
+            }
 
-        // Pull a new command
-        TurtleCommandQueueEntry nextCommand = this.m_commandQueue.poll();
-        if (nextCommand == null) {
-            return;
+            boolean readOnly = nextCommand.next()
+                                          .isReadOnly();
+            if (!readOnly && this.m_animation != TurtleAnimation.NONE) {
+                return;
+            }
+
+            // If we've got a computer, ensure that we're allowed to perform work.
+            if (computer != null && !computer.getComputer()
+                                             .getMainThreadMonitor()
+                                             .canWork()) {
+                return;
+            }
+
+            // Batches stay at the head of the queue until their last command has run.
+            if (this.runCommand(computer, nextCommand)) {
+                this.m_commandQueue.remove();
+            }
+
+            if (!readOnly || this.m_owner.isRemoved()) {
+                return;
+            }
         }
+    }
 
+    private boolean runCommand(@Nullable ServerComputer computer, TurtleCommandQueueEntry nextCommand) {
         // Execute the command
         long start = System.nanoTime();
-        TurtleCommandResult result = nextCommand.command.execute(this);
+        TurtleCommandResult result = nextCommand.next()
+                                                .execute(this);
         long end = System.nanoTime();
 
+        if (computer != null) {
+            computer.getComputer()
+                    .getMainThreadMonitor()
+                    .trackWork(end - start, TimeUnit.NANOSECONDS);
+        }
+
+        Object[] response = nextCommand.complete(result != null ? result : TurtleCommandResult.failure());
+        if (response == null) {
+            return false;
+        }
+
         // Dispatch the callback
         if (computer == null) {
-            return;
+            return true;
         }
-        computer.getComputer()
-                .getMainThreadMonitor()
-                .trackWork(end - start, TimeUnit.NANOSECONDS);
         int callbackID = nextCommand.callbackID;
         if (callbackID < 0) {
-            return;
+            return true;
         }
 
-        if (result != null && result.isSuccess()) {
-            Object[] results = result.getResults();
-            if (results != null) {
-                Object[] arguments = new Object[results.length + 2];
-                arguments[0] = callbackID;
-                arguments[1] = true;
-                System.arraycopy(results, 0, arguments, 2, results.length);
-                computer.queueEvent("turtle_response", arguments);
-            } else {
-                computer.queueEvent("turtle_response", new Object[] {
-                    callbackID,
-                    true,
-                    });
-            }
-        } else {
-            computer.queueEvent("turtle_response", new Object[] {
-                callbackID,
-                false,
-                result != null ? result.getErrorMessage() : null,
-                });
-        }
+        Object[] arguments = new Object[response.length + 1];
+        arguments[0] = callbackID;
+        System.arraycopy(response, 0, arguments, 1, response.length);
+        computer.queueEvent("turtle_response", arguments);
+        return true;
     }
 
     private void updateAnimation() {
@@ -614,14 +674,17 @@ public class TurtleBrain implements ITurtleAccess {
                     }
 
                     Box aabb = new Box(minX, minY, minZ, maxX, maxY, maxZ);
-                    List<Entity> list = world.getEntitiesByClass(Entity.class, aabb, EntityPredicates.EXCEPT_SPECTATOR);
+                    List<Entity> list = this.getPushCandidates(world, pos);
                     if (!list.isEmpty()) {
                         double pushStep = 1.0f / ANIM_DURATION;
                         double pushStepX = moveDir.getOffsetX() * pushStep;
                         double pushStepY = moveDir.getOffsetY() * pushStep;
                         double pushStepZ = moveDir.getOffsetZ() * pushStep;
                         for (Entity entity : list) {
-                            entity.move(MovementType.PISTON, new Vec3d(pushStepX, pushStepY, pushStepZ));
+                            if (!entity.removed && entity.getBoundingBox()
+                                                         .intersects(aabb)) {
+                                entity.move(MovementType.PISTON, new Vec3d(pushStepX, pushStepY, pushStepZ));
+                            }
                         }
                     }
                 }
@@ -654,10 +717,34 @@ public class TurtleBrain implements ITurtleAccess {
                 this.m_animation = TurtleAnimation.NONE;
                 this.m_animationProgress = 0;
                 this.m_lastAnimationProgress = 0;
+                this.m_pushCandidates = null;
             }
         }
     }
 
+    /**
+     * Find the entities which the current move animation may push.
+     *
+     * Rather than searching the world every tick, we search once per move, the first time the move needs them. This
+     * covers everything which could reach the turtle before the animation finishes.
+     *
+     * @param world The world the turtle is in.
+     * @param pos   The turtle's position.
+     * @return Entities near the turtle. The caller should check they are actually in the way.
+     */
+    private List<Entity> getPushCandidates(World world, BlockPos pos) {
+        if (this.m_pushCandidates == null) {
+            this.m_pushCandidates = world.getEntitiesByClass(Entity.class, new Box(pos).expand(PUSH_MARGIN), EntityPredicates.EXCEPT_SPECTATOR);
+
+            ServerComputer computer = this.m_owner.getServerComputer();
+            if (computer != null) {
+                Tracking.addValue(computer.getComputer(), TrackingField.TURTLE_PUSH_QUERIES, 1);
+            }
+        }
+
+        return this.m_pushCandidates;
+    }
+
     public Vec3d getRenderOffset(float f) {
         switch (this.m_animation) {
         case MOVE_FORWARD:
@@ -806,6 +893,7 @@ public class TurtleBrain implements ITurtleAccess {
             this.m_animation = anim;
             this.m_animationProgress = 0;
             this.m_lastAnimationProgress = 0;
+            this.m_pushCandidates = null;
         }
     }
 
@@ -0,0 +1,62 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+
+package dan200.computercraft.shared.turtle.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import dan200.computercraft.api.turtle.ITurtleCommand;
+import dan200.computercraft.api.turtle.TurtleCommandResult;
+
+/**
+ * A sequence of commands which occupies a single slot in the turtle's command queue.
+ *
+ * Each command runs in the same way as if it had been queued on its own, so moves still wait for the previous animation.
+ * However, the computer only receives one {@code turtle_response} event, once the whole sequence has finished.
+ *
+ * @see dan200.computercraft.api.turtle.ITurtleAccess#executeCommands(List, boolean)
+ */
+final class TurtleCommandBatch extends TurtleCommandQueueEntry {
+    private final List<ITurtleCommand> commands;
+    private final boolean continueOnFailure;
+    private final List<Object[]> results;
+    private boolean success = true;
+
+    TurtleCommandBatch(int callbackID, @Nonnull List<ITurtleCommand> commands, boolean continueOnFailure) {
+        super(callbackID, null);
+        this.commands = commands;
+        this.continueOnFailure = continueOnFailure;
+        this.results = new ArrayList<>(commands.size());
+    }
+
+    @Nonnull
+    @Override
+    ITurtleCommand next() {
+        return this.commands.get(this.results.size());
+    }
+
+    @Nullable
+    @Override
+    Object[] complete(@Nonnull TurtleCommandResult result) {
+        this.results.add(toResponse(result));
+        if (!result.isSuccess()) {
+            this.success = false;
+        }
+
+        if (this.results.size() < this.commands.size() && (this.success || this.continueOnFailure)) {
+            return null;
+        }
+
+        return new Object[] {
+            this.success,
+            this.results,
+        };
+    }
+}
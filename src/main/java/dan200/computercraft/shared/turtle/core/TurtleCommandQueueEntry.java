@@ -6,14 +6,58 @@
 
 package dan200.computercraft.shared.turtle.core;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
 import dan200.computercraft.api.turtle.ITurtleCommand;
+import dan200.computercraft.api.turtle.TurtleCommandResult;
 
 public class TurtleCommandQueueEntry {
     public final int callbackID;
-    public final ITurtleCommand command;
+    private final ITurtleCommand command;
 
     public TurtleCommandQueueEntry(int callbackID, ITurtleCommand command) {
         this.callbackID = callbackID;
         this.command = command;
     }
+
+    /**
+     * Get the command which should be run next.
+     *
+     * @return The next command to run.
+     */
+    @Nonnull
+    ITurtleCommand next() {
+        return this.command;
+    }
+
+    /**
+     * Record the result of running {@link #next()}.
+     *
+     * @param result The result of the command.
+     * @return The values to send back to the computer, or {@code null} if this entry has more commands to run.
+     */
+    @Nullable
+    Object[] complete(@Nonnull TurtleCommandResult result) {
+        return toResponse(result);
+    }
+
+    static Object[] toResponse(@Nonnull TurtleCommandResult result) {
+        if (!result.isSuccess()) {
+            return new Object[] {
+                false,
+                result.getErrorMessage(),
+            };
+        }
+
+        Object[] results = result.getResults();
+        if (results == null) {
+            return new Object[] {true};
+        }
+
+        Object[] response = new Object[results.length + 1];
+        response[0] = true;
+        System.arraycopy(results, 0, response, 1, results.length);
+        return response;
+    }
 }
@@ -45,32 +45,35 @@ public class TurtleCompareCommand implements ITurtleCommand {
         BlockPos newPosition = oldPosition.offset(direction);
 
         ItemStack lookAtStack = ItemStack.EMPTY;
-        if (!world.isAir(newPosition)) {
-            BlockState lookAtState = world.getBlockState(newPosition);
+        BlockState lookAtState = TurtleWorldCache.getBlockState(turtle, newPosition);
+        if (!lookAtState.isAir()) {
             Block lookAtBlock = lookAtState.getBlock();
-            if (!lookAtState.isAir()) {
-                // See if the block drops anything with the same ID as itself
-                // (try 5 times to try and beat random number generators)
-                for (int i = 0; i < 5 && lookAtStack.isEmpty(); i++) {
-                    List<ItemStack> drops = Block.getDroppedStacks(lookAtState, (ServerWorld) world, newPosition, world.getBlockEntity(newPosition));
-                    if (!drops.isEmpty()) {
-                        for (ItemStack drop : drops) {
-                            if (drop.getItem() == lookAtBlock.asItem()) {
-                                lookAtStack = drop;
-                                break;
-                            }
+            // See if the block drops anything with the same ID as itself
+            // (try 5 times to try and beat random number generators)
+            for (int i = 0; i < 5 && lookAtStack.isEmpty(); i++) {
+                List<ItemStack> drops = Block.getDroppedStacks(lookAtState, (ServerWorld) world, newPosition, world.getBlockEntity(newPosition));
+                if (!drops.isEmpty()) {
+                    for (ItemStack drop : drops) {
+                        if (drop.getItem() == lookAtBlock.asItem()) {
+                            lookAtStack = drop;
+                            break;
                         }
                     }
                 }
+            }
 
-                // Last resort: roll our own (which will probably be wrong)
-                if (lookAtStack.isEmpty()) {
-                    lookAtStack = new ItemStack(lookAtBlock);
-                }
+            // Last resort: roll our own (which will probably be wrong)
+            if (lookAtStack.isEmpty()) {
+                lookAtStack = new ItemStack(lookAtBlock);
             }
         }
 
         // Compare them
         return selectedStack.getItem() == lookAtStack.getItem() ? TurtleCommandResult.success() : TurtleCommandResult.failure();
     }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
 }
@@ -35,4 +35,9 @@ public class TurtleCompareToCommand implements ITurtleCommand {
             return TurtleCommandResult.failure();
         }
     }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
 }
@@ -11,11 +11,10 @@ import javax.annotation.Nonnull;
 import dan200.computercraft.api.turtle.ITurtleAccess;
 import dan200.computercraft.api.turtle.ITurtleCommand;
 import dan200.computercraft.api.turtle.TurtleCommandResult;
-import dan200.computercraft.shared.util.WorldUtil;
 
+import net.minecraft.block.BlockState;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
-import net.minecraft.world.World;
 
 public class TurtleDetectCommand implements ITurtleCommand {
     private final InteractDirection m_direction;
@@ -31,10 +30,16 @@ public class TurtleDetectCommand implements ITurtleCommand {
         Direction direction = this.m_direction.toWorldDir(turtle);
 
         // Check if thing in front is air or not
-        World world = turtle.getWorld();
         BlockPos oldPosition = turtle.getPosition();
         BlockPos newPosition = oldPosition.offset(direction);
 
-        return !WorldUtil.isLiquidBlock(world, newPosition) && !world.isAir(newPosition) ? TurtleCommandResult.success() : TurtleCommandResult.failure();
+        BlockState state = TurtleWorldCache.getBlockState(turtle, newPosition);
+        return !state.isAir() && !state.getMaterial()
+                                       .isLiquid() ? TurtleCommandResult.success() : TurtleCommandResult.failure();
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
     }
 }
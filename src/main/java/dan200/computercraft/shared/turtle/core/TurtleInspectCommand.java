@@ -45,7 +45,7 @@ public class TurtleInspectCommand implements ITurtleCommand {
         BlockPos oldPosition = turtle.getPosition();
         BlockPos newPosition = oldPosition.offset(direction);
 
-        BlockState state = world.getBlockState(newPosition);
+        BlockState state = TurtleWorldCache.getBlockState(turtle, newPosition);
         if (state.isAir()) {
             return TurtleCommandResult.failure("No block to inspect");
         }
@@ -72,4 +72,9 @@ public class TurtleInspectCommand implements ITurtleCommand {
         }
         return property.name(value);
     }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
 }
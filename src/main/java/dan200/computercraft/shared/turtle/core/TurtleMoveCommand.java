@@ -18,7 +18,6 @@ import dan200.computercraft.api.turtle.TurtleCommandResult;
 import dan200.computercraft.api.turtle.event.TurtleBlockEvent;
 import dan200.computercraft.api.turtle.event.TurtleEvent;
 import dan200.computercraft.shared.TurtlePermissions;
-import dan200.computercraft.shared.util.WorldUtil;
 
 import net.minecraft.block.BlockState;
 import net.minecraft.entity.Entity;
@@ -55,15 +54,16 @@ public class TurtleMoveCommand implements ITurtleCommand {
         }
 
         // Check existing block is air or replaceable
-        BlockState state = oldWorld.getBlockState(newPosition);
-        if (!oldWorld.isAir(newPosition) && !WorldUtil.isLiquidBlock(oldWorld, newPosition) && !state.getMaterial()
-                                                                                                     .isReplaceable()) {
+        BlockState state = TurtleWorldCache.getBlockState(turtle, newPosition);
+        if (!state.isAir() && !state.getMaterial()
+                                    .isLiquid() && !state.getMaterial()
+                                                         .isReplaceable()) {
             return TurtleCommandResult.failure("Movement obstructed");
         }
 
         // Check there isn't anything in the way
-        VoxelShape collision = state.getCollisionShape(oldWorld, oldPosition)
-                                    .offset(newPosition.getX(), newPosition.getY(), newPosition.getZ());
+        VoxelShape collision = TurtleWorldCache.getCollisionShape(turtle, newPosition)
+                                               .offset(newPosition.getX(), newPosition.getY(), newPosition.getZ());
 
         if (!oldWorld.intersectsEntities(null, collision)) {
             if (!ComputerCraft.turtlesCanPush || this.m_direction == MoveDirection.UP || this.m_direction == MoveDirection.DOWN) {
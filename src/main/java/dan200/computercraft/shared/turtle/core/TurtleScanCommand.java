@@ -0,0 +1,159 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+
+package dan200.computercraft.shared.turtle.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+import dan200.computercraft.api.turtle.ITurtleAccess;
+import dan200.computercraft.api.turtle.ITurtleCommand;
+import dan200.computercraft.api.turtle.TurtleCommandResult;
+import dan200.computercraft.api.turtle.event.TurtleAction;
+import dan200.computercraft.api.turtle.event.TurtleActionEvent;
+import dan200.computercraft.api.turtle.event.TurtleBlockEvent;
+import dan200.computercraft.api.turtle.event.TurtleEvent;
+import dan200.computercraft.shared.peripheral.generic.data.BlockData;
+import dan200.computercraft.shared.peripheral.generic.data.BlockPalette;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.world.World;
+
+/**
+ * Inspects every block around the turtle in one go.
+ *
+ * With a radius of 0, this looks at the six blocks next to the turtle, keyed by their side relative to the turtle.
+ * Otherwise, this looks at every block in a cube around the turtle, which costs one unit of fuel per block of radius.
+ *
+ * Each distinct block state fires a {@link TurtleBlockEvent.Inspect}, in the same way as {@link TurtleInspectCommand},
+ * at the first position it is found. Every other block with that state shares the result, so blocks whose event is
+ * cancelled are reported as {@link BlockPalette#UNKNOWN}, and are not added to the palette. As blocks share their
+ * palette entry, any data added by the event is not included.
+ *
+ * @see dan200.computercraft.shared.turtle.apis.TurtleAPI#scan
+ */
+public class TurtleScanCommand implements ITurtleCommand {
+    private final int radius;
+    private final boolean tags;
+
+    public TurtleScanCommand(int radius, boolean tags) {
+        this.radius = radius;
+        this.tags = tags;
+    }
+
+    @Nonnull
+    @Override
+    public TurtleCommandResult execute(@Nonnull ITurtleAccess turtle) {
+        // Scanning is an inspection, so should be disabled alongside it.
+        TurtleActionEvent event = new TurtleActionEvent(turtle, TurtleAction.INSPECT);
+        if (TurtleEvent.post(event)) {
+            return TurtleCommandResult.failure(event.getFailureMessage());
+        }
+
+        if (this.radius > 0 && turtle.isFuelNeeded() && !turtle.consumeFuel(this.radius)) {
+            return TurtleCommandResult.failure("Out of fuel");
+        }
+
+        World world = turtle.getWorld();
+        BlockPos origin = turtle.getPosition();
+        BlockPalette palette = new BlockPalette(this.tags);
+        Map<BlockState, Integer> inspected = new IdentityHashMap<>();
+
+        if (this.radius == 0) {
+            Direction forward = turtle.getDirection();
+            Map<String, Object> blocks = new HashMap<>();
+            scanSide(turtle, forward, "forward", palette, inspected, blocks);
+            scanSide(turtle, forward.getOpposite(), "back", palette, inspected, blocks);
+            scanSide(turtle, forward.rotateYCounterclockwise(), "left", palette, inspected, blocks);
+            scanSide(turtle, forward.rotateYClockwise(), "right", palette, inspected, blocks);
+            scanSide(turtle, Direction.UP, "up", palette, inspected, blocks);
+            scanSide(turtle, Direction.DOWN, "down", palette, inspected, blocks);
+            return TurtleCommandResult.success(new Object[] {
+                palette.getEntries(),
+                blocks,
+            });
+        }
+
+        int size = this.radius * 2 + 1;
+        List<Object> blocks = new ArrayList<>(size * size * size);
+        TurtlePlayer player = TurtlePlaceCommand.createPlayer(turtle, origin, turtle.getDirection());
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+        for (int y = -this.radius; y <= this.radius; y++) {
+            for (int z = -this.radius; z <= this.radius; z++) {
+                for (int x = -this.radius; x <= this.radius; x++) {
+                    pos.set(origin.getX() + x, origin.getY() + y, origin.getZ() + z);
+                    if (!World.isInBuildLimit(pos) || !world.isChunkLoaded(pos)) {
+                        blocks.add(BlockPalette.AIR);
+                        continue;
+                    }
+
+                    blocks.add(inspect(turtle, player, pos, TurtleWorldCache.getBlockState(turtle, pos), palette, inspected));
+                }
+            }
+        }
+
+        return TurtleCommandResult.success(new Object[] {
+            palette.getEntries(),
+            blocks,
+        });
+    }
+
+    private static void scanSide(ITurtleAccess turtle, Direction direction, String name, BlockPalette palette, Map<BlockState, Integer> inspected,
+                                 Map<String, Object> blocks) {
+        BlockPos origin = turtle.getPosition();
+        BlockPos pos = origin.offset(direction);
+        BlockState state = TurtleWorldCache.getBlockState(turtle, pos);
+        if (state.isAir()) {
+            return;
+        }
+
+        TurtlePlayer player = TurtlePlaceCommand.createPlayer(turtle, origin, direction);
+        blocks.put(name, inspect(turtle, player, pos, state, palette, inspected));
+    }
+
+    /**
+     * Fire the inspect event for a block, and add it to the palette if allowed.
+     *
+     * Block states are shared, so the event is only fired the first time a state is seen in this scan.
+     *
+     * @param turtle    The turtle doing the scan.
+     * @param player    The turtle's player.
+     * @param pos       The position of the block.
+     * @param state     The block at this position.
+     * @param palette   The palette to add the block to.
+     * @param inspected The result of inspecting each block state seen so far.
+     * @return The block's index in the palette, or {@link BlockPalette#UNKNOWN} if the event was cancelled.
+     */
+    private static int inspect(ITurtleAccess turtle, TurtlePlayer player, BlockPos pos, BlockState state, BlockPalette palette,
+                               Map<BlockState, Integer> inspected) {
+        if (state.isAir()) {
+            return BlockPalette.AIR;
+        }
+
+        Integer index = inspected.get(state);
+        if (index != null) {
+            return index;
+        }
+
+        Map<String, Object> data = BlockData.fill(new HashMap<>(), state);
+        TurtleBlockEvent.Inspect event = new TurtleBlockEvent.Inspect(turtle, player, turtle.getWorld(), pos.toImmutable(), state, data);
+        index = TurtleEvent.post(event) ? BlockPalette.UNKNOWN : palette.getIndex(state);
+        inspected.put(state, index);
+        return index;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+}
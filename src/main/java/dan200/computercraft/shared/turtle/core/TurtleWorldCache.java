@@ -0,0 +1,126 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+
+package dan200.computercraft.shared.turtle.core;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+import dan200.computercraft.api.turtle.ITurtleAccess;
+import dan200.computercraft.core.tracking.Tracking;
+import dan200.computercraft.core.tracking.TrackingField;
+import dan200.computercraft.shared.computer.core.ServerComputer;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.shape.VoxelShape;
+import net.minecraft.world.World;
+
+/**
+ * A cache of the blocks turtles have looked at during the current tick.
+ *
+ * Turtles working in the same area tend to look at the same blocks many times within a tick - a move, detect and dig
+ * will all check the block in front. Rather than going back to the world each time, block states and collision shapes
+ * are remembered until the end of the tick, or until the block is changed.
+ *
+ * This should only be used from the server thread.
+ *
+ * @see dan200.computercraft.mixin.MixinWorld
+ */
+public final class TurtleWorldCache {
+    private static final Map<World, Long2ObjectMap<Entry>> caches = new IdentityHashMap<>();
+
+    private TurtleWorldCache() {
+    }
+
+    @Nonnull
+    public static BlockState getBlockState(@Nonnull ITurtleAccess turtle, @Nonnull BlockPos pos) {
+        Entry entry = getEntry(turtle.getWorld(), pos);
+        track(turtle, entry.state != null);
+        if (entry.state == null) {
+            entry.state = turtle.getWorld()
+                                .getBlockState(pos);
+        }
+        return entry.state;
+    }
+
+    @Nonnull
+    public static VoxelShape getCollisionShape(@Nonnull ITurtleAccess turtle, @Nonnull BlockPos pos) {
+        Entry entry = getEntry(turtle.getWorld(), pos);
+        track(turtle, entry.collision != null);
+        if (entry.collision == null) {
+            if (entry.state == null) {
+                entry.state = turtle.getWorld()
+                                    .getBlockState(pos);
+            }
+            entry.collision = entry.state.getCollisionShape(turtle.getWorld(), pos);
+        }
+        return entry.collision;
+    }
+
+    private static Entry getEntry(World world, BlockPos pos) {
+        // Client worlds are never invalidated, so give them a fresh entry each time.
+        if (world.isClient) {
+            return new Entry();
+        }
+
+        Long2ObjectMap<Entry> cache = caches.computeIfAbsent(world, x -> new Long2ObjectOpenHashMap<>());
+        long key = pos.asLong();
+        Entry entry = cache.get(key);
+        if (entry == null) {
+            cache.put(key, entry = new Entry());
+        }
+        return entry;
+    }
+
+    private static void track(ITurtleAccess turtle, boolean hit) {
+        if (!(turtle instanceof TurtleBrain)) {
+            return;
+        }
+
+        ServerComputer computer = ((TurtleBrain) turtle).getOwner()
+                                                        .getServerComputer();
+        if (computer != null) {
+            Tracking.addValue(computer.getComputer(), TrackingField.TURTLE_BLOCK_LOOKUPS, 1);
+            if (hit) {
+                Tracking.addValue(computer.getComputer(), TrackingField.TURTLE_BLOCK_CACHE_HITS, 1);
+            }
+        }
+    }
+
+    /**
+     * Forget a block, as it has been changed.
+     *
+     * @param world The world the block is in.
+     * @param pos The position of the block.
+     */
+    public static void invalidate(World world, BlockPos pos) {
+        if (world.isClient || caches.isEmpty()) {
+            return;
+        }
+
+        Long2ObjectMap<Entry> cache = caches.get(world);
+        if (cache != null) {
+            cache.remove(pos.asLong());
+        }
+    }
+
+    /**
+     * Forget every block. This is called at the start of each tick.
+     */
+    public static void reset() {
+        caches.clear();
+    }
+
+    private static final class Entry {
+        BlockState state;
+        VoxelShape collision;
+    }
+}
@@ -7,8 +7,11 @@
 package dan200.computercraft.shared.turtle.upgrades;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -19,14 +22,34 @@ import dan200.computercraft.shared.turtle.core.TurtlePlayer;
 
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.inventory.CraftingInventory;
+import net.minecraft.inventory.Inventory;
+import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.recipe.Recipe;
+import net.minecraft.recipe.RecipeManager;
 import net.minecraft.recipe.RecipeType;
 import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.collection.DefaultedList;
 import net.minecraft.world.World;
 
 public class TurtleInventoryCrafting extends CraftingInventory {
+    private static final int CACHE_SIZE = 256;
+
+    /**
+     * Recently crafted recipes, keyed by the layout of the turtle's inventory. Finding a recipe means searching every
+     * crafting recipe for each of the four possible positions of the grid, while checking a cached one only needs a
+     * single {@link Recipe#matches} call. This is only accessed from the server thread.
+     *
+     * The cache is cleared whenever the recipe manager changes, such as when data packs are reloaded.
+     */
+    private static final Map<Layout, CachedRecipe> cache = new LinkedHashMap<Layout, CachedRecipe>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Layout, CachedRecipe> eldest) {
+            return this.size() > CACHE_SIZE;
+        }
+    };
+    private static RecipeManager cacheManager;
+
     private ITurtleAccess m_turtle;
     private int m_xStart;
     private int m_yStart;
@@ -41,6 +64,14 @@ public class TurtleInventoryCrafting extends CraftingInventory {
         this.m_yStart = 0;
     }
 
+    /**
+     * Forget every cached recipe, and the recipe manager they came from. This is called when the server stops.
+     */
+    public static void reset() {
+        cache.clear();
+        cacheManager = null;
+    }
+
     @Nullable
     private Recipe<CraftingInventory> tryCrafting(int xStart, int yStart) {
         this.m_xStart = xStart;
@@ -67,12 +98,24 @@ public class TurtleInventoryCrafting extends CraftingInventory {
     }
 
     @Nullable
-    public List<ItemStack> doCrafting(World world, int maxCount) {
-        if (world.isClient || !(world instanceof ServerWorld)) {
-            return null;
+    private Recipe<CraftingInventory> findRecipe(World world) {
+        RecipeManager manager = world.getRecipeManager();
+        if (manager != cacheManager) {
+            cache.clear();
+            cacheManager = manager;
+        }
+
+        // The layout covers the whole inventory, so a cached grid position still has nothing outside it.
+        Layout layout = new Layout(this.m_turtle.getInventory());
+        CachedRecipe cached = cache.get(layout);
+        if (cached != null) {
+            this.m_xStart = cached.xStart;
+            this.m_yStart = cached.yStart;
+            if (cached.recipe.matches(this, world)) {
+                return cached.recipe;
+            }
         }
 
-        // Find out what we can craft
         Recipe<CraftingInventory> recipe = this.tryCrafting(0, 0);
         if (recipe == null) {
             recipe = this.tryCrafting(0, 1);
@@ -83,6 +126,21 @@ public class TurtleInventoryCrafting extends CraftingInventory {
         if (recipe == null) {
             recipe = this.tryCrafting(1, 1);
         }
+
+        if (recipe != null) {
+            cache.put(layout, new CachedRecipe(this.m_xStart, this.m_yStart, recipe));
+        }
+        return recipe;
+    }
+
+    @Nullable
+    public List<ItemStack> doCrafting(World world, int maxCount) {
+        if (world.isClient || !(world instanceof ServerWorld)) {
+            return null;
+        }
+
+        // Find out what we can craft
+        Recipe<CraftingInventory> recipe = this.findRecipe(world);
         if (recipe == null) {
             return null;
         }
@@ -94,6 +152,11 @@ public class TurtleInventoryCrafting extends CraftingInventory {
 
         TurtlePlayer player = TurtlePlayer.get(this.m_turtle);
 
+        List<ItemStack> bulk = this.doBulkCrafting(world, player, recipe, maxCount);
+        if (bulk != null) {
+            return bulk;
+        }
+
         ArrayList<ItemStack> results = new ArrayList<>();
         for (int i = 0; i < maxCount && recipe.matches(this, world); i++) {
             ItemStack result = recipe.craft(this);
@@ -134,6 +197,61 @@ public class TurtleInventoryCrafting extends CraftingInventory {
         return results;
     }
 
+    /**
+     * Craft several items at once. As every craft consumes one item from each slot, the inputs stay the same until one
+     * of the stacks runs out, so we can work out how many crafts are possible up front. This does not apply to recipes
+     * which leave items behind in the grid (such as buckets), which are crafted one at a time instead.
+     *
+     * @param world    The world we are crafting in.
+     * @param player   The player to craft as.
+     * @param recipe   The recipe to craft, which matches the current grid.
+     * @param maxCount The maximum number of times to craft this recipe.
+     * @return The crafted items, or {@code null} if this recipe cannot be crafted in bulk.
+     */
+    @Nullable
+    private List<ItemStack> doBulkCrafting(World world, PlayerEntity player, Recipe<CraftingInventory> recipe, int maxCount) {
+        for (ItemStack remainder : recipe.getRemainingStacks(this)) {
+            if (!remainder.isEmpty()) {
+                return null;
+            }
+        }
+
+        int crafts = maxCount;
+        for (int slot = 0; slot < this.size(); slot++) {
+            ItemStack stack = this.getStack(slot);
+            if (!stack.isEmpty()) {
+                crafts = Math.min(crafts, stack.getCount());
+            }
+        }
+
+        ItemStack result = recipe.craft(this);
+        if (result.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // The count is only used for statistics, so this is the same as crafting each item separately.
+        result.copy()
+              .onCraft(world, player, crafts * result.getCount());
+
+        for (int slot = 0; slot < this.size(); slot++) {
+            if (!this.getStack(slot)
+                     .isEmpty()) {
+                this.removeStack(slot, crafts);
+            }
+        }
+
+        // Merge the results into as few stacks as possible.
+        List<ItemStack> results = new ArrayList<>();
+        int remaining = crafts * result.getCount();
+        while (remaining > 0) {
+            ItemStack stack = result.copy();
+            stack.setCount(Math.min(remaining, result.getMaxCount()));
+            remaining -= stack.getCount();
+            results.add(stack);
+        }
+        return results;
+    }
+
     @Override
     public int getMaxCountPerStack() {
         return this.m_turtle.getInventory()
@@ -220,4 +338,42 @@ public class TurtleInventoryCrafting extends CraftingInventory {
                          .setStack(j, ItemStack.EMPTY);
         }
     }
+
+    /**
+     * The items in each slot of a turtle's inventory.
+     */
+    private static final class Layout {
+        private final Item[] items = new Item[TileTurtle.INVENTORY_WIDTH * TileTurtle.INVENTORY_HEIGHT];
+        private final int hash;
+
+        Layout(Inventory inventory) {
+            for (int i = 0; i < this.items.length; i++) {
+                this.items[i] = inventory.getStack(i)
+                                         .getItem();
+            }
+            this.hash = Arrays.hashCode(this.items);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || (o instanceof Layout && Arrays.equals(this.items, ((Layout) o).items));
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+
+    private static final class CachedRecipe {
+        final int xStart;
+        final int yStart;
+        final Recipe<CraftingInventory> recipe;
+
+        CachedRecipe(int xStart, int yStart, Recipe<CraftingInventory> recipe) {
+            this.xStart = xStart;
+            this.yStart = yStart;
+            this.recipe = recipe;
+        }
+    }
 }
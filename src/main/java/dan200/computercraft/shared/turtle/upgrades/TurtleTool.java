@@ -28,6 +28,7 @@ import dan200.computercraft.shared.TurtlePermissions;
 import dan200.computercraft.shared.turtle.core.TurtleBrain;
 import dan200.computercraft.shared.turtle.core.TurtlePlaceCommand;
 import dan200.computercraft.shared.turtle.core.TurtlePlayer;
+import dan200.computercraft.shared.turtle.core.TurtleWorldCache;
 import dan200.computercraft.shared.util.DropConsumer;
 import dan200.computercraft.shared.util.InventoryUtil;
 import dan200.computercraft.shared.util.WorldUtil;
@@ -199,12 +200,12 @@ public class TurtleTool extends AbstractTurtleUpgrade {
 
         BlockPos blockPosition = turtlePosition.offset(direction);
 
-        if (world.isAir(blockPosition) || WorldUtil.isLiquidBlock(world, blockPosition)) {
+        BlockState state = TurtleWorldCache.getBlockState(turtle, blockPosition);
+        if (state.isAir() || state.getMaterial()
+                                  .isLiquid()) {
             return TurtleCommandResult.failure("Nothing to dig here");
         }
 
-        BlockState state = world.getBlockState(blockPosition);
-
         TurtlePlayer turtlePlayer = TurtlePlaceCommand.createPlayer(turtle, turtlePosition, direction);
         turtlePlayer.loadInventory(this.item.copy());
 
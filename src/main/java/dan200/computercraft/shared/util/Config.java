@@ -75,6 +75,10 @@ public class Config {
         ComputerCraft.computerSpaceLimit = config.general.computer_space_limit;
         ComputerCraft.floppySpaceLimit = config.general.floppy_space_limit;
         ComputerCraft.maximumFilesOpen = Math.max(0, config.general.maximum_open_files);
+        ComputerCraft.packedFileSystems = config.general.packed_file_systems;
+        ComputerCraft.deduplicateFiles = config.general.deduplicate_files;
+        ComputerCraft.fileWriteBuffer = Math.max(0, config.general.file_write_buffer);
+        ComputerCraft.fileFlushInterval = Math.max(0, config.general.file_flush_interval);
         ComputerCraft.disable_lua51_features = config.general.disable_lua51_features;
         ComputerCraft.default_computer_settings = config.general.default_computer_settings;
         ComputerCraft.debug_enable = config.general.debug_enabled;
@@ -84,6 +88,7 @@ public class Config {
         ComputerCraft.computer_threads = Math.max(1, config.execution.computer_threads);
         ComputerCraft.maxMainGlobalTime = TimeUnit.MILLISECONDS.toNanos(Math.max(1, config.execution.max_main_global_time));
         ComputerCraft.maxMainComputerTime = TimeUnit.MILLISECONDS.toNanos(Math.max(1, config.execution.max_main_computer_time));
+        ComputerCraft.asyncFileOperations = config.execution.async_file_operations;
 
         // HTTP
         ComputerCraft.http_enable = config.http.enabled;
@@ -102,6 +107,12 @@ public class Config {
         ComputerCraft.httpMaxUpload = Math.max(0, config.http.max_upload);
         ComputerCraft.httpMaxWebsockets = Math.max(1, config.http.max_websockets);
         ComputerCraft.httpMaxWebsocketMessage = Math.min(Math.max(0, config.http.max_websocket_message), Websocket.MAX_MESSAGE_SIZE);
+        ComputerCraft.httpMaxConnectionsPerHost = Math.max(0, config.http.max_connections_per_host);
+        ComputerCraft.httpConnectionIdleTimeout = Math.max(0, config.http.connection_idle_timeout);
+        ComputerCraft.httpDnsCacheTtl = Math.max(0, config.http.dns_cache_ttl);
+        ComputerCraft.httpResponseCacheSize = Math.max(0, config.http.response_cache_size);
+        ComputerCraft.httpRequestRate = Math.max(0, config.http.max_requests_per_second);
+        ComputerCraft.httpBandwidth = Math.max(0, config.http.max_bandwidth);
 
         // Peripheral
         ComputerCraft.enableCommandBlock = config.peripheral.command_block_enabled;
@@ -117,6 +128,7 @@ public class Config {
         ComputerCraft.advancedTurtleFuelLimit = Math.max(0, config.turtle.advanced_fuel_limit);
         ComputerCraft.turtlesObeyBlockProtection = config.turtle.obey_block_protection;
         ComputerCraft.turtlesCanPush = config.turtle.can_push;
+        ComputerCraft.turtleMaxScanRadius = Math.min(Math.max(0, config.turtle.max_scan_radius), 8);
 
         ComputerCraft.turtleDisabledActions.clear();
         Converter<String, String> converter = CaseFormat.LOWER_CAMEL.converterTo(CaseFormat.UPPER_UNDERSCORE);
@@ -137,6 +149,22 @@ public class Config {
         @Comment ("\nSet how many files a computer can have open at the same time. Set to 0 for unlimited.") public int maximum_open_files =
             ComputerCraft.maximumFilesOpen;
 
+        @Comment ("\nStore each computer and floppy disk's files in a single image file, rather than a directory of files. Existing " +
+                  "directories are converted when they are next used, and converted back if this is disabled again.") public boolean packed_file_systems =
+            ComputerCraft.packedFileSystems;
+
+        @Comment ("\nStore identical files on different computers only once, and make copying files within a computer almost free. " +
+                  "Files still count in full towards each computer's space limit. This has no effect on Windows, or when packed " +
+                  "file systems are enabled.") public boolean deduplicate_files = ComputerCraft.deduplicateFiles;
+
+        @Comment ("\nThe size of the buffer used to collect small writes to computers' files, in bytes. Files are still written when " +
+                  "closed or flushed, and when the world is saved. Set to 0 to write everything immediately.") public int file_write_buffer =
+            ComputerCraft.fileWriteBuffer;
+
+        @Comment ("\nHow long data may be left in a file's write buffer before it is written to disk, in milliseconds. Set to 0 to " +
+                  "only write buffers when they are full, or the file is flushed or closed.") public long file_flush_interval =
+            ComputerCraft.fileFlushInterval;
+
         @Comment ("\nSet this to true to disable Lua 5.1 functions that will be removed in a future " + "update. Useful for ensuring forward " +
                   "compatibility of your programs now.") public boolean disable_lua51_features = ComputerCraft.disable_lua51_features;
 
@@ -160,6 +188,10 @@ public class Config {
         @Comment ("\nThe ideal maximum time a computer can execute for in a tick, in milliseconds.\n" + "Note, we will quite possibly go over this limit,"
                   + " as there's no way to tell how long a will take - this aims " + "to be the upper bound of the average time.") public long max_main_computer_time = TimeUnit.NANOSECONDS.toMillis(
             ComputerCraft.maxMainComputerTime);
+
+        @Comment ("\nRun slow file system operations (fs.copy, fs.move, fs.delete, fs.find, and reads and writes of more than 64KiB) on a separate " +
+                  "thread, rather than on the computer threads. The calling program waits for a task_complete event, so other computers may run in the meantime.") public boolean async_file_operations =
+            ComputerCraft.asyncFileOperations;
     }
 
     public static class Http {
@@ -188,6 +220,27 @@ public class Config {
 
         @Comment ("\nThe maximum size (in bytes) that a computer can send or receive in one websocket packet.") public int max_websocket_message =
             ComputerCraft.httpMaxWebsocketMessage;
+
+        @Comment ("\nThe number of connections which may be open to a single host at once, across all computers. Connections are kept alive and " +
+                  "reused by later requests to the same host. Additional requests will wait for a free connection. Set to 0 to disable connection " +
+                  "reuse.") public int max_connections_per_host = ComputerCraft.httpMaxConnectionsPerHost;
+
+        @Comment ("\nThe period of time (in milliseconds) an unused connection is kept open before it is closed. Set to 0 to keep connections " +
+                  "open until the remote server closes them.") public int connection_idle_timeout = ComputerCraft.httpConnectionIdleTimeout;
+
+        @Comment ("\nThe period of time (in milliseconds) the address of a host is remembered for after it has been looked up. Set to 0 to look up " +
+                  "the address on every request.") public int dns_cache_ttl = ComputerCraft.httpDnsCacheTtl;
+
+        @Comment ("\nThe size (in bytes) of a cache of HTTP responses shared by all computers. Responses are stored and revalidated according to " +
+                  "their Cache-Control, ETag and Last-Modified headers. Set to 0 to disable the cache.") public long response_cache_size =
+            ComputerCraft.httpResponseCacheSize;
+
+        @Comment ("\nThe number of http requests and websocket connections a computer can start each second. Requests over this limit are " +
+                  "queued until the computer is under the limit again. Set to 0 for unlimited.") public double max_requests_per_second =
+            ComputerCraft.httpRequestRate;
+
+        @Comment ("\nThe number of bytes per second a computer can upload and download over http. Requests over this limit are queued until " +
+                  "the computer is under the limit again. Set to 0 for unlimited.") public long max_bandwidth = ComputerCraft.httpBandwidth;
     }
 
     public static class Peripheral {
@@ -218,6 +271,8 @@ public class Config {
 
         @Comment ("\nIf set to true, Turtles will push entities out of the way instead of stopping if " + "there is space to do so") public boolean can_push = ComputerCraft.turtlesCanPush;
 
+        @Comment ("\nThe largest radius turtle.scan may look at, up to 8. Each block of radius costs one fuel. Set to 0 to " + "only allow scanning the six adjacent blocks.") public int max_scan_radius = ComputerCraft.turtleMaxScanRadius;
+
         @Comment ("\nA list of turtle actions which are disabled.") public String[] disabled_actions = new String[0];
     }
 }
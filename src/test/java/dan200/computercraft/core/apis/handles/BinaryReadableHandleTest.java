@@ -6,12 +6,22 @@
 package dan200.computercraft.core.apis.handles;
 
 import dan200.computercraft.api.lua.LuaException;
+import dan200.computercraft.api.lua.MethodResult;
+import dan200.computercraft.core.apis.FileTaskExecutor;
 import dan200.computercraft.core.apis.ObjectWrapper;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -77,6 +87,104 @@ public class BinaryReadableHandleTest
         assertNull( wrapper.call( "readLine", true ) );
     }
 
+    @Test
+    public void testReadLineBuffered() throws LuaException
+    {
+        ObjectWrapper wrapper = new ObjectWrapper( BinaryReadableHandle.of( buffered( "hello\r\nworld\r!" ) ) );
+        assertArrayEquals( "hello".getBytes( StandardCharsets.UTF_8 ), wrapper.callOf( "readLine" ) );
+        assertArrayEquals( "world\r!".getBytes( StandardCharsets.UTF_8 ), wrapper.callOf( "readLine" ) );
+        assertNull( wrapper.call( "readLine" ) );
+    }
+
+    @Test
+    public void testReadLongBuffered() throws LuaException
+    {
+        ObjectWrapper wrapper = new ObjectWrapper( BinaryReadableHandle.of( buffered( "abcdefghijklmnopqrstuvwxyz" ) ) );
+        assertEquals( 'a', (int) wrapper.callOf( Integer.class, "read" ) );
+        assertEquals( "bcdefghij", StandardCharsets.UTF_8.decode( wrapper.<ByteBuffer>callOf( "read", 9 ) ).toString() );
+        assertEquals( "klmnopqrstuvwxyz", StandardCharsets.UTF_8.decode( ByteBuffer.wrap( wrapper.<byte[]>callOf( "readAll" ) ) ).toString() );
+        assertNull( wrapper.call( "read" ) );
+    }
+
+    @Test
+    public void testSeekBuffered() throws LuaException
+    {
+        ObjectWrapper wrapper = new ObjectWrapper( BinaryReadableHandle.of( buffered( "abcdefghijklmnopqrstuvwxyz" ) ) );
+        assertEquals( 'a', (int) wrapper.callOf( Integer.class, "read" ) );
+        assertEquals( 1L, (long) wrapper.callOf( Long.class, "seek" ) );
+
+        // Within the current buffer
+        assertEquals( 3L, (long) wrapper.callOf( Long.class, "seek", "set", 3 ) );
+        assertEquals( 'd', (int) wrapper.callOf( Integer.class, "read" ) );
+
+        // Past the end of the current buffer
+        assertEquals( 20L, (long) wrapper.callOf( Long.class, "seek", "cur", 16 ) );
+        assertEquals( 'u', (int) wrapper.callOf( Integer.class, "read" ) );
+
+        // And back again
+        assertEquals( 1L, (long) wrapper.callOf( Long.class, "seek", "set", 1 ) );
+        assertEquals( 'b', (int) wrapper.callOf( Integer.class, "read" ) );
+        assertEquals( 25L, (long) wrapper.callOf( Long.class, "seek", "end", -1 ) );
+        assertEquals( 'z', (int) wrapper.callOf( Integer.class, "read" ) );
+    }
+
+    @Test
+    public void testReadLargeFile( @TempDir Path dir ) throws LuaException, IOException
+    {
+        byte[] input = new byte[BufferedReadableChannel.MAP_THRESHOLD * 2];
+        for( int i = 0; i < input.length; i++ ) input[i] = (byte) i;
+        Path file = dir.resolve( "large.bin" );
+        Files.write( file, input );
+
+        try( FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ) )
+        {
+            ObjectWrapper wrapper = new ObjectWrapper( BinaryReadableHandle.of( new BufferedReadableChannel( channel ) ) );
+            assertArrayEquals( Arrays.copyOfRange( input, 0, 10 ), bytes( wrapper.call( "read", 10 )[0] ) );
+            assertArrayEquals( Arrays.copyOfRange( input, 10, 10 + BufferedReadableChannel.MAP_THRESHOLD ), bytes( wrapper.call( "read", BufferedReadableChannel.MAP_THRESHOLD )[0] ) );
+            assertArrayEquals( Arrays.copyOfRange( input, 10 + BufferedReadableChannel.MAP_THRESHOLD, input.length ), bytes( wrapper.call( "readAll" )[0] ) );
+            assertNull( wrapper.call( "read", 1 ) );
+        }
+    }
+
+    @Test
+    public void testLargeReadUsesRunner() throws Exception
+    {
+        BinaryReadableHandle handle = BinaryReadableHandle.of( new ArrayByteChannel( new byte[HandleGeneric.LARGE_TRANSFER * 2] ) );
+        List<FileTaskExecutor.Task> tasks = new ArrayList<>();
+        handle.setRunner( task -> {
+            tasks.add( task );
+            return MethodResult.of();
+        } );
+        ObjectWrapper wrapper = new ObjectWrapper( handle );
+
+        assertEquals( 10, bytes( wrapper.call( "read", 10 )[0] ).length );
+        assertEquals( 0, tasks.size() );
+
+        wrapper.call( "read", HandleGeneric.LARGE_TRANSFER + 1 );
+        assertEquals( 1, tasks.size() );
+
+        // The handle cannot be used until the read has finished.
+        assertThrows( LuaException.class, () -> wrapper.call( "read", 10 ) );
+        assertEquals( HandleGeneric.LARGE_TRANSFER + 1, bytes( tasks.get( 0 ).run() ).length );
+        assertEquals( 10, bytes( wrapper.call( "read", 10 )[0] ).length );
+    }
+
+    private static byte[] bytes( Object value )
+    {
+        if( value instanceof byte[] ) return (byte[]) value;
+
+        ByteBuffer buffer = (ByteBuffer) value;
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get( bytes );
+        return bytes;
+    }
+
+    private static BufferedReadableChannel buffered( String contents )
+    {
+        // Use a tiny buffer, so we cross buffer boundaries.
+        return new BufferedReadableChannel( new ArrayByteChannel( contents.getBytes( StandardCharsets.UTF_8 ) ), 4 );
+    }
+
     private static ObjectWrapper fromLength( int length )
     {
         byte[] input = new byte[length];
@@ -0,0 +1,142 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.computer;
+
+import dan200.computercraft.ComputerCraft;
+import dan200.computercraft.core.filesystem.MemoryMount;
+import dan200.computercraft.core.terminal.Terminal;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.time.Duration.ofSeconds;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ComputerDormancyTest
+{
+    @Test
+    public void testOffComputerSleeps()
+    {
+        Computer computer = create( new MemoryMount() );
+        computer.tick();
+
+        assertTrue( computer.trySleep() );
+        assertTrue( computer.isDormant() );
+    }
+
+    @Test
+    public void testRedstoneInputWakes()
+    {
+        AtomicInteger wakes = new AtomicInteger();
+        Computer computer = create( new MemoryMount() );
+        computer.setWakeListener( wakes::incrementAndGet );
+        computer.tick();
+        assertTrue( computer.trySleep() );
+
+        computer.getEnvironment().setRedstoneInput( ComputerSide.TOP, 15 );
+        assertFalse( computer.isDormant() );
+        assertEquals( 1, wakes.get() );
+
+        // The change must be seen by a tick before the computer can sleep again.
+        assertFalse( computer.trySleep() );
+        computer.tick();
+        assertTrue( computer.trySleep() );
+    }
+
+    @Test
+    public void testLabelWakes()
+    {
+        AtomicInteger wakes = new AtomicInteger();
+        Computer computer = create( new MemoryMount() );
+        computer.setWakeListener( wakes::incrementAndGet );
+        computer.tick();
+        assertTrue( computer.trySleep() );
+
+        computer.setLabel( "Changed" );
+        assertFalse( computer.isDormant() );
+        assertEquals( 1, wakes.get() );
+
+        // The computer stays awake until the change has been picked up.
+        computer.tick();
+        assertFalse( computer.trySleep() );
+        assertTrue( computer.pollAndResetChanged() );
+        assertTrue( computer.trySleep() );
+    }
+
+    @Test
+    public void testTimerKeepsAwake()
+    {
+        Computer computer = create( new MemoryMount() );
+        computer.tick();
+        assertTrue( computer.trySleep() );
+
+        computer.getAPIEnvironment().startTimer( 2 );
+        assertFalse( computer.isDormant() );
+
+        computer.tick();
+        assertFalse( computer.trySleep() );
+        computer.tick();
+        assertTrue( computer.trySleep() );
+    }
+
+    @Test
+    public void testTurnOnWakes()
+    {
+        AtomicInteger wakes = new AtomicInteger();
+        Computer computer = create( new MemoryMount() );
+        computer.setWakeListener( wakes::incrementAndGet );
+        computer.tick();
+        assertTrue( computer.trySleep() );
+
+        computer.turnOn();
+        assertFalse( computer.isDormant() );
+        assertEquals( 1, wakes.get() );
+        assertFalse( computer.trySleep() );
+
+        computer.unload();
+    }
+
+    /**
+     * Ensures a computer waiting for an event goes to sleep, and that queuing an event wakes it up again.
+     */
+    @Test
+    public void testIdleComputerSleeps()
+    {
+        assertTimeoutPreemptively( ofSeconds( 20 ), () -> {
+            AtomicInteger wakes = new AtomicInteger();
+            Computer computer = create( new MemoryMount().addFile( "startup.lua", "os.pullEvent('go') os.shutdown()" ) );
+            computer.setWakeListener( wakes::incrementAndGet );
+            computer.turnOn();
+
+            // Tick until the computer has booted and is waiting for our event.
+            while( !computer.isOn() || !computer.trySleep() ) tick( computer );
+            int woken = wakes.get();
+
+            computer.queueEvent( "go", null );
+            assertFalse( computer.isDormant() );
+            assertEquals( woken + 1, wakes.get() );
+
+            // The event is not run until the computer has been ticked again.
+            Thread.sleep( 100 );
+            assertTrue( computer.isOn() );
+
+            while( computer.isOn() ) tick( computer );
+        } );
+    }
+
+    private static Computer create( MemoryMount mount )
+    {
+        Terminal term = new Terminal( ComputerCraft.terminalWidth_computer, ComputerCraft.terminalHeight_computer );
+        return new Computer( new BasicEnvironment( mount ), term, 0 );
+    }
+
+    private static void tick( Computer computer ) throws InterruptedException
+    {
+        computer.tick();
+        MainThread.executePendingTasks();
+        Thread.sleep( 5 );
+    }
+}
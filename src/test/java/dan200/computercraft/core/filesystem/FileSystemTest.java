@@ -5,20 +5,33 @@
  */
 package dan200.computercraft.core.filesystem;
 
+import com.google.common.base.Strings;
 import com.google.common.io.Files;
 import dan200.computercraft.api.filesystem.IWritableMount;
 import dan200.computercraft.api.lua.LuaException;
 import dan200.computercraft.core.apis.ObjectWrapper;
+import dan200.computercraft.core.apis.handles.BinaryWritableHandle;
+import dan200.computercraft.core.apis.handles.BufferedWritableChannel;
+import dan200.computercraft.core.apis.handles.EncodedReadableHandle;
 import dan200.computercraft.core.apis.handles.EncodedWritableHandle;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 public class FileSystemTest
 {
@@ -63,6 +76,231 @@ public class FileSystemTest
         assertEquals( "Tiny line", Files.asCharSource( new File( ROOT, "out.txt" ), StandardCharsets.UTF_8 ).read() );
     }
 
+    @Test
+    public void testMetadataUpdatedByChanges( @TempDir File root ) throws FileSystemException, LuaException
+    {
+        FileSystem fs = new FileSystem( "hdd", new FileMount( new File( root, "hdd" ), CAPACITY ) );
+        fs.makeDir( "cache" );
+        assertArrayEquals( new String[0], fs.list( "cache" ) );
+
+        {
+            FileSystemWrapper<BufferedWriter> writer = fs.openForWrite( "cache/out.txt", false, EncodedWritableHandle::openUtf8 );
+            ObjectWrapper wrapper = new ObjectWrapper( new EncodedWritableHandle( writer.get(), writer ) );
+            wrapper.call( "write", "Tiny line" );
+            wrapper.call( "close" );
+        }
+
+        assertArrayEquals( new String[] { "out.txt" }, fs.list( "cache" ) );
+        assertEquals( 9, fs.getSize( "cache/out.txt" ) );
+
+        fs.makeDir( "cache/a/b" );
+        assertArrayEquals( new String[] { "a", "out.txt" }, fs.list( "cache" ) );
+        assertTrue( fs.isDir( "cache/a/b" ) );
+
+        fs.delete( "cache/out.txt" );
+        assertFalse( fs.exists( "cache/out.txt" ) );
+        assertArrayEquals( new String[] { "a" }, fs.list( "cache" ) );
+
+        fs.delete( "cache" );
+        assertFalse( fs.exists( "cache/a" ) );
+    }
+
+    @Test
+    public void testCopySharesContents( @TempDir File root ) throws FileSystemException, LuaException, IOException
+    {
+        assumeTrue( ContentStore.isSupported() );
+
+        ContentStore store = new ContentStore( new File( root, "objects" ) );
+        FileMount mount = new FileMount( new File( root, "a" ), CAPACITY, store );
+        FileSystem fs = new FileSystem( "hdd", mount );
+        fs.mountWritable( "disk", "disk", new FileMount( new File( root, "b" ), CAPACITY, store ) );
+
+        {
+            FileSystemWrapper<BufferedWriter> writer = fs.openForWrite( "out.txt", false, EncodedWritableHandle::openUtf8 );
+            ObjectWrapper wrapper = new ObjectWrapper( new EncodedWritableHandle( writer.get(), writer ) );
+            wrapper.call( "write", "Shared line" );
+            wrapper.call( "close" );
+        }
+
+        long remaining = fs.getFreeSpace( "disk" );
+        fs.copy( "out.txt", "disk/out.txt" );
+        assertEquals( remaining - 500, fs.getFreeSpace( "disk" ) );
+        assertTrue( java.nio.file.Files.isSameFile( new File( root, "a/out.txt" ).toPath(), new File( root, "b/out.txt" ).toPath() ) );
+
+        {
+            FileSystemWrapper<BufferedWriter> writer = fs.openForWrite( "disk/out.txt", true, EncodedWritableHandle::openUtf8 );
+            ObjectWrapper wrapper = new ObjectWrapper( new EncodedWritableHandle( writer.get(), writer ) );
+            wrapper.call( "write", "!" );
+            wrapper.call( "close" );
+        }
+
+        assertEquals( "Shared line", Files.asCharSource( new File( root, "a/out.txt" ), StandardCharsets.UTF_8 ).read() );
+        assertEquals( "Shared line!", Files.asCharSource( new File( root, "b/out.txt" ), StandardCharsets.UTF_8 ).read() );
+    }
+
+    @Test
+    public void testDeduplicateKeepsModified( @TempDir File root ) throws IOException
+    {
+        assumeTrue( ContentStore.isSupported() );
+
+        ContentStore store = new ContentStore( new File( root, "objects" ) );
+        File first = new File( root, "first.txt" ), second = new File( root, "second.txt" );
+        Files.write( "Shared line", first, StandardCharsets.UTF_8 );
+        Files.write( "Shared line", second, StandardCharsets.UTF_8 );
+        assertTrue( first.setLastModified( 1_000_000_000L ) );
+        assertTrue( second.setLastModified( 2_000_000_000L ) );
+
+        Object lock = new Object();
+        store.deduplicate( first.toPath(), lock, () -> true );
+        store.deduplicate( second.toPath(), lock, () -> true );
+
+        assertTrue( java.nio.file.Files.isSameFile( first.toPath(), second.toPath() ) );
+        assertEquals( 2_000_000_000L, second.lastModified() );
+    }
+
+    @Test
+    public void testDeduplicateSkipsOpenFiles( @TempDir File root ) throws IOException
+    {
+        assumeTrue( ContentStore.isSupported() );
+
+        ContentStore store = new ContentStore( new File( root, "objects" ) );
+        File first = new File( root, "first.txt" ), second = new File( root, "second.txt" );
+        Files.write( "Shared line", first, StandardCharsets.UTF_8 );
+        Files.write( "Shared line", second, StandardCharsets.UTF_8 );
+
+        Object lock = new Object();
+        store.deduplicate( first.toPath(), lock, () -> true );
+        store.deduplicate( second.toPath(), lock, () -> false );
+
+        assertFalse( java.nio.file.Files.isSameFile( first.toPath(), second.toPath() ) );
+    }
+
+    /**
+     * Runs several threads against the same file system, checking that concurrent reads, writes and copies neither
+     * fail nor see each other's partial state.
+     *
+     * @param root A directory to store the file system in.
+     * @throws Exception If any worker fails.
+     */
+    @Test
+    public void testConcurrentAccess( @TempDir File root ) throws Exception
+    {
+        FileSystem fs = new FileSystem( "hdd", new FileMount( new File( root, "hdd" ), CAPACITY ) );
+        fs.mountWritable( "disk", "disk", new FileMount( new File( root, "disk" ), CAPACITY ) );
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>();
+            for( int i = 0; i < threads; i++ )
+            {
+                String name = "file" + i;
+                futures.add( executor.submit( () -> {
+                    for( int j = 0; j < 50; j++ )
+                    {
+                        String contents = name + " " + j;
+                        write( fs, "dir/" + name, contents );
+                        assertEquals( contents, read( fs, "dir/" + name ) );
+
+                        fs.copy( "dir/" + name, "disk/" + name );
+                        assertEquals( contents, read( fs, "disk/" + name ) );
+                        fs.delete( "disk/" + name );
+
+                        assertTrue( Arrays.asList( fs.list( "dir" ) ).contains( name ) );
+                        assertEquals( contents.length(), fs.getSize( "dir/" + name ) );
+                    }
+                    return null;
+                } ) );
+            }
+
+            for( Future<?> future : futures ) future.get( 1, TimeUnit.MINUTES );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        assertEquals( threads, fs.list( "dir" ).length );
+        assertArrayEquals( new String[0], fs.list( "disk" ) );
+    }
+
+    private static void write( FileSystem fs, String path, String contents ) throws FileSystemException, LuaException
+    {
+        FileSystemWrapper<BufferedWriter> writer = fs.openForWrite( path, false, EncodedWritableHandle::openUtf8 );
+        ObjectWrapper wrapper = new ObjectWrapper( new EncodedWritableHandle( writer.get(), writer ) );
+        wrapper.call( "write", contents );
+        wrapper.call( "close" );
+    }
+
+    private static String read( FileSystem fs, String path ) throws FileSystemException, LuaException
+    {
+        FileSystemWrapper<BufferedReader> reader = fs.openForRead( path, EncodedReadableHandle::openUtf8 );
+        ObjectWrapper wrapper = new ObjectWrapper( new EncodedReadableHandle( reader.get(), reader ) );
+        String contents = wrapper.callOf( "readAll" );
+        wrapper.call( "close" );
+        return contents;
+    }
+
+    @Test
+    public void testBufferedWriteOutOfSpace( @TempDir File root ) throws FileSystemException, LuaException
+    {
+        FileSystem fs = new FileSystem( "hdd", new FileMount( new File( root, "hdd" ), 1000 ) );
+        FileSystemWrapper<BufferedWritableChannel> writer = fs.openForWrite( "out.bin", false, BufferedWritableChannel::new );
+        ObjectWrapper wrapper = new ObjectWrapper( BinaryWritableHandle.of( writer.get(), writer ) );
+
+        // Each write is small enough to be buffered, but the space should be checked immediately.
+        String chunk = Strings.repeat( "a", 400 );
+        wrapper.call( "write", chunk );
+        wrapper.call( "write", chunk );
+        LuaException err = assertThrows( LuaException.class, () -> wrapper.call( "write", chunk ) );
+        assertEquals( "Out of space", err.getMessage() );
+
+        wrapper.call( "close" );
+        assertEquals( 800, new File( root, "hdd/out.bin" ).length() );
+    }
+
+    /**
+     * Ensures that files written while the used space is being measured are only counted once.
+     *
+     * @param root A directory to store the file system in.
+     * @throws Exception If the file system cannot be used.
+     */
+    @Test
+    public void testUsedSpaceMeasuredOnce( @TempDir File root ) throws Exception
+    {
+        File hdd = new File( root, "hdd" );
+        assertTrue( hdd.mkdirs() );
+        java.nio.file.Files.write( new File( hdd, "existing.bin" ).toPath(), new byte[1000] );
+
+        // There is no ledger, so the mount must measure the existing directory.
+        FileMount mount = new FileMount( hdd, CAPACITY );
+        FileSystem fs = new FileSystem( "hdd", mount );
+        write( fs, "new.txt", "Tiny line" );
+
+        // 500 for the root directory, 1000 for the existing file and 500 for the new one.
+        assertEquals( CAPACITY - 1500, mount.getRemainingSpace() );
+    }
+
+    @Test
+    public void testFind( @TempDir File root ) throws FileSystemException, LuaException
+    {
+        FileSystem fs = new FileSystem( "hdd", new FileMount( new File( root, "hdd" ), CAPACITY ) );
+        write( fs, "a/programs/go.lua", "" );
+        write( fs, "a/programs/go.txt", "" );
+        write( fs, "a/other/go.lua", "" );
+        write( fs, "b/programs/sub/go.lua", "" );
+        write( fs, "b/programs/stop.lua", "" );
+        write( fs, "programs", "" );
+
+        assertArrayEquals( new String[] { "a/programs/go.lua", "b/programs/stop.lua" }, fs.find( "*/programs/*.lua" ) );
+        assertArrayEquals( new String[] { "a/other/go.lua", "a/programs/go.lua" }, fs.find( "a/*/go.lua" ) );
+        assertArrayEquals( new String[] { "a/programs", "b/programs" }, fs.find( "*/programs" ) );
+        assertArrayEquals( new String[] { "programs" }, fs.find( "prog*" ) );
+        assertArrayEquals( new String[0], fs.find( "*/Programs/*" ) );
+        assertArrayEquals( new String[0], fs.find( "missing/*" ) );
+    }
+
     @Test
     public void testUnmountCloses() throws FileSystemException
     {
@@ -0,0 +1,146 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.filesystem;
+
+import com.google.common.io.ByteStreams;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageMountTest
+{
+    private static final File IMAGE = new File( "test-files/image-mount.img" );
+    private static final long CAPACITY = 1000000;
+
+    @BeforeEach
+    public void before() throws IOException
+    {
+        IMAGE.getParentFile().mkdirs();
+        Files.deleteIfExists( IMAGE.toPath() );
+    }
+
+    @Test
+    public void persistsChanges() throws IOException
+    {
+        ImageMount mount = new ImageMount( IMAGE, CAPACITY );
+        mount.makeDirectory( "dir/child" );
+        write( mount, "dir/file.lua", "print('testing')" );
+        write( mount, "dir/other.lua", "print('other')" );
+        mount.delete( "dir/other.lua" );
+        long remaining = mount.getRemainingSpace();
+
+        ImageMount reloaded = new ImageMount( IMAGE, CAPACITY );
+        assertTrue( reloaded.isDirectory( "dir/child" ) );
+        assertFalse( reloaded.exists( "dir/other.lua" ) );
+        assertEquals( "print('testing')", read( reloaded, "dir/file.lua" ) );
+        assertEquals( remaining, reloaded.getRemainingSpace() );
+
+        List<String> children = new ArrayList<>();
+        reloaded.list( "dir", children );
+        children.sort( String::compareTo );
+        assertEquals( 2, children.size() );
+        assertEquals( "child", children.get( 0 ) );
+        assertEquals( "file.lua", children.get( 1 ) );
+    }
+
+    @Test
+    public void discardsIncompleteRecords() throws IOException
+    {
+        ImageMount mount = new ImageMount( IMAGE, CAPACITY );
+        write( mount, "file.lua", "print('testing')" );
+        long length = IMAGE.length();
+        write( mount, "file.lua", "print('changed')" );
+
+        // Chop off the end of the last record, as if we crashed part way through writing it.
+        try( FileOutputStream stream = new FileOutputStream( IMAGE, true ) )
+        {
+            stream.getChannel().truncate( IMAGE.length() - 3 );
+        }
+
+        ImageMount reloaded = new ImageMount( IMAGE, CAPACITY );
+        assertEquals( "print('testing')", read( reloaded, "file.lua" ) );
+        assertEquals( length, IMAGE.length() );
+    }
+
+    @Test
+    public void compacts() throws IOException
+    {
+        ImageMount mount = new ImageMount( IMAGE, CAPACITY );
+        String contents = new String( new char[10000] ).replace( '\0', 'a' );
+        for( int i = 0; i < 50; i++ ) write( mount, "file.lua", contents );
+
+        assertTrue( IMAGE.length() < 10 * contents.length(), "Image should have been compacted" );
+        assertEquals( contents, read( new ImageMount( IMAGE, CAPACITY ), "file.lua" ) );
+    }
+
+    @Test
+    public void flushesAreRateLimited() throws IOException
+    {
+        ImageMount mount = new ImageMount( IMAGE, CAPACITY );
+        byte[] line = "A line of output\n".getBytes( StandardCharsets.UTF_8 );
+        try( WritableByteChannel channel = mount.openForWrite( "log.txt" ) )
+        {
+            for( int i = 0; i < 1000; i++ )
+            {
+                channel.write( ByteBuffer.wrap( line ) );
+                ( (Flushable) channel ).flush();
+            }
+        }
+
+        // Each flush would otherwise append the whole file to the image, giving roughly 8.5MB here.
+        assertTrue( IMAGE.length() < 4 * 1000 * line.length, "Image should not be rewritten on every flush" );
+        assertEquals( 1000 * line.length, read( new ImageMount( IMAGE, CAPACITY ), "log.txt" ).length() );
+    }
+
+    @Test
+    public void truncates() throws IOException
+    {
+        ImageMount mount = new ImageMount( IMAGE, CAPACITY );
+        try( SeekableByteChannel channel = (SeekableByteChannel) mount.openForWrite( "file.txt" ) )
+        {
+            channel.write( ByteBuffer.wrap( "Hello, world".getBytes( StandardCharsets.UTF_8 ) ) );
+            channel.truncate( 5 );
+            assertEquals( 5, channel.size() );
+            assertEquals( 5, channel.position() );
+
+            channel.position( 7 );
+            channel.write( ByteBuffer.wrap( "!".getBytes( StandardCharsets.UTF_8 ) ) );
+        }
+
+        assertEquals( "Hello\0\0!", read( new ImageMount( IMAGE, CAPACITY ), "file.txt" ) );
+    }
+
+    private static void write( ImageMount mount, String path, String contents ) throws IOException
+    {
+        try( WritableByteChannel channel = mount.openForWrite( path ) )
+        {
+            channel.write( ByteBuffer.wrap( contents.getBytes( StandardCharsets.UTF_8 ) ) );
+        }
+    }
+
+    private static String read( ImageMount mount, String path ) throws IOException
+    {
+        try( ReadableByteChannel channel = mount.openForRead( path ) )
+        {
+            return new String( ByteStreams.toByteArray( Channels.newInputStream( channel ) ), StandardCharsets.UTF_8 );
+        }
+    }
+}